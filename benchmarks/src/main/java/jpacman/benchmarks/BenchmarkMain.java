@@ -0,0 +1,57 @@
+package jpacman.benchmarks;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmark jar. Accepts the usual JMH command line
+ * options, but writes the results as JSON to jmh-result.json unless a
+ * different result format or file is given, so that runs can be compared
+ * over time.
+ */
+public final class BenchmarkMain {
+
+    /**
+     * Default file the results are written to.
+     */
+    public static final String RESULT_FILE = "jmh-result.json";
+
+    /**
+     * No instances.
+     */
+    private BenchmarkMain() {
+    }
+
+    /**
+     * Run the benchmarks selected on the command line.
+     *
+     * @param args JMH command line options.
+     * @throws CommandLineOptionException If the options are invalid.
+     * @throws RunnerException If a benchmark fails.
+     * @throws java.io.IOException If JMH can't list the benchmarks.
+     */
+    public static void main(String[] args)
+        throws CommandLineOptionException, RunnerException,
+               java.io.IOException {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListProfilers()
+                || cmd.shouldListResultFormats()
+                || cmd.shouldListWithParams()) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(cmd);
+        if (!cmd.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!cmd.getResult().hasValue()) {
+            options.result(RESULT_FILE);
+        }
+        new Runner(options.build()).run();
+    }
+}
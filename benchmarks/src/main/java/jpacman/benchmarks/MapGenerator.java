@@ -0,0 +1,113 @@
+package jpacman.benchmarks;
+
+import java.util.Random;
+
+import jpacman.model.Guest;
+
+/**
+ * Generate square maps of a given size and monster count, for use in
+ * benchmarks. The maps are surrounded by walls, contain scattered walls
+ * and food, and place the player in a small walled-off pocket in the top
+ * left corner, so that the monsters can never reach it and the game
+ * doesn't end while a benchmark is running.
+ * <p>
+ * The diagonal lines of food on generated maps cut the board into narrow
+ * strips for the monsters. Open maps have no such lines: apart from the
+ * surrounding walls, the player's pocket, and a single piece of food in
+ * the middle, they are empty.
+ */
+public final class MapGenerator {
+
+    /**
+     * Smallest supported map size.
+     */
+    public static final int MIN_SIZE = 6;
+
+    /**
+     * No instances.
+     */
+    private MapGenerator() {
+    }
+
+    /**
+     * Generate a map. The same arguments always produce the same map.
+     *
+     * @param size Width and height of the map, at least MIN_SIZE.
+     * @param monsters Number of monsters, placed as long as there is room.
+     * @param seed Seed for placing the walls and monsters.
+     * @return The map, one string per row.
+     */
+    public static String[] generate(int size, int monsters, long seed) {
+        assert size >= MIN_SIZE;
+        Random random = new Random(seed);
+        char[][] cells = new char[size][size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                char code = Guest.EMPTY_TYPE;
+                if (x == 0 || y == 0 || x == size - 1 || y == size - 1) {
+                    code = Guest.WALL_TYPE;
+                } else if ((x + y) % 7 == 0) {
+                    code = Guest.FOOD_TYPE;
+                } else if (random.nextInt(10) == 0) {
+                    code = Guest.WALL_TYPE;
+                }
+                cells[y][x] = code;
+            }
+        }
+        // the pocket: the player at (1,1) can only move to (2,1).
+        cells[1][1] = Guest.PLAYER_TYPE;
+        cells[1][2] = Guest.EMPTY_TYPE;
+        cells[1][3] = Guest.WALL_TYPE;
+        for (int x = 1; x <= 3; x++) {
+            cells[2][x] = Guest.WALL_TYPE;
+        }
+        int placed = 0;
+        int attempts = 0;
+        while (placed < monsters && attempts < 100 * size * size) {
+            int x = 1 + random.nextInt(size - 2);
+            int y = 1 + random.nextInt(size - 2);
+            if (cells[y][x] == Guest.EMPTY_TYPE && (x > 3 || y > 2)) {
+                cells[y][x] = Guest.MONSTER_TYPE;
+                placed++;
+            }
+            attempts++;
+        }
+        String[] result = new String[size];
+        for (int y = 0; y < size; y++) {
+            result[y] = new String(cells[y]);
+        }
+        return result;
+    }
+
+    /**
+     * Generate an open map: empty but for the surrounding walls, the
+     * player in its pocket, and one piece of food in the middle.
+     *
+     * @param size Width and height of the map, at least MIN_SIZE.
+     * @return The map, one string per row.
+     */
+    public static String[] generateOpen(int size) {
+        assert size >= MIN_SIZE;
+        char[][] cells = new char[size][size];
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                char code = Guest.EMPTY_TYPE;
+                if (x == 0 || y == 0 || x == size - 1 || y == size - 1) {
+                    code = Guest.WALL_TYPE;
+                }
+                cells[y][x] = code;
+            }
+        }
+        cells[1][1] = Guest.PLAYER_TYPE;
+        cells[1][3] = Guest.WALL_TYPE;
+        for (int x = 1; x <= 3; x++) {
+            cells[2][x] = Guest.WALL_TYPE;
+        }
+        cells[size / 2][size / 2] = Guest.FOOD_TYPE;
+        String[] result = new String[size];
+        for (int y = 0; y < size; y++) {
+            result[y] = new String(cells[y]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,98 @@
+package jpacman.controller;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jpacman.benchmarks.MapGenerator;
+import jpacman.model.Engine;
+import jpacman.model.Game;
+
+/**
+ * Benchmark rendering a full frame of the board viewer, off-screen.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class BoardViewerBenchmark {
+
+    /**
+     * Width and height of the board.
+     */
+    @Param({"20", "50", "100"})
+    private int size;
+
+    /**
+     * Number of monsters on the board.
+     */
+    @Param({"0", "100"})
+    private int monsterCount;
+
+    /**
+     * The viewer under test.
+     */
+    private BoardViewer viewer;
+
+    /**
+     * The image the viewer paints on.
+     */
+    private BufferedImage screen;
+
+    /**
+     * Graphics of the screen image.
+     */
+    private Graphics2D graphics;
+
+    /**
+     * Create a viewer of the right size for a generated map.
+     *
+     * @throws IOException If the images can't be loaded.
+     */
+    @Setup(Level.Trial)
+    public void createViewer() throws IOException {
+        Engine engine = new Engine(
+                new Game(MapGenerator.generate(size, monsterCount, size)));
+        viewer = new BoardViewer(engine);
+        viewer.setSize(viewer.windowWidth(), viewer.windowHeight());
+        screen = new BufferedImage(viewer.windowWidth(),
+                viewer.windowHeight(), BufferedImage.TYPE_INT_RGB);
+        graphics = screen.createGraphics();
+    }
+
+    /**
+     * Release the screen graphics.
+     */
+    @TearDown(Level.Trial)
+    public void dispose() {
+        graphics.dispose();
+    }
+
+    /**
+     * Paint a complete frame.
+     *
+     * @return The image painted on.
+     */
+    @Benchmark
+    public BufferedImage paintFrame() {
+        viewer.paint(graphics);
+        return screen;
+    }
+}
@@ -0,0 +1,155 @@
+package jpacman.model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jpacman.benchmarks.MapGenerator;
+
+/**
+ * Benchmarks comparing a full computation of the distances to the player
+ * with the incremental updates of the distance map: food being eaten and
+ * put back, and the source taking a step. The source is placed in the
+ * middle of the map, rather than in the player's pocket.
+ * <p>
+ * The target for sourceStep was an order of magnitude below
+ * fullComputation on 1000x1000 boards. That target is not met, and can't
+ * be met by any map holding a distance per cell: a step of the source
+ * changes the distance of every cell it can reach, by one up or down.
+ * The diagonal lines of food on generated maps block monsters, so the
+ * source only reaches a diagonal strip of the board, where sourceStep
+ * measured about 1.1 ms against 2.5 ms for fullComputation. On an open
+ * map nearly every cell changes. There the map gives up on incremental
+ * updates after an abandoned attempt, and sourceStep measured about
+ * 17 ms against 19 ms.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceMapBenchmark {
+
+    /**
+     * Width and height of the board.
+     */
+    @Param({"200", "1000"})
+    private int size;
+
+    /**
+     * Generated map with diagonal lines of food, or an open map.
+     */
+    @Param({"generated", "open"})
+    private String layout;
+
+    /**
+     * The board the distances are computed on.
+     */
+    private Board board;
+
+    /**
+     * The distances under test.
+     */
+    private DistanceMap distances;
+
+    /**
+     * Position of the source, which has an open cell to its right.
+     */
+    private int sourceX, sourceY;
+
+    /**
+     * Food next to a cell reachable from the source, and its cell.
+     */
+    private Food food;
+
+    /**
+     * The cell containing the food.
+     */
+    private Cell foodCell;
+
+    /**
+     * Offset of the source from its original position, 0 or 1.
+     */
+    private int step;
+
+    /**
+     * Generate the board, and find the source and the food.
+     */
+    @Setup(Level.Trial)
+    public void createBoard() {
+        String[] map = "open".equals(layout) ? MapGenerator.generateOpen(size)
+            : MapGenerator.generate(size, 0, size);
+        board = new Game(map).getBoard();
+        DistanceMap probe = new DistanceMap(board);
+        for (int i = size * size / 2; food == null && i < size * size; i++) {
+            int x = i % size;
+            int y = i / size;
+            if (sourceX == 0 && probe.passable(x, y)
+                    && probe.passable(x + 1, y)) {
+                sourceX = x;
+                sourceY = y;
+                probe.computeFrom(x, y);
+            } else if (sourceX != 0
+                    && board.guestCode(x, y) == Guest.FOOD_TYPE
+                    && probe.distance(x - 1, y) > 0) {
+                foodCell = board.getCell(x, y);
+                food = (Food) foodCell.getInhabitant();
+            }
+        }
+    }
+
+    /**
+     * Start every iteration with freshly computed distances.
+     */
+    @Setup(Level.Iteration)
+    public void computeDistances() {
+        distances = new DistanceMap(board);
+        distances.computeFrom(sourceX, sourceY);
+        step = 0;
+    }
+
+    /**
+     * Compute all distances from scratch, as needed without incremental
+     * updates after every change.
+     */
+    @Benchmark
+    public void fullComputation() {
+        distances.computeFrom(sourceX, sourceY);
+    }
+
+    /**
+     * Remove the food and put it back, updating the distances
+     * incrementally after each of the two changes.
+     */
+    @Benchmark
+    public void foodEatenAndRestored() {
+        food.deoccupy();
+        distances.cellChanged(foodCell.getX(), foodCell.getY());
+        food.occupy(foodCell);
+        distances.cellChanged(foodCell.getX(), foodCell.getY());
+    }
+
+    /**
+     * Move the source one cell back and forth, updating the distances
+     * incrementally, or computing them in full once too much of the board
+     * is affected. Not an order of magnitude cheaper than fullComputation:
+     * see the class comment.
+     */
+    @Benchmark
+    public void sourceStep() {
+        step = 1 - step;
+        distances.moveSource(sourceX + step, sourceY);
+    }
+}
@@ -0,0 +1,111 @@
+package jpacman.model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jpacman.benchmarks.MapGenerator;
+
+/**
+ * Benchmarks for moves made through the engine, which besides moving
+ * notifies the observers and keeps the snapshot for the viewers up to
+ * date. A move on a large board should cost about as much as on a small
+ * one: nothing proportional to the board size may happen per move, only
+ * per snapshot taken.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+
+    /**
+     * Width and height of the board.
+     */
+    @Param({"20", "200", "1000"})
+    private int size;
+
+    /**
+     * Use a compact board?
+     */
+    @Param({"false", "true"})
+    private boolean compact;
+
+    /**
+     * Number of moves per snapshot taken, as by a viewer drawing frames.
+     */
+    private static final int MOVES_PER_FRAME = 10;
+
+    /**
+     * The generated map.
+     */
+    private String[] map;
+
+    /**
+     * The engine moving the player.
+     */
+    private Engine engine;
+
+    /**
+     * Direction of the next player move.
+     */
+    private int playerDx;
+
+    /**
+     * Generate the map.
+     */
+    @Setup(Level.Trial)
+    public void generateMap() {
+        map = MapGenerator.generate(size, 0, size);
+    }
+
+    /**
+     * Start every iteration with a fresh engine in its playing state.
+     */
+    @Setup(Level.Iteration)
+    public void createEngine() {
+        Game game = new Game(map, compact);
+        game.setPooledMoves(true);
+        engine = new Engine(game);
+        engine.start();
+        playerDx = 1;
+    }
+
+    /**
+     * Move the player back and forth within its pocket, with nobody
+     * asking for snapshots, as in a headless simulation.
+     */
+    @Benchmark
+    public void movePlayer() {
+        engine.movePlayer(playerDx, 0);
+        playerDx = -playerDx;
+    }
+
+    /**
+     * Move the player a number of times, and take a snapshot, as a
+     * viewer drawing a frame does.
+     *
+     * @return The snapshot.
+     */
+    @Benchmark
+    public GameSnapshot movesAndSnapshot() {
+        for (int i = 0; i < MOVES_PER_FRAME; i++) {
+            engine.movePlayer(playerDx, 0);
+            playerDx = -playerDx;
+        }
+        return engine.getSnapshot();
+    }
+}
@@ -0,0 +1,176 @@
+package jpacman.model;
+
+import java.util.Random;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import jpacman.benchmarks.MapGenerator;
+
+/**
+ * Benchmarks for the model hot paths: loading a map, moving the player and
+ * the monsters, undoing moves, and reading the full board through the
+ * engine. Lives in the model package to reach the package visible move
+ * methods of Game.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBenchmark {
+
+    /**
+     * Width and height of the board.
+     */
+    @Param({"20", "200", "1000"})
+    private int size;
+
+    /**
+     * Number of monsters on the board.
+     */
+    @Param({"0", "10", "100"})
+    private int monsterCount;
+
+    /**
+     * Resolve moves against a reusable move record?
+     */
+    @Param({"false", "true"})
+    private boolean pooled;
+
+    /**
+     * The generated map.
+     */
+    private String[] map;
+
+    /**
+     * The game being played.
+     */
+    private Game game;
+
+    /**
+     * Engine around the game.
+     */
+    private Engine engine;
+
+    /**
+     * The monsters of the game.
+     */
+    private Vector<Monster> monsters;
+
+    /**
+     * Precomputed random directions for monster moves, as dx,dy pairs.
+     */
+    private int[] directions;
+
+    /**
+     * Index of the next monster and direction to use.
+     */
+    private int next;
+
+    /**
+     * Direction of the next player move.
+     */
+    private int playerDx = 1;
+
+    /**
+     * Generate the map.
+     */
+    @Setup(Level.Trial)
+    public void generateMap() {
+        map = MapGenerator.generate(size, monsterCount, size);
+        final int nrOfDirections = 1024;
+        int[][] offsets = {{0, -1}, {0, 1}, {-1, 0}, {1, 0}};
+        Random random = new Random(0);
+        directions = new int[2 * nrOfDirections];
+        for (int i = 0; i < nrOfDirections; i++) {
+            int[] offset = offsets[random.nextInt(offsets.length)];
+            directions[2 * i] = offset[0];
+            directions[2 * i + 1] = offset[1];
+        }
+    }
+
+    /**
+     * Start every iteration with a fresh game.
+     */
+    @Setup(Level.Iteration)
+    public void createGame() {
+        game = new Game(map);
+        game.setPooledMoves(pooled);
+        engine = new Engine(game);
+        monsters = game.getMonsters();
+        next = 0;
+        playerDx = 1;
+    }
+
+    /**
+     * @return A freshly loaded game.
+     */
+    @Benchmark
+    public Game loadMap() {
+        return new Game(map);
+    }
+
+    /**
+     * Move the player back and forth within its pocket.
+     */
+    @Benchmark
+    public void movePlayer() {
+        game.movePlayer(playerDx, 0);
+        playerDx = -playerDx;
+    }
+
+    /**
+     * Move the next monster in a random direction.
+     */
+    @Benchmark
+    public void moveMonster() {
+        if (monsters.isEmpty()) {
+            return;
+        }
+        Monster m = monsters.elementAt(next % monsters.size());
+        int d = 2 * (next % (directions.length / 2));
+        game.moveMonster(m, directions[d], directions[d + 1]);
+        next++;
+    }
+
+    /**
+     * Move the player and undo the move again.
+     */
+    @Benchmark
+    public void moveAndUndo() {
+        game.movePlayer(1, 0);
+        game.undo();
+    }
+
+    /**
+     * Read the guest code of every cell through the engine, as a viewer
+     * drawing the board does.
+     *
+     * @param bh Sink for the codes read.
+     */
+    @Benchmark
+    public void guestCodeScan(Blackhole bh) {
+        int w = engine.boardWidth();
+        int h = engine.boardHeight();
+        for (int x = 0; x < w; x++) {
+            for (int y = 0; y < h; y++) {
+                bh.consume(engine.getGuestCode(x, y));
+            }
+        }
+    }
+}
@@ -1,14 +1,11 @@
 package jpacman.controller;
 
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-import java.util.Random;
+import java.util.SplittableRandom;
 import java.util.Vector;
 
-import javax.swing.Timer;
-
 import jpacman.model.Engine;
 import jpacman.model.Monster;
+import jpacman.model.MonsterMoves;
 
 /**
  * A controller which generates a monster move at regular intervals. The actual
@@ -16,23 +13,29 @@ import jpacman.model.Monster;
  * strategy. As more different monster controller subclasses are created, more
  * shared monster moving methods can be put in this class.
  * <p>
+ * The controller has no timer of its own: doTick is invoked by whoever
+ * drives the game, such as the game loop of the GUI or a headless
+ * simulator. The controller doesn't load any AWT or Swing classes.
+ * <p>
+ * At every tick, the moves of all monsters are planned by planMoves, which
+ * subclasses refine, and carried out by the engine as a single batch.
+ * <p>
+ * Every controller makes its random choices with a source of its own, so
+ * controllers of games played in parallel don't contend for a shared
+ * source, and a controller given a seeded source moves the monsters the
+ * same way in every run.
+ * <p>
  *
  * @author Arie van Deursen, 3 September, 2003
  * @version $Id: AbstractMonsterController.java,v 1.1 2006/08/29 14:49:23 arie
  *          Exp $
  */
-public abstract class AbstractMonsterController implements ActionListener,
-IMonsterController {
+public abstract class AbstractMonsterController implements IMonsterController {
 
     /**
      * Randomizer used to pick, e.g., a monster at random.
      */
-    private static Random randomizer = new Random();
-
-    /**
-     * Timer to be used to trigger monster moves.
-     */
-    private Timer timer;
+    private SplittableRandom randomizer;
 
     /**
      * Vector of monsters that are to be moved.
@@ -44,21 +47,47 @@ IMonsterController {
      */
     private Engine theEngine;
 
+    /**
+     * The batch of moves planned during a tick, reused for every tick.
+     */
+    private MonsterMoves plannedMoves = new MonsterMoves();
+
     /**
      * The default delay between monster moves.
      */
     public static final int DELAY = 50;
 
     /**
-     * Create a new monstercontroller using the default
-     * delay and the given game engine.
+     * The default number of ticks between two batches of monster moves.
+     * Since all monsters move in each batch, this keeps the monsters of the
+     * default map at roughly the pace they had when a single monster moved
+     * every tick.
+     */
+    public static final int MOVE_INTERVAL = 10;
+
+    /**
+     * Create a new monstercontroller using the given game engine.
      *
      * @param e
      *            The underlying model of the game.
      */
     public AbstractMonsterController(Engine e) {
+        this(e, new SplittableRandom());
+    }
+
+    /**
+     * Create a new monstercontroller using the given game engine and
+     * source of random choices.
+     *
+     * @param e
+     *            The underlying model of the game.
+     * @param r
+     *            The source of random choices, used by this controller
+     *            only.
+     */
+    public AbstractMonsterController(Engine e, SplittableRandom r) {
         theEngine = e;
-        timer = new Timer(DELAY, this);
+        randomizer = r;
         assert controllerInvariant();
     }
 
@@ -67,16 +96,15 @@ IMonsterController {
      * @return true iff all vars non-null.
      */
     protected boolean controllerInvariant() {
-        return timer != null && theEngine != null;
+        return theEngine != null && randomizer != null;
     }
 
     /**
-     * ActionListener event caught when timer ticks.
-     * @param e Event caught.
+     * @see IMonsterController#setRandomizer(SplittableRandom)
      */
-    public void actionPerformed(ActionEvent e) {
-        assert controllerInvariant();
-        doTick();
+    public synchronized void setRandomizer(SplittableRandom r) {
+        assert r != null;
+        randomizer = r;
         assert controllerInvariant();
     }
 
@@ -88,7 +116,6 @@ IMonsterController {
         // the game may have been restarted -- refresh the monster list
         // contained.
         monsters = theEngine.getMonsters();
-        timer.start();
         assert controllerInvariant();
         assert monsters != null;
     }
@@ -98,29 +125,37 @@ IMonsterController {
      */
     public synchronized void stop() {
         assert controllerInvariant();
-        timer.stop();
-        assert controllerInvariant();
     }
 
     /**
-     * Return a randomly chosen monster, or null if there
-     * are no monsters in this game.
-     * @return Random monster or null;
+     * Plan the moves of all monsters, and have the engine carry them out
+     * as a single batch.
+     *
+     * @see jpacman.controller.IMonsterController#doTick()
      */
-    protected Monster getRandomMonster() {
-        Monster theMonster = null;
-        if (monsters.size() > 0) {
-            int monsterIndex = randomizer.nextInt(monsters.size());
-            theMonster = monsters.elementAt(monsterIndex);
+    public void doTick() {
+        assert controllerInvariant();
+        plannedMoves.clear();
+        planMoves(plannedMoves);
+        if (!plannedMoves.isEmpty()) {
+            theEngine.moveMonsters(plannedMoves);
         }
-        return theMonster;
+        plannedMoves.clear();
+        assert controllerInvariant();
+    }
+
+    /**
+     * @return The monsters that are to be moved, as picked up at start.
+     */
+    protected Vector<Monster> getMonsters() {
+        return monsters;
     }
 
     /**
      * Obtain the randomizer used for monster moves.
      * @return the randomizer.
      */
-    protected static Random getRandomizer() {
+    protected SplittableRandom getRandomizer() {
         return randomizer;
     }
 
@@ -1,20 +1,20 @@
 package jpacman.controller;
 
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
-
-import javax.swing.Timer;
-
 /**
  * The primary responsibility of this class is
  * to trigger the board viewer to display the
  * next animation.
+ * <p>
+ * The animator is driven by a game loop: at every tick it renders the next
+ * frame of the board off the event dispatch thread, and hands the finished
+ * frame over to Swing. Every ANIMATION_TICKS ticks, the animation moves on
+ * to its next step.
  *
  * @author Arie van Deursen, 2007.
  * @version $Id: Animator.java,v 1.5 2008/02/03 19:43:38 arie Exp $
  *
  */
-public class Animator {
+public class Animator implements ITickListener {
 
     /**
      * The viewer that must be informed to show the
@@ -23,41 +23,58 @@ public class Animator {
     private BoardViewer boardViewer;
 
     /**
-     * The timer used.
+     * The loop driving the animations.
      */
-    private Timer timer;
+    private GameLoop loop;
 
     /**
      * The delay between two animations.
      */
     private static final int DELAY = 200;
 
+    /**
+     * Number of ticks between two animation steps.
+     */
+    private final int animationTicks;
+
     /**
      * Create an animator for a particular board viewer.
      * @param bv The view to be animated.
+     * @param gl The game loop driving the animation.
      */
-    public Animator(BoardViewer bv) {
+    public Animator(BoardViewer bv, GameLoop gl) {
+        assert bv != null;
+        assert gl != null;
         boardViewer = bv;
-        timer = new Timer(DELAY,
-                new ActionListener() {
-            public void actionPerformed(ActionEvent e) {
-                boardViewer.nextAnimation();
-            }
+        loop = gl;
+        animationTicks = Math.max(1, DELAY / loop.getPeriod());
+    }
+
+    /**
+     * Render the frame for a tick, advancing the animation if it is due.
+     * @param tickNumber Number of the tick.
+     */
+    public void tick(long tickNumber) {
+        if (tickNumber % animationTicks == 0) {
+            boardViewer.advanceAnimation();
         }
-        );
+        boardViewer.renderFrame();
     }
 
     /**
      * Stop triggering animation events.
      */
     public void stop() {
-        timer.stop();
+        loop.unsubscribe(this);
+        boardViewer.setRenderedByLoop(false);
     }
 
     /**
      * Start triggering animation events.
      */
     public void start()  {
-        timer.start();
+        boardViewer.setRenderedByLoop(true);
+        loop.subscribe(this, 1);
+        loop.start();
     }
 }
@@ -11,10 +11,15 @@ import java.awt.Rectangle;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.util.BitSet;
+import java.util.Observable;
+import java.util.Observer;
 
 import javax.swing.JPanel;
 
+import jpacman.model.ChangeSummary;
 import jpacman.model.Engine;
+import jpacman.model.GameSnapshot;
 import jpacman.model.Guest;
 
 /**
@@ -25,11 +30,19 @@ import jpacman.model.Guest;
  * It should be fairly easy to create a nicer viewer, but since this is not the
  * topic of the testing course we leave it at this.
  * <p>
+ * The board is drawn in a persistent frame buffer. Rather than redrawing
+ * the full board for every frame, the viewer observes the engine, and only
+ * redraws the cells the engine reports as changed, together with the cells
+ * of moving guests when the animation moves on. While the game is running,
+ * an animator updates the frame off the event dispatch thread, and painting
+ * only copies the frame to the screen. Otherwise, the frame is updated
+ * while painting.
+ * <p>
  *
  * @author Arie van Deursen; Jul 28, 2003
  * @version $Id: BoardViewer.java,v 1.9 2008/02/04 23:00:12 arie Exp $
  */
-public class BoardViewer extends JPanel {
+public class BoardViewer extends JPanel implements Observer {
 
     /** Since a JPanel (through JComponent) is serializable,
      *  so is the BoardViewer which extends it,
@@ -44,10 +57,63 @@ public class BoardViewer extends JPanel {
     private Engine engine;
 
     /**
-     * Buffered image used for drawing cells.
+     * The frame buffer, which persists between frames.
      */
     private BufferedImage bimg = null;
 
+    /**
+     * Lock guarding the frame buffer.
+     */
+    private final Object frameLock = new Object();
+
+    /**
+     * Lock guarding the changes reported by the engine. Never held while
+     * calling the engine, since the engine reports changes holding its own
+     * lock.
+     */
+    private final Object changeLock = new Object();
+
+    /**
+     * True iff frames are rendered by a game loop rather than while
+     * painting.
+     */
+    private volatile boolean renderedByLoop = false;
+
+    /**
+     * The guest codes drawn in the frame buffer, indexed by y * width + x.
+     */
+    private char[] drawnCodes = null;
+
+    /**
+     * Cells reported as changed since the last frame, by index.
+     */
+    private BitSet reportedCells = new BitSet();
+
+    /**
+     * Cells to be redrawn in the frame being updated.
+     */
+    private BitSet dirty = new BitSet();
+
+    /**
+     * Cells drawn with an animated image (the player and the monsters).
+     */
+    private BitSet animatedCells = new BitSet();
+
+    /**
+     * True iff the next frame should redraw the full board.
+     */
+    private boolean fullRedraw = true;
+
+    /**
+     * Animation count and player direction used for the drawn frame.
+     */
+    private int drawnAnimation, drawnDx, drawnDy;
+
+    /**
+     * Width, in cells, of the board in the drawn frame.
+     */
+    private int drawnWidth;
+
     /**
      * Width of an individual cell, in pixels.
      */
@@ -76,7 +142,7 @@ public class BoardViewer extends JPanel {
     /**
      * Indicator for animation.
      */
-    private int animationCount;
+    private volatile int animationCount;
 
 
     /**
@@ -92,20 +158,21 @@ public class BoardViewer extends JPanel {
         setBackground(Color.white);
         animationCount = 0;
         imageFactory = new ImageFactory();
+        engine.addObserver(this);
     }
 
     /**
      * @return The board width measured in cells, >= 0.
      */
     private int worldWidth() {
-        return engine.boardWidth();
+        return engine.getSnapshot().getWidth();
     }
 
     /**
      * @return The board height measured in cells, >= 0.
      */
     private int worldHeight() {
-        return engine.boardHeight();
+        return engine.getSnapshot().getHeight();
     }
 
     /**
@@ -159,40 +226,161 @@ public class BoardViewer extends JPanel {
     @Override
     public void paint(Graphics g) {
         Dimension d = getSize();
-        Graphics2D g2 = createGraphics2D(d.width, d.height);
-        drawCells(g2);
-        g2.dispose();
-        g.drawImage(bimg, 0, 0, this);
+        synchronized (frameLock) {
+            if (!renderedByLoop || !fits(bimg, d)) {
+                updateFrame(d);
+            }
+            g.drawImage(bimg, 0, 0, this);
+        }
     }
 
     /**
-     * Create a piece of graphics to display the board on.
-     * @param w desired width in pixels
-     * @param h desired height in pixels
-     * @return The graphics to display the board.
-     */
-    private Graphics2D createGraphics2D(int w, int h) {
-        Graphics2D g2 = null;
-        if (bimg == null
-                || bimg.getWidth() != w
-                || bimg.getHeight() != h) {
-            bimg = (BufferedImage) createImage(w, h);
+     * Bring the frame up to date, and ask Swing to repaint. Can be invoked
+     * from any thread.
+     */
+    public void renderFrame() {
+        Dimension d = getSize();
+        synchronized (frameLock) {
+            updateFrame(d);
         }
-        g2 = bimg.createGraphics();
+        repaint();
+    }
+
+    /**
+     * Indicate whether frames are rendered by a game loop, in which case
+     * painting only shows the latest frame rendered.
+     * @param b True iff renderFrame is invoked regularly.
+     */
+    public void setRenderedByLoop(boolean b) {
+        renderedByLoop = b;
+        if (!b) {
+            repaint();
+        }
+    }
+
+    /**
+     * Record the cells changed according to the engine, so that they are
+     * redrawn in the next frame.
+     * @see java.util.Observer
+     * @param observable the engine
+     * @param rest the summary of the changes; if absent, the full board
+     *             is redrawn.
+     */
+    public void update(Observable observable, Object rest) {
+        synchronized (changeLock) {
+            if (rest instanceof ChangeSummary) {
+                ChangeSummary changes = (ChangeSummary) rest;
+                fullRedraw = fullRedraw || changes.allCellsTouched();
+                for (int i = 0; i < changes.touchedCount(); i++) {
+                    reportedCells.set(changes.touchedIndex(i));
+                }
+            } else {
+                fullRedraw = true;
+            }
+        }
+    }
+
+    /**
+     * @param img An image, possibly null.
+     * @param d The required dimension.
+     * @return true iff the image exists and has the required dimension.
+     */
+    private static boolean fits(BufferedImage img, Dimension d) {
+        return img != null
+            && img.getWidth() == Math.max(1, d.width)
+            && img.getHeight() == Math.max(1, d.height);
+    }
+
+    /**
+     * Bring the frame buffer up to date: redraw the full board if needed,
+     * and otherwise only the changed cells. Invoked holding the frame lock.
+     * The frame is drawn from a single snapshot of the game, so drawing
+     * doesn't hold the engine's lock. The snapshot is taken after the
+     * reported changes have been collected, so that it covers all of them.
+     * @param d The dimension of the frame.
+     */
+    private void updateFrame(Dimension d) {
+        boolean full;
+        synchronized (changeLock) {
+            full = fullRedraw;
+            fullRedraw = false;
+            dirty.or(reportedCells);
+            reportedCells.clear();
+        }
+        GameSnapshot snapshot = engine.getSnapshot();
+        int w = snapshot.getWidth();
+        int h = snapshot.getHeight();
+        drawnWidth = w;
+        full = full || !fits(bimg, d)
+            || drawnCodes == null || drawnCodes.length != w * h;
+        if (!fits(bimg, d)) {
+            bimg = createFrameImage(Math.max(1, d.width),
+                    Math.max(1, d.height));
+        }
+        int dx = snapshot.getPlayerLastDx();
+        int dy = snapshot.getPlayerLastDy();
+        if (animationCount != drawnAnimation
+                || dx != drawnDx || dy != drawnDy) {
+            dirty.or(animatedCells);
+            drawnAnimation = animationCount;
+            drawnDx = dx;
+            drawnDy = dy;
+        }
+        Graphics2D g2 = bimg.createGraphics();
         g2.setBackground(getBackground());
-        g2.clearRect(0, 0, w, h);
         g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
                 RenderingHints.VALUE_ANTIALIAS_ON);
-        return g2;
+        final float strokeWidth = 5.0f;
+        g2.setStroke(new BasicStroke(strokeWidth));
+        if (full) {
+            if (drawnCodes == null || drawnCodes.length != w * h) {
+                drawnCodes = new char[w * h];
+            }
+            snapshot.copyGuestCodes(drawnCodes);
+            g2.clearRect(0, 0, bimg.getWidth(), bimg.getHeight());
+            animatedCells.clear();
+            for (int i = 0; i < drawnCodes.length; i++) {
+                drawCell(i % w, i / w, drawnCodes[i], g2);
+            }
+        } else {
+            for (int i = dirty.nextSetBit(0); i >= 0 && i < w * h;
+                    i = dirty.nextSetBit(i + 1)) {
+                int x = i % w;
+                int y = i / w;
+                drawnCodes[i] = snapshot.getGuestCode(x, y);
+                g2.clearRect((cellWidth() + CELL_HGAP) * x,
+                        (cellHeight() + CELL_VGAP) * y,
+                        cellWidth() + CELL_HGAP, cellHeight() + CELL_VGAP);
+                drawCell(x, y, drawnCodes[i], g2);
+            }
+        }
+        dirty.clear();
+        g2.dispose();
+    }
+
+    /**
+     * Create an image to display the board on.
+     * @param w desired width in pixels
+     * @param h desired height in pixels
+     * @return The image to display the board.
+     */
+    private BufferedImage createFrameImage(int w, int h) {
+        BufferedImage result = (BufferedImage) createImage(w, h);
+        if (result == null) {
+            // not displayable, e.g. when painting off-screen.
+            result = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        }
+        return result;
     }
 
     /**
      * Draw an individual cell.
      * @param x x-coordinate
      * @param y y-coordinate
+     * @param code the guest code of the cell
      * @param g2 Graphics to draw on
      */
-    private void drawCell(int x, int y, Graphics2D g2) {
+    private void drawCell(int x, int y, char code, Graphics2D g2) {
         Dimension dim = new Dimension(cellWidth(), cellHeight());
         Point loc = new Point(
                 CELL_HGAP / 2 + (cellWidth() + CELL_HGAP) * x,
@@ -202,22 +390,23 @@ public class BoardViewer extends JPanel {
         g2.draw(rect);
         Color fill = null;
         Image img = null;
+        int i = y * drawnWidth + x;
+        animatedCells.clear(i);
 
-        switch (engine.getGuestCode(x, y)) {
+        switch (code) {
         case Guest.WALL_TYPE:
             fill = Color.ORANGE;
             break;
         case Guest.PLAYER_TYPE:
-            img = imageFactory.player(
-                    engine.getPlayerLastDx(),
-                    engine.getPlayerLastDy(),
-                    animationCount);
+            img = imageFactory.player(drawnDx, drawnDy, drawnAnimation);
+            animatedCells.set(i);
             break;
         case Guest.FOOD_TYPE:
             fill = Color.GREEN;
             break;
         case Guest.MONSTER_TYPE:
-            img = imageFactory.monster(animationCount);
+            img = imageFactory.monster(drawnAnimation);
+            animatedCells.set(i);
             break;
         case Guest.EMPTY_TYPE:
             fill = Color.BLACK;
@@ -236,28 +425,20 @@ public class BoardViewer extends JPanel {
     }
 
     /**
-     * Draw all cells on the board.
-     * @param g2 The graphics to draw the cells on.
+     * Increment the animation counter, and redisplay,
+     * so that the next animation becomes visible.
      */
-    private void drawCells(Graphics2D g2) {
-        final float strokeWidth = 5.0f;
-        g2.setStroke(new BasicStroke(strokeWidth));
-
-        for (int x = 0; x < worldWidth(); x++) {
-            for (int y = 0; y < worldHeight(); y++) {
-                drawCell(x, y, g2);
-            }
-        }
+    public void nextAnimation() {
+        advanceAnimation();
+        repaint();
     }
 
     /**
-     * Increment the animation counter, and redisplay,
-     * so that the next animation becomes visible.
+     * Increment the animation counter, without redisplaying.
      */
-    public void nextAnimation() {
+    void advanceAnimation() {
         animationCount = (animationCount + 1)
         % (imageFactory.monsterAnimationCount()
                 * imageFactory.playerAnimationCount());
-        repaint();
     }
 }
@@ -0,0 +1,101 @@
+package jpacman.controller;
+
+import java.util.BitSet;
+
+import jpacman.model.Bitboards;
+import jpacman.model.Board;
+import jpacman.model.Cell;
+import jpacman.model.DistanceMap;
+import jpacman.model.Engine;
+import jpacman.model.Monster;
+import jpacman.model.MonsterMoves;
+
+/**
+ * Monster mover that lets every monster chase the player along a shortest
+ * path. Rather than searching a path for each monster, the mover keeps a
+ * single map of distances to the player, which is updated incrementally
+ * for the cells reported as changed and for the moves of the player. A
+ * monster then just steps to a neighbouring cell that is one step closer
+ * to the player.
+ * <p>
+ * Monsters that cannot reach the player stay where they are.
+ */
+public class ChasingMonsterMover extends PlayerChasingController {
+
+    /**
+     * The four directions a monster can step in, as {dx, dy}.
+     */
+    private static final int[][] DIRECTIONS =
+        {{0, -1}, {0, 1}, {-1, 0}, {1, 0}};
+
+    /**
+     * Distances to the player, as of the last batch of moves planned.
+     */
+    private DistanceMap distances;
+
+    /**
+     * Start a new mover with the given engine.
+     *
+     * @param e
+     *            Engine used.
+     */
+    public ChasingMonsterMover(Engine e) {
+        super(e);
+    }
+
+    /**
+     * Bring the distances up to date: compute them afresh for a new
+     * board, and otherwise update them for the changed cells and the
+     * current position of the player.
+     *
+     * @see PlayerChasingController#refresh(Board, Bitboards, BitSet, boolean,
+     *      Cell)
+     */
+    @Override
+    protected void refresh(Board board, Bitboards view, BitSet changed,
+            boolean replaced, Cell player) {
+        if (distances == null || distances.getBoard() != board || replaced) {
+            distances = new DistanceMap(board, view);
+            distances.computeFrom(player.getX(), player.getY());
+        } else {
+            int w = board.getWidth();
+            for (int i = changed.nextSetBit(0); i >= 0;
+                    i = changed.nextSetBit(i + 1)) {
+                distances.cellChanged(i % w, i / w);
+            }
+            distances.moveSource(player.getX(), player.getY());
+        }
+    }
+
+    /**
+     * Add a step bringing the monster one cell closer to the player, if
+     * there is one.
+     *
+     * @see PlayerChasingController#planStep(Monster, Cell, Cell,
+     *      MonsterMoves)
+     */
+    @Override
+    protected void planStep(Monster monster, Cell location, Cell player,
+            MonsterMoves moves) {
+        int x = location.getX();
+        int y = location.getY();
+        int d = distances.distance(x, y);
+        boolean planned = false;
+        for (int i = 0; d > 0 && !planned && i < DIRECTIONS.length; i++) {
+            int dx = DIRECTIONS[i][0];
+            int dy = DIRECTIONS[i][1];
+            if (distances.distance(x + dx, y + dy) == d - 1) {
+                moves.add(monster, dx, dy);
+                planned = true;
+            }
+        }
+    }
+
+    /**
+     * @return The distances to the player as used for the last batch, or
+     *         null if no batch has been planned yet.
+     */
+    DistanceMap getDistances() {
+        return distances;
+    }
+}
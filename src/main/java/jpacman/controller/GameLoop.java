@@ -0,0 +1,258 @@
+package jpacman.controller;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single scheduler driving all timed activity of a game, such as moving
+ * monsters and animating the board, at a fixed logical tick rate.
+ * <p>
+ * Ticks are generated on a thread of its own, so the listeners do not run
+ * on the Swing event dispatch thread. Each listener is subscribed with an
+ * interval, and is invoked at every tick whose number is a multiple of that
+ * interval, in order of subscription.
+ * <p>
+ * As with a Swing timer, the first tick is run one period after the loop
+ * is started. Tick deadlines are computed from the start time rather than
+ * from the end of the previous tick. If ticks are late, e.g. because a
+ * listener was slow, the missed ticks are run back to back to catch up; if
+ * the loop falls more than MAX_CATCH_UP ticks behind, the backlog is
+ * dropped and the loop continues from the current time.
+ */
+public class GameLoop {
+
+    /**
+     * The default period of a tick, in milliseconds.
+     */
+    public static final int DEFAULT_PERIOD = AbstractMonsterController.DELAY;
+
+    /**
+     * Maximum number of late ticks that are run to catch up.
+     */
+    public static final int MAX_CATCH_UP = 5;
+
+    /**
+     * A listener together with its interval.
+     */
+    private static final class Subscription {
+        /**
+         * The listener to be invoked.
+         */
+        private final ITickListener listener;
+
+        /**
+         * Number of ticks between two invocations.
+         */
+        private final int interval;
+
+        /**
+         * @param l The listener.
+         * @param i The interval, at least one.
+         */
+        Subscription(ITickListener l, int i) {
+            listener = l;
+            interval = i;
+        }
+    }
+
+    /**
+     * The subscriptions, safe to modify while a tick is in progress.
+     */
+    private final CopyOnWriteArrayList<Subscription> subscriptions =
+        new CopyOnWriteArrayList<Subscription>();
+
+    /**
+     * Period of a tick, in nanoseconds.
+     */
+    private final long periodNanos;
+
+    /**
+     * The thread generating ticks, null if the loop is not running.
+     */
+    private Thread thread;
+
+    /**
+     * Number of the next tick to be run.
+     */
+    private volatile long tickCount = 0;
+
+    /**
+     * Number of ticks dropped because the loop was too far behind.
+     */
+    private volatile long droppedTicks = 0;
+
+    /**
+     * Create a loop with the default tick period.
+     */
+    public GameLoop() {
+        this(DEFAULT_PERIOD);
+    }
+
+    /**
+     * Create a loop with a given tick period.
+     *
+     * @param periodMillis
+     *            The period of a tick in milliseconds, positive.
+     */
+    public GameLoop(int periodMillis) {
+        assert periodMillis > 0;
+        periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMillis);
+    }
+
+    /**
+     * @return The period of a tick in milliseconds.
+     */
+    public int getPeriod() {
+        return (int) TimeUnit.NANOSECONDS.toMillis(periodNanos);
+    }
+
+    /**
+     * Subscribe a listener, replacing its earlier subscription if any.
+     *
+     * @param l
+     *            The listener, not null.
+     * @param interval
+     *            Number of ticks between two invocations, at least one.
+     */
+    public void subscribe(ITickListener l, int interval) {
+        assert l != null;
+        assert interval > 0;
+        unsubscribe(l);
+        subscriptions.add(new Subscription(l, interval));
+    }
+
+    /**
+     * Remove a listener. Nothing happens if it wasn't subscribed.
+     *
+     * @param l
+     *            The listener to be removed.
+     */
+    public void unsubscribe(ITickListener l) {
+        subscriptions.removeIf(s -> s.listener == l);
+    }
+
+    /**
+     * @param l
+     *            A listener.
+     * @return true iff the listener is subscribed.
+     */
+    public boolean isSubscribed(ITickListener l) {
+        return subscriptions.stream().anyMatch(s -> s.listener == l);
+    }
+
+    /**
+     * Start generating ticks, unless the loop is running already.
+     */
+    public synchronized void start() {
+        if (thread == null) {
+            thread = new Thread(this::run, "GameLoop");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        assert isRunning();
+    }
+
+    /**
+     * Stop generating ticks, waiting for a tick in progress to finish
+     * unless invoked from a listener. Nothing happens if the loop isn't
+     * running.
+     */
+    public void stop() {
+        Thread t;
+        synchronized (this) {
+            t = thread;
+            thread = null;
+        }
+        if (t != null) {
+            t.interrupt();
+            if (t != Thread.currentThread()) {
+                boolean interrupted = false;
+                while (t.isAlive()) {
+                    try {
+                        t.join();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        assert !isRunning();
+    }
+
+    /**
+     * @return true iff the loop is generating ticks.
+     */
+    public synchronized boolean isRunning() {
+        return thread != null;
+    }
+
+    /**
+     * @return The number of ticks run so far.
+     */
+    public long getTick() {
+        return tickCount;
+    }
+
+    /**
+     * @return The number of ticks dropped because the loop was too late.
+     */
+    public long getDroppedTicks() {
+        return droppedTicks;
+    }
+
+    /**
+     * @return true iff the loop run by the current thread should go on.
+     */
+    private synchronized boolean keepRunning() {
+        return thread == Thread.currentThread();
+    }
+
+    /**
+     * Body of the loop thread: wait for the deadline of the next tick, and
+     * run the ticks that are due.
+     */
+    private void run() {
+        long deadline = System.nanoTime() + periodNanos;
+        while (keepRunning()) {
+            long now = System.nanoTime();
+            if (now < deadline) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(deadline - now);
+                } catch (InterruptedException e) {
+                    // stop() was invoked; keepRunning will tell.
+                }
+                continue;
+            }
+            long late = (now - deadline) / periodNanos;
+            if (late > MAX_CATCH_UP) {
+                droppedTicks += late - MAX_CATCH_UP;
+                deadline += (late - MAX_CATCH_UP) * periodNanos;
+            }
+            runTick();
+            deadline += periodNanos;
+        }
+    }
+
+    /**
+     * Run a single tick, invoking the listeners that are due. The loop is
+     * protected against failing listeners: a listener throwing an exception
+     * is reported and the remaining listeners are still invoked, just as
+     * the Swing timers used before did.
+     */
+    void runTick() {
+        long t = tickCount;
+        for (Subscription s : subscriptions) {
+            if (t % s.interval == 0) {
+                try {
+                    s.listener.tick(t);
+                } catch (RuntimeException | AssertionError e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        tickCount = t + 1;
+    }
+}
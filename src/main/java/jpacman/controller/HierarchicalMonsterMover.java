@@ -0,0 +1,88 @@
+package jpacman.controller;
+
+import java.util.BitSet;
+
+import jpacman.model.Bitboards;
+import jpacman.model.Board;
+import jpacman.model.Cell;
+import jpacman.model.Engine;
+import jpacman.model.HierarchicalPathfinder;
+import jpacman.model.Monster;
+import jpacman.model.MonsterMoves;
+
+/**
+ * Monster mover for very large maps, letting every monster head for the
+ * player along a path found by a hierarchical pathfinder. Unlike the
+ * chasing mover, it doesn't maintain distances for the whole board, so
+ * the cost of a batch doesn't grow with the size of the board, but with
+ * the number of monsters.
+ * <p>
+ * Monsters that cannot reach the player stay where they are.
+ *
+ * @see ChasingMonsterMover
+ */
+public class HierarchicalMonsterMover extends PlayerChasingController {
+
+    /**
+     * The pathfinder for the current board.
+     */
+    private HierarchicalPathfinder pathfinder;
+
+    /**
+     * Start a new mover with the given engine.
+     *
+     * @param e
+     *            Engine used.
+     */
+    public HierarchicalMonsterMover(Engine e) {
+        super(e);
+    }
+
+    /**
+     * Create a pathfinder for a new board, and otherwise tell it about the
+     * changed cells.
+     *
+     * @see PlayerChasingController#refresh(Board, Bitboards, BitSet, boolean,
+     *      Cell)
+     */
+    @Override
+    protected void refresh(Board board, Bitboards view, BitSet changed,
+            boolean replaced, Cell player) {
+        if (pathfinder == null || pathfinder.getBoard() != board
+                || replaced) {
+            pathfinder = new HierarchicalPathfinder(board, view);
+        } else {
+            int w = board.getWidth();
+            for (int i = changed.nextSetBit(0); i >= 0;
+                    i = changed.nextSetBit(i + 1)) {
+                pathfinder.cellChanged(i % w, i / w);
+            }
+        }
+    }
+
+    /**
+     * Add the first step of the path toward the player, if there is one.
+     *
+     * @see PlayerChasingController#planStep(Monster, Cell, Cell,
+     *      MonsterMoves)
+     */
+    @Override
+    protected void planStep(Monster monster, Cell location, Cell player,
+            MonsterMoves moves) {
+        int next = pathfinder.nextStep(location.getX(), location.getY(),
+                player.getX(), player.getY());
+        if (next != HierarchicalPathfinder.NO_STEP) {
+            int w = location.getBoard().getWidth();
+            moves.add(monster, next % w - location.getX(),
+                    next / w - location.getY());
+        }
+    }
+
+    /**
+     * @return The pathfinder used for the last batch, or null if no batch
+     *         has been planned yet.
+     */
+    HierarchicalPathfinder getPathfinder() {
+        return pathfinder;
+    }
+}
@@ -1,23 +1,30 @@
 package jpacman.controller;
 
+import java.util.SplittableRandom;
+
+import jpacman.model.MonsterMoves;
+
 /**
  * Interface for a controller which generates a monster move at regular
- * intervals.
+ * intervals. The intervals are set by whoever invokes doTick; a controller
+ * can be subscribed to a game loop directly, in which case every tick
+ * results in a doTick.
  * <p>
  *
  * @author Arie van Deursen, 3 September, 2003
  * @version $Id: IMonsterController.java,v 1.3 2008/02/03 18:57:59 arie Exp $
  */
 
-public interface IMonsterController {
+public interface IMonsterController extends ITickListener {
 
     /**
-     * Start the timer.
+     * Prepare for moving monsters, picking up the monsters of the
+     * (possibly restarted) game.
      */
     void start();
 
     /**
-     * Stop the timer.
+     * Stop moving monsters until the next start.
      */
     void stop();
 
@@ -27,4 +34,38 @@ public interface IMonsterController {
      */
     void doTick();
 
+    /**
+     * Plan the moves of all monsters for one tick, without carrying them
+     * out. Controllers that move monsters in batches let the engine apply
+     * the planned moves in one go. By default, nothing is planned.
+     *
+     * @param moves
+     *            The batch to which the planned moves are added.
+     */
+    default void planMoves(MonsterMoves moves) {
+    }
+
+    /**
+     * Make all random choices with the given source from now on, for
+     * example a source created from a seed, to repeat the moves of an
+     * earlier run. The source should not be shared with other
+     * controllers. By default, no random choices are made and the source
+     * is ignored.
+     *
+     * @param source
+     *            The source of random choices.
+     */
+    default void setRandomizer(SplittableRandom source) {
+    }
+
+    /**
+     * Conduct a monster move at a game loop tick.
+     *
+     * @param tickNumber
+     *            Number of the tick, which is ignored.
+     */
+    default void tick(long tickNumber) {
+        doTick();
+    }
+
 }
@@ -0,0 +1,21 @@
+package jpacman.controller;
+
+/**
+ * Interface for parties that want to be invoked at every logical tick of a
+ * game loop.
+ *
+ * @see GameLoop
+ */
+public interface ITickListener {
+
+    /**
+     * React to a logical tick. Invoked on the game loop thread, so
+     * implementations that touch Swing components should hand their
+     * results over to the event dispatch thread.
+     *
+     * @param tickNumber
+     *            Number of the tick, counting from zero.
+     */
+    void tick(long tickNumber);
+
+}
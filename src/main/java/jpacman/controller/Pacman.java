@@ -1,19 +1,44 @@
 package jpacman.controller;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
+import jpacman.model.CompiledMap;
 import jpacman.model.Engine;
+import jpacman.model.EventRecorder;
+import jpacman.model.Game;
+import jpacman.model.MapFile;
+import jpacman.model.MapSource;
 
 /**
  * Top level Pacman class. The main method creates the engine, the GUI, and the
  * controllers; the methods of the Pacman object created get invoked by the GUI
  * and the controllers.
+ * <p>
+ * A single game loop drives both the monster controller and the animator,
+ * so that all timed activity happens at the same logical tick rate and off
+ * the Swing event dispatch thread. The engine coalesces its notifications,
+ * which the loop flushes once per tick.
  *
  * @author Arie van Deursen; Aug 31, 2003
  * @version $Id: Pacman.java,v 1.6 2008/02/03 19:43:38 arie Exp $
  */
 public class Pacman {
 
+    /**
+     * Number of squares above which a map file is loaded on a compact
+     * board.
+     */
+    static final long COMPACT_CELLS = 1L << 20;
+
+    /**
+     * Number of ticks between two flushes of the event log, if any.
+     */
+    static final int LOG_FLUSH_INTERVAL = 20;
+
     /**
      * The model of the game.
      */
@@ -34,6 +59,17 @@ public class Pacman {
      */
     private Animator theAnimator;
 
+    /**
+     * The loop generating the ticks for the monster controller and the
+     * animator.
+     */
+    private GameLoop theLoop;
+
+    /**
+     * The recorder of the session, or null.
+     */
+    private EventRecorder recorder;
+
     /**
      * Create a default new game, containing an egnine, a gui, and a monster
      * driver.
@@ -74,8 +110,11 @@ public class Pacman {
         assert m != null;
         theEngine = e;
         monsterTicker = m;
+        theLoop = new GameLoop();
+        theEngine.setCoalescing(true);
+        theLoop.subscribe(tick -> theEngine.flushChanges(), 1);
         theViewer = new PacmanUI(theEngine, this);
-        theAnimator = new Animator(theViewer.getBoardViewer());
+        theAnimator = new Animator(theViewer.getBoardViewer(), theLoop);
         theViewer.display();
         assert invariant();
     }
@@ -85,7 +124,8 @@ public class Pacman {
      * @return True iff selected instance variables all aren't null.
      */
     protected boolean invariant() {
-        return theEngine != null && monsterTicker != null && theViewer != null;
+        return theEngine != null && monsterTicker != null && theViewer != null
+            && theLoop != null;
     }
 
     /**
@@ -95,6 +135,8 @@ public class Pacman {
         assert invariant();
         theEngine.start();
         monsterTicker.start();
+        theLoop.subscribe(monsterTicker,
+                AbstractMonsterController.MOVE_INTERVAL);
         theAnimator.start();
         assert invariant();
     }
@@ -104,6 +146,7 @@ public class Pacman {
      */
     public void quit() {
         assert invariant();
+        theLoop.unsubscribe(monsterTicker);
         monsterTicker.stop();
         theEngine.quit();
         theAnimator.stop();
@@ -111,12 +154,40 @@ public class Pacman {
     }
 
 
+    /**
+     * Record the session from now on, tagging every call with the tick of
+     * the game loop, and flushing the log regularly so that it survives a
+     * crash. The log is closed on exit.
+     *
+     * @param r
+     *            A recorder not used before.
+     */
+    public void record(EventRecorder r) {
+        assert invariant();
+        assert r != null && recorder == null;
+        recorder = r;
+        r.setTick(theLoop.getTick());
+        theEngine.setRecorder(r);
+        theLoop.subscribe(tick -> {
+            r.setTick(tick);
+            if (tick % LOG_FLUSH_INTERVAL == 0) {
+                r.flush();
+            }
+        }, 1);
+        assert invariant();
+    }
+
     /**
      * Terminate the game.
      */
     public void exit() {
         assert invariant();
         quit();
+        theLoop.stop();
+        if (recorder != null) {
+            theEngine.setRecorder(null);
+            recorder.close();
+        }
         theViewer.dispose();
         // No need for a hard exit using, e.g., System.exit(0):
         // we'd like to be able to run a series of pacman's in a single
@@ -129,6 +200,7 @@ public class Pacman {
      */
     public void undo() {
         assert invariant();
+        theLoop.unsubscribe(monsterTicker);
         monsterTicker.stop();
         theEngine.quit();
         theEngine.undo();
@@ -171,6 +243,13 @@ public class Pacman {
         assert invariant();
     }
 
+    /**
+     * @return The loop driving the timed activity of this game.
+     */
+    public GameLoop getLoop() {
+        return theLoop;
+    }
+
     /**
      * @return the Engine of this pacman game
      */
@@ -179,17 +258,40 @@ public class Pacman {
     }
 
     /**
-     * Start me up.
+     * Start me up, on the default map or on the map in the given file,
+     * which is either a text map or a compiled map. Maps with more than
+     * COMPACT_CELLS squares are loaded on a compact board. The session is
+     * recorded if a log file is given as well.
      *
      * @param args
-     *                Are ignored.
+     *                An optional map file, optionally followed by an event
+     *                log file to be written; further arguments are ignored.
      * @throws IOException
-     *                 If images can't be found.
+     *                 If images or the map file can't be read, or the log
+     *                 file can't be created.
      */
     public static void main(String[] args) throws IOException {
-        if (args.length > 0) {
-            System.err.println("Ignoring command line arguments.");
+        if (args.length > 2) {
+            System.err.println("Ignoring extra command line arguments.");
+        }
+        Pacman pacman;
+        if (args.length == 0) {
+            pacman = new Pacman();
+        } else {
+            Path file = Paths.get(args[0]);
+            MapSource map;
+            if (file.toString().endsWith(CompiledMap.SUFFIX)) {
+                map = CompiledMap.read(file);
+            } else {
+                map = MapFile.open(file);
+            }
+            boolean compact =
+                (long) map.getWidth() * map.getHeight() > COMPACT_CELLS;
+            pacman = new Pacman(new Engine(new Game(map, compact)));
+        }
+        if (args.length > 1) {
+            pacman.record(new EventRecorder(new BufferedOutputStream(
+                    Files.newOutputStream(Paths.get(args[1])))));
         }
-        new Pacman();
     }
 }
@@ -19,7 +19,9 @@ import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 
+import jpacman.model.ChangeSummary;
 import jpacman.model.Engine;
 
 /**
@@ -216,22 +218,47 @@ public class PacmanUI extends JFrame implements KeyListener, Observer {
     }
 
     /**
-     * Redraw the board and refresh status related information.
+     * Redraw the board and refresh status related information. If the
+     * engine passes a summary of the changes, only what changed is
+     * refreshed. Notifications may arrive from the game loop thread, in
+     * which case the status fields are updated on the event dispatch thread.
      * @see java.util.Observable
      * @param observable the one being watched
-     * @param rest remaining info
+     * @param rest remaining info, possibly a ChangeSummary
      */
     public void update(Observable observable, Object rest) {
-        boardViewer.repaint();
-        updateStatus();
-        updateFood();
+        ChangeSummary changes = null;
+        if (rest instanceof ChangeSummary) {
+            changes = (ChangeSummary) rest;
+        }
+        if (changes == null || changes.allCellsTouched()
+                || changes.touchedCount() > 0) {
+            boardViewer.repaint();
+        }
+        boolean status = changes == null || changes.stateChanged();
+        boolean food = changes == null || changes.getScoreDelta() != 0;
+        if (status || food) {
+            Runnable refresh = () -> {
+                if (status) {
+                    updateStatus();
+                }
+                if (food) {
+                    updateFood();
+                }
+            };
+            if (SwingUtilities.isEventDispatchThread()) {
+                refresh.run();
+            } else {
+                SwingUtilities.invokeLater(refresh);
+            }
+        }
     }
 
     /**
      * Update the display of the total amount of food eaten.
      */
     private void updateFood() {
-        int amount = engine.getFoodEaten();
+        int amount = engine.getSnapshot().getFoodEaten();
         eatenField.setText(Integer.toString(amount));
     }
 
@@ -240,20 +267,24 @@ public class PacmanUI extends JFrame implements KeyListener, Observer {
      */
     private void updateStatus() {
         String text = null;
-        if (engine.inStartingState()) {
+        switch (engine.getSnapshot().getState()) {
+        case STARTING:
             text = "Press start to play";
-        }
-        if (engine.inPlayingState()) {
+            break;
+        case PLAYING:
             text = "Playing - use arrow keys";
-        }
-        if (engine.inDiedState()) {
+            break;
+        case DIED:
             text = "You died!";
-        }
-        if (engine.inWonState()) {
+            break;
+        case WON:
             text = "You won!";
-        }
-        if (engine.inHaltedState()) {
+            break;
+        case HALTED:
             text = "Suspended";
+            break;
+        default:
+            break;
         }
         assert text != null : "Illegal state";
         statusField.setText(text);
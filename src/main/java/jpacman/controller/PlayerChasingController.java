@@ -0,0 +1,253 @@
+package jpacman.controller;
+
+import java.util.BitSet;
+import java.util.Observable;
+import java.util.Observer;
+
+import jpacman.model.Bitboards;
+import jpacman.model.Board;
+import jpacman.model.Cell;
+import jpacman.model.ChangeSummary;
+import jpacman.model.Engine;
+import jpacman.model.Monster;
+import jpacman.model.MonsterMoves;
+
+/**
+ * A controller for monsters heading for the player, using some structure
+ * derived from the board to find their way. The controller observes the
+ * engine, and collects the cells reported as changed, so that subclasses
+ * can bring their structure up to date before every batch of moves
+ * rather than rebuilding it.
+ * <p>
+ * The engine is only locked while the controller takes in the changes and
+ * the positions of the player and the monsters. Subclasses don't read the
+ * board itself: they read a private copy of its bit sets, which is brought
+ * up to date for the changed cells while the engine is locked. So
+ * bringing their structure up to date and planning the steps, which may
+ * take a search of the whole board, doesn't hold up the player or the
+ * viewers. The moves are planned for the positions taken in, so they may
+ * lag behind a player that moved meanwhile.
+ * <p>
+ * Changes not yet reported by a coalescing engine are read from it
+ * directly, without having them delivered to the other observers; they
+ * are reported again later, so subclasses may be told about a cell that
+ * didn't change since.
+ * <p>
+ * Moves are planned by a single thread at a time, such as a game loop.
+ */
+public abstract class PlayerChasingController
+    extends AbstractMonsterController implements Observer {
+
+    /**
+     * Cells reported as changed since the last batch, by index. Guarded
+     * by the engine's lock.
+     */
+    private BitSet changedCells = new BitSet();
+
+    /**
+     * True iff the board was replaced since the last batch. Guarded by
+     * the engine's lock.
+     */
+    private boolean boardReplaced = false;
+
+    /**
+     * Cells changed since the previous refresh, as taken in for the
+     * current one.
+     */
+    private BitSet refreshedCells = new BitSet();
+
+    /**
+     * Copy of the bit sets of the board, as of the last batch planned.
+     */
+    private Bitboards view;
+
+    /**
+     * The board the copy of the bit sets was made of.
+     */
+    private Board viewBoard;
+
+    /**
+     * The monsters on the player's board, and their cells, as taken in
+     * for the current batch; plannedCount of them.
+     */
+    private Monster[] plannedMonsters = new Monster[0];
+
+    /**
+     * The cells of the monsters planned for.
+     */
+    private Cell[] plannedCells = new Cell[0];
+
+    /**
+     * Number of monsters planned for in the current batch.
+     */
+    private int plannedCount;
+
+    /**
+     * Create a new controller using the given game engine.
+     *
+     * @param e
+     *            The underlying model of the game.
+     */
+    public PlayerChasingController(Engine e) {
+        super(e);
+    }
+
+    /**
+     * Start observing the engine, so that board changes are picked up.
+     *
+     * @see jpacman.controller.IMonsterController#start()
+     */
+    @Override
+    public synchronized void start() {
+        super.start();
+        synchronized (getEngine()) {
+            // changes made while stopped were missed: start afresh.
+            changedCells.clear();
+            boardReplaced = true;
+            getEngine().addObserver(this);
+        }
+    }
+
+    /**
+     * Stop observing the engine, so that a stopped controller doesn't
+     * collect changes.
+     *
+     * @see jpacman.controller.IMonsterController#stop()
+     */
+    @Override
+    public synchronized void stop() {
+        getEngine().deleteObserver(this);
+        super.stop();
+    }
+
+    /**
+     * Record the cells changed according to the engine. Invoked by the
+     * engine, holding its lock.
+     *
+     * @see java.util.Observer
+     * @param observable
+     *            the engine
+     * @param rest
+     *            the summary of the changes; if absent, the board is
+     *            considered replaced.
+     */
+    public void update(Observable observable, Object rest) {
+        if (rest instanceof ChangeSummary) {
+            ChangeSummary changes = (ChangeSummary) rest;
+            boardReplaced = boardReplaced || changes.allCellsTouched();
+            for (int i = 0; i < changes.touchedCount(); i++) {
+                changedCells.set(changes.touchedIndex(i));
+            }
+        } else {
+            boardReplaced = true;
+        }
+    }
+
+    /**
+     * Bring the structure up to date, and plan a step toward the player
+     * for every monster on the player's board.
+     *
+     * @param moves
+     *            The batch to which the moves are added.
+     * @see jpacman.controller.IMonsterController#planMoves(MonsterMoves)
+     */
+    @Override
+    public void planMoves(MonsterMoves moves) {
+        Engine engine = getEngine();
+        Cell player;
+        boolean replaced;
+        synchronized (engine) {
+            if (getMonsters() == null || getMonsters().isEmpty()) {
+                return;
+            }
+            // read changes held back by a coalescing engine, leaving
+            // their delivery to the other observers for the frame.
+            boardReplaced = engine.addPendingChanges(changedCells)
+                || boardReplaced;
+            player = engine.getPlayer().getLocation();
+            Board board = player.getBoard();
+            replaced = boardReplaced || board != viewBoard;
+            if (replaced) {
+                view = board.getBitboards().copy();
+                viewBoard = board;
+            } else {
+                view.copySquares(board.getBitboards(), changedCells);
+            }
+            BitSet taken = changedCells;
+            changedCells = refreshedCells;
+            refreshedCells = taken;
+            changedCells.clear();
+            boardReplaced = false;
+            takeMonsters(board);
+        }
+        refresh(viewBoard, view, refreshedCells, replaced, player);
+        for (int i = 0; i < plannedCount; i++) {
+            planStep(plannedMonsters[i], plannedCells[i], player, moves);
+            plannedMonsters[i] = null;
+            plannedCells[i] = null;
+        }
+    }
+
+    /**
+     * Take in the monsters on the given board and their cells. Invoked
+     * holding the engine's lock.
+     *
+     * @param board
+     *            The player's board
+     */
+    private void takeMonsters(Board board) {
+        int n = getMonsters().size();
+        if (plannedMonsters.length < n) {
+            plannedMonsters = new Monster[n];
+            plannedCells = new Cell[n];
+        }
+        plannedCount = 0;
+        for (Monster monster : getMonsters()) {
+            Cell location = monster.getLocation();
+            if (location != null && location.getBoard() == board) {
+                plannedMonsters[plannedCount] = monster;
+                plannedCells[plannedCount] = location;
+                plannedCount++;
+            }
+        }
+    }
+
+    /**
+     * Bring the structure used for finding the way up to date. Invoked
+     * without holding the engine's lock: the contents of the board are to
+     * be read from the given bit sets only.
+     *
+     * @param board
+     *            The current board
+     * @param view
+     *            Copy of the bit sets of the board, up to date for the
+     *            changed cells; the same object until the board is
+     *            replaced
+     * @param changed
+     *            Indices of the cells changed since the previous
+     *            invocation, y * width + x
+     * @param replaced
+     *            True iff the board or the copy of its bit sets may have
+     *            been replaced since the previous invocation
+     * @param player
+     *            The cell occupied by the player
+     */
+    protected abstract void refresh(Board board, Bitboards view,
+            BitSet changed, boolean replaced, Cell player);
+
+    /**
+     * Plan a step of the given monster toward the player, if it can get
+     * there. Invoked without holding the engine's lock, after refresh.
+     *
+     * @param monster
+     *            The monster to be moved
+     * @param location
+     *            The cell occupied by the monster
+     * @param player
+     *            The cell occupied by the player
+     * @param moves
+     *            The batch to which the step is added.
+     */
+    protected abstract void planStep(Monster monster, Cell location,
+            Cell player, MonsterMoves moves);
+}
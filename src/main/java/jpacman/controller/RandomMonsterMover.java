@@ -1,8 +1,11 @@
 package jpacman.controller;
 
+import java.util.SplittableRandom;
+import java.util.Vector;
 
 import jpacman.model.Engine;
 import jpacman.model.Monster;
+import jpacman.model.MonsterMoves;
 
 /**
  * Example, simple monster mover that just moves monsters randomly.
@@ -22,47 +25,72 @@ public class RandomMonsterMover extends AbstractMonsterController {
         super(e);
     }
 
+    /**
+     * Start a new mover with the given engine, making the same moves in
+     * every run with the same seed.
+     *
+     * @param e
+     *            Engine used.
+     * @param seed
+     *            Seed of the random moves.
+     */
+    public RandomMonsterMover(Engine e, long seed) {
+        super(e, new SplittableRandom(seed));
+    }
+
     /**
      * Local enum for directions.
      */
     private enum Direction { UP, DOWN, LEFT, RIGHT };
 
     /**
-     * Actually conduct a random move in the underlying engine.
+     * Plan a random move for every monster. The monsters are taken in
+     * order, starting with a randomly chosen one, so that no monster is
+     * systematically first when two of them head for the same cell.
      *
-     * @see jpacman.controller.IMonsterController#doTick()
+     * @param moves
+     *            The batch to which the moves are added.
+     * @see jpacman.controller.IMonsterController#planMoves(MonsterMoves)
      */
-    public void doTick() {
-        Monster theMonster = getRandomMonster();
-
-        int dx = 0;
-        int dy = 0;
-
-        int dir = getRandomizer().nextInt(Direction.values().length);
-        Direction d = Direction.values()[dir];
-        switch(d) {
-        case UP:
-            dy = -1;
-            break;
-        case DOWN:
-            dy = 1;
-            break;
-        case LEFT:
-            dx = -1;
-            break;
-        case RIGHT:
-            dx = 1;
-            break;
-        default:
-            assert false;
+    @Override
+    public void planMoves(MonsterMoves moves) {
+        Vector<Monster> monsters = getMonsters();
+        int n = monsters.size();
+        if (n == 0) {
+            return;
         }
+        int first = getRandomizer().nextInt(n);
+        for (int i = 0; i < n; i++) {
+            Monster theMonster = monsters.elementAt((first + i) % n);
+            int dx = 0;
+            int dy = 0;
 
-        assert dy >= -1 && dy <= 1;
-        assert
-        Math.abs(dx) == 1 && dy == 0
-        ||
-        Math.abs(dy) == 1 && dx == 0;
+            int dir = getRandomizer().nextInt(Direction.values().length);
+            Direction d = Direction.values()[dir];
+            switch(d) {
+            case UP:
+                dy = -1;
+                break;
+            case DOWN:
+                dy = 1;
+                break;
+            case LEFT:
+                dx = -1;
+                break;
+            case RIGHT:
+                dx = 1;
+                break;
+            default:
+                assert false;
+            }
 
-        getEngine().moveMonster(theMonster, dx, dy);
+            assert dy >= -1 && dy <= 1;
+            assert
+            Math.abs(dx) == 1 && dy == 0
+            ||
+            Math.abs(dy) == 1 && dx == 0;
+
+            moves.add(theMonster, dx, dy);
+        }
     }
 }
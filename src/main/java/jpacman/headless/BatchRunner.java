@@ -0,0 +1,327 @@
+package jpacman.headless;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import jpacman.controller.RandomMonsterMover;
+import jpacman.model.Engine;
+import jpacman.model.Game;
+
+/**
+ * Play many independent games in a single process, spread over a
+ * work-stealing pool with (by default) one thread per processor.
+ * <p>
+ * The games are read from a directory: every <code>.map</code> file is
+ * played using the actions in the <code>.actions</code> file with the same
+ * name, or using a default script if there is no such file. The result of
+ * every game is written to a single stream as one line, in the order in
+ * which the games finish.
+ * <p>
+ * The monsters of every game move randomly, using a source of their own
+ * seeded from the runner's seed and the name of the game, so that every
+ * game is played the same way in every run, whatever the number of
+ * threads.
+ *
+ * @see GameResult
+ */
+public class BatchRunner {
+
+    /**
+     * File name extension of map files.
+     */
+    public static final String MAP_SUFFIX = ".map";
+
+    /**
+     * File name extension of action scripts.
+     */
+    public static final String SCRIPT_SUFFIX = ".actions";
+
+    /**
+     * The pool the games are played on.
+     */
+    private ForkJoinPool pool;
+
+    /**
+     * The stream the results are written to.
+     */
+    private PrintStream out;
+
+    /**
+     * The script used for maps without a script of their own.
+     */
+    private String defaultScript = "";
+
+    /**
+     * Maximum number of ticks per game.
+     */
+    private long maxTicks = Long.MAX_VALUE;
+
+    /**
+     * Seed from which the seeds of the games are derived.
+     */
+    private long seed = 0;
+
+    /**
+     * Create a runner writing to the given stream, using one thread
+     * per available processor.
+     *
+     * @param resultStream Stream to write the results to.
+     */
+    public BatchRunner(PrintStream resultStream) {
+        this(resultStream, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a runner writing to the given stream, using the given
+     * number of threads.
+     *
+     * @param resultStream Stream to write the results to.
+     * @param threads Number of games played in parallel, at least 1.
+     */
+    public BatchRunner(PrintStream resultStream, int threads) {
+        assert resultStream != null;
+        assert threads > 0;
+        out = resultStream;
+        pool = new ForkJoinPool(threads);
+    }
+
+    /**
+     * @param script Actions for maps without a script file of their own.
+     */
+    public void setDefaultScript(String script) {
+        assert script != null;
+        defaultScript = script;
+    }
+
+    /**
+     * @param ticks Maximum number of ticks simulated per game.
+     */
+    public void setMaxTicks(long ticks) {
+        assert ticks >= 0;
+        maxTicks = ticks;
+    }
+
+    /**
+     * @param s Seed from which the seeds of the games are derived.
+     */
+    public void setSeed(long s) {
+        seed = s;
+    }
+
+    /**
+     * Return the seed of the random monster moves of a game, which only
+     * depends on the runner's seed and the name of the game.
+     *
+     * @param name Name identifying the game
+     * @return The seed.
+     */
+    public long seedFor(String name) {
+        // the 64-bit finalizer of MurmurHash3.
+        long z = seed + name.hashCode() * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+
+    /**
+     * Play all maps in the given directory, and wait until all games are
+     * done.
+     *
+     * @param dir Directory containing map and script files.
+     * @return The number of games played.
+     * @throws IOException If the directory can't be read.
+     */
+    public int runDirectory(Path dir) throws IOException {
+        List<ForkJoinTask<?>> games = new ArrayList<ForkJoinTask<?>>();
+        try (DirectoryStream<Path> maps =
+                Files.newDirectoryStream(dir, "*" + MAP_SUFFIX)) {
+            for (Path map : maps) {
+                games.add(pool.submit(() -> report(playFile(map))));
+            }
+        }
+        for (ForkJoinTask<?> game : games) {
+            game.join();
+        }
+        out.flush();
+        return games.size();
+    }
+
+    /**
+     * Write a single result to the result stream.
+     *
+     * @param result The result of a game.
+     */
+    private void report(GameResult result) {
+        String line = result.toString();
+        synchronized (out) {
+            out.println(line);
+        }
+    }
+
+    /**
+     * Read and play a single map file, together with its script.
+     *
+     * @param mapFile The map file.
+     * @return The result of the game.
+     */
+    GameResult playFile(Path mapFile) {
+        String name = mapFile.getFileName().toString();
+        String[] map;
+        String script;
+        try {
+            map = readMap(mapFile);
+            script = readScript(mapFile);
+        } catch (IOException e) {
+            return new GameResult(name, GameResult.State.CRASHED, 0, 0, e);
+        }
+        return play(name, map, script);
+    }
+
+    /**
+     * Read the lines of a map file.
+     *
+     * @param mapFile The map file.
+     * @return The map, one string per row.
+     * @throws IOException If the file can't be read.
+     */
+    static String[] readMap(Path mapFile) throws IOException {
+        // Latin-1 maps every byte to a character, so fuzzed files
+        // are read as is and rejected by the game itself.
+        List<String> lines =
+            Files.readAllLines(mapFile, StandardCharsets.ISO_8859_1);
+        return lines.toArray(new String[lines.size()]);
+    }
+
+    /**
+     * Read the script belonging to a map file, if any.
+     *
+     * @param mapFile The map file.
+     * @return The script, or the default script.
+     * @throws IOException If the script exists but can't be read.
+     */
+    private String readScript(Path mapFile) throws IOException {
+        String name = mapFile.getFileName().toString();
+        Path scriptFile = mapFile.resolveSibling(
+                name.substring(0, name.length() - MAP_SUFFIX.length())
+                + SCRIPT_SUFFIX);
+        String result = defaultScript;
+        if (Files.exists(scriptFile)) {
+            result = new String(Files.readAllBytes(scriptFile),
+                    StandardCharsets.ISO_8859_1).trim();
+        }
+        return result;
+    }
+
+    /**
+     * Play a single game headlessly, with randomly moving monsters
+     * seeded for the game. Any
+     * exception or assertion failure is caught and reported in the result.
+     * Games share no state, so this method can be invoked from several
+     * threads at the same time.
+     *
+     * @param name Name identifying the game
+     * @param map The map of the game
+     * @param script The actions of the player
+     * @return The result of the game.
+     */
+    public GameResult play(String name, String[] map, String script) {
+        return play(name, map, script, seedFor(name));
+    }
+
+    /**
+     * Play a single game headlessly, with randomly moving monsters
+     * seeded as given, for example to replay a game of an earlier run.
+     * Any exception or assertion failure is caught and reported in the
+     * result.
+     *
+     * @param name Name identifying the game
+     * @param map The map of the game
+     * @param script The actions of the player
+     * @param gameSeed The seed of the monsters' moves
+     * @return The result of the game.
+     */
+    public GameResult play(String name, String[] map, String script,
+            long gameSeed) {
+        Engine engine = null;
+        Simulator sim = null;
+        try {
+            Game game = new Game(map);
+            game.setPooledMoves(true);
+            engine = new Engine(game);
+            sim = new Simulator(engine,
+                    new RandomMonsterMover(engine, gameSeed),
+                    new PlayerScript(script));
+            sim.run(maxTicks);
+            return new GameResult(name, finalState(engine),
+                    engine.getFoodEaten(), sim.getTick(), null);
+        } catch (AssertionError | RuntimeException e) {
+            return new GameResult(name, GameResult.State.CRASHED, 0,
+                    sim == null ? 0 : sim.getTick(), e);
+        }
+    }
+
+    /**
+     * @param engine The engine of a finished game.
+     * @return The state the engine is in.
+     */
+    private static GameResult.State finalState(Engine engine) {
+        GameResult.State result;
+        if (engine.inStartingState()) {
+            result = GameResult.State.STARTING;
+        } else if (engine.inHaltedState()) {
+            result = GameResult.State.HALTED;
+        } else if (engine.inDiedState()) {
+            result = GameResult.State.DIED;
+        } else if (engine.inWonState()) {
+            result = GameResult.State.WON;
+        } else {
+            result = GameResult.State.PLAYING;
+        }
+        return result;
+    }
+
+    /**
+     * Stop the threads of the pool once all games are done.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Play all maps in a directory, writing the results to standard output.
+     *
+     * @param args The directory, optionally followed by the default script,
+     *            the number of threads and the seed.
+     * @throws IOException If the directory can't be read.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 4) {
+            System.err.println("Usage: BatchRunner <map directory>"
+                + " [<actions> [<threads> [<seed>]]]");
+            return;
+        }
+        BatchRunner runner;
+        if (args.length > 2) {
+            runner = new BatchRunner(System.out, Integer.parseInt(args[2]));
+        } else {
+            runner = new BatchRunner(System.out);
+        }
+        if (args.length > 1) {
+            runner.setDefaultScript(args[1]);
+        }
+        if (args.length > 3) {
+            runner.setSeed(Long.parseLong(args[3]));
+        }
+        runner.runDirectory(Paths.get(args[0]));
+        runner.shutdown();
+    }
+}
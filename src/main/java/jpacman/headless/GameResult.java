@@ -0,0 +1,122 @@
+package jpacman.headless;
+
+/**
+ * The outcome of a single game played in batch: the state the game ended
+ * in, the food eaten, the number of ticks simulated, and, if the game
+ * crashed, a description of the failure.
+ */
+public class GameResult {
+
+    /**
+     * The state a game can end in. CRASHED means that an exception or
+     * assertion failure occurred while loading or playing the game.
+     */
+    public enum State { STARTING, PLAYING, HALTED, DIED, WON, CRASHED };
+
+    /**
+     * Name identifying the game, typically the map file name.
+     */
+    private String name;
+
+    /**
+     * The final state.
+     */
+    private State state;
+
+    /**
+     * Points eaten by the player.
+     */
+    private int foodEaten;
+
+    /**
+     * Number of ticks simulated.
+     */
+    private long ticks;
+
+    /**
+     * The failure, null if the game didn't crash.
+     */
+    private Throwable failure;
+
+    /**
+     * Create a new result.
+     *
+     * @param gameName Name identifying the game
+     * @param finalState The state the game ended in
+     * @param food Points eaten by the player
+     * @param tickCount Number of ticks simulated
+     * @param crash The failure, or null
+     */
+    public GameResult(String gameName, State finalState, int food,
+            long tickCount, Throwable crash) {
+        assert gameName != null;
+        assert finalState != null;
+        assert (crash != null) == (finalState == State.CRASHED);
+        name = gameName;
+        state = finalState;
+        foodEaten = food;
+        ticks = tickCount;
+        failure = crash;
+    }
+
+    /**
+     * @return The name identifying the game.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The state the game ended in.
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return Points eaten by the player.
+     */
+    public int getFoodEaten() {
+        return foodEaten;
+    }
+
+    /**
+     * @return Number of ticks simulated.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * @return The failure, or null if the game didn't crash.
+     */
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Render the result as a single tab separated line: name, state, food
+     * eaten, ticks, and the failure (if any) with its origin.
+     *
+     * @return The result line, without line terminator.
+     */
+    @Override
+    public String toString() {
+        StringBuilder line = new StringBuilder();
+        line.append(name).append('\t').append(state)
+            .append('\t').append(foodEaten)
+            .append('\t').append(ticks);
+        if (failure != null) {
+            line.append('\t').append(failure.getClass().getName());
+            if (failure.getMessage() != null) {
+                line.append(": ")
+                    .append(failure.getMessage().replace('\n', ' '));
+            }
+            StackTraceElement[] trace = failure.getStackTrace();
+            if (trace.length > 0) {
+                line.append(" at ").append(trace[0]);
+            }
+        }
+        return line.toString();
+    }
+}
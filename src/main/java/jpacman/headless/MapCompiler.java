@@ -0,0 +1,43 @@
+package jpacman.headless;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import jpacman.model.CompiledMap;
+import jpacman.model.MapFile;
+
+/**
+ * Convert a text map file into a compiled map file, which can be loaded
+ * without parsing.
+ *
+ * @see CompiledMap
+ */
+public final class MapCompiler {
+
+    /**
+     * No instances: the compiler is only used from the command line.
+     */
+    private MapCompiler() {
+    }
+
+    /**
+     * Compile a text map file.
+     *
+     * @param args The text map file, and the compiled map file to be
+     *            written.
+     * @throws IOException If a file can't be read or written.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println(
+                "Usage: MapCompiler <map file> <compiled map file>");
+            return;
+        }
+        CompiledMap map =
+            CompiledMap.compile(MapFile.open(Paths.get(args[0])));
+        map.write(Paths.get(args[1]));
+        System.out.println(args[1] + ": " + map.getWidth() + "x"
+                + map.getHeight() + ", " + map.getFoodCount() + " food, "
+                + map.getMonsterCount() + " monsters");
+    }
+}
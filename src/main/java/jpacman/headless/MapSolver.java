@@ -0,0 +1,57 @@
+package jpacman.headless;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import jpacman.model.Game;
+import jpacman.model.MapFile;
+import jpacman.model.Solver;
+
+/**
+ * Report, for each of a number of map files, the minimum number of moves
+ * the player needs to eat all food while the monsters stay put.
+ *
+ * @see Solver
+ */
+public final class MapSolver {
+
+    /**
+     * Largest number of moves considered.
+     */
+    static final int MAX_MOVES = 1000;
+
+    /**
+     * No instances: the solver is only used from the command line.
+     */
+    private MapSolver() {
+    }
+
+    /**
+     * Solve map files.
+     *
+     * @param args The map files.
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            System.err.println("Usage: MapSolver <map file>...");
+            return;
+        }
+        for (String name : args) {
+            try {
+                Solver solver =
+                    new Solver(new Game(MapFile.open(Paths.get(name)), false));
+                int moves = solver.solve(MAX_MOVES);
+                if (moves == Solver.NO_SOLUTION) {
+                    System.out.println(name + ": not winnable"
+                            + (solver.winnable() ? " within " + MAX_MOVES
+                                    + " moves" : ""));
+                } else {
+                    System.out.println(name + ": " + moves + " moves "
+                            + solver.getSolution());
+                }
+            } catch (IOException e) {
+                System.out.println(name + ": " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,532 @@
+package jpacman.headless;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import jpacman.controller.IMonsterController;
+import jpacman.controller.RandomMonsterMover;
+import jpacman.model.Bitboards;
+import jpacman.model.Engine;
+import jpacman.model.Guest;
+import jpacman.model.SearchState;
+
+/**
+ * An automated player choosing its moves by Monte Carlo tree search, for
+ * load testing and balancing.
+ * <p>
+ * Before every move, the player plays out a number of possible
+ * continuations of the game on lightweight copies of its state, without
+ * going through the engine. The tree of player moves is grown one node per
+ * playout, choosing moves by the UCB1 rule; beyond the tree, the player
+ * walks randomly, avoiding monsters. The monsters are assumed to move
+ * randomly, as the random monster mover moves them. A playout that dies
+ * is worth nothing, one that wins is worth one, and one that does neither
+ * within the horizon is worth the food eaten, plus a little for ending up
+ * close to more food.
+ * <p>
+ * The search is root parallel: every thread grows a tree of its own, with
+ * its own random source split off from the player's, and the move played
+ * out most often over all trees is chosen. With a fixed number of threads,
+ * the moves chosen only depend on the seed.
+ * <p>
+ * A player boxed in by walls, without a single legal move, waits: the
+ * tree stops at a node without legal moves, and the monsters play on.
+ *
+ * @see SearchState
+ */
+public class MctsPlayer {
+
+    /**
+     * Default number of playouts per thread per move.
+     */
+    public static final int DEFAULT_PLAYOUTS = 2000;
+
+    /**
+     * Maximum number of ticks played out beyond the tree.
+     */
+    static final int HORIZON = 30;
+
+    /**
+     * Weight of exploration in the UCB1 rule.
+     */
+    private static final double EXPLORATION = 0.7;
+
+    /**
+     * The movements of the player's actions, as {dx, dy}, in the order of
+     * ACTIONS.
+     */
+    private static final int[][] DIRECTIONS =
+        {{0, -1}, {0, 1}, {-1, 0}, {1, 0}};
+
+    /**
+     * The action characters of the moves.
+     */
+    private static final char[] ACTIONS = {PlayerScript.UP,
+        PlayerScript.DOWN, PlayerScript.LEFT, PlayerScript.RIGHT};
+
+    /**
+     * The pool the trees are grown on.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Number of trees grown in parallel per move.
+     */
+    private final int threads;
+
+    /**
+     * Number of playouts per tree per move.
+     */
+    private final int playouts;
+
+    /**
+     * The source from which every tree gets a random source of its own.
+     */
+    private final SplittableRandom random;
+
+    /**
+     * Create a player using one thread per available processor and the
+     * default number of playouts.
+     *
+     * @param seed
+     *            Seed of the random choices
+     */
+    public MctsPlayer(long seed) {
+        this(DEFAULT_PLAYOUTS, Runtime.getRuntime().availableProcessors(),
+                seed);
+    }
+
+    /**
+     * Create a player.
+     *
+     * @param n
+     *            Number of playouts per thread per move, at least 1
+     * @param t
+     *            Number of threads, at least 1
+     * @param seed
+     *            Seed of the random choices
+     */
+    public MctsPlayer(int n, int t, long seed) {
+        assert n > 0 && t > 0;
+        playouts = n;
+        threads = t;
+        pool = new ForkJoinPool(t);
+        random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Choose the next move of the player in the game driven by an engine.
+     *
+     * @param engine
+     *            An engine in its playing state
+     * @return The action character of the move.
+     */
+    public char chooseAction(Engine engine) {
+        return chooseAction(SearchState.of(engine));
+    }
+
+    /**
+     * Choose the next move of the player.
+     *
+     * @param root
+     *            The state of the game, which isn't over; not modified
+     * @return The action character of the move, or PlayerScript.WAIT if
+     *         the player can't move at all.
+     */
+    public char chooseAction(SearchState root) {
+        int a = chooseMove(root);
+        return a < 0 ? PlayerScript.WAIT : ACTIONS[a];
+    }
+
+    /**
+     * @param root
+     *            The state of the game, which isn't over; not modified
+     * @return The number of the action chosen, or -1 if there is no legal
+     *         action.
+     */
+    private int chooseMove(SearchState root) {
+        assert !root.gameOver();
+        List<ForkJoinTask<int[]>> trees =
+            new ArrayList<ForkJoinTask<int[]>>();
+        for (int i = 0; i < threads; i++) {
+            SplittableRandom r = random.split();
+            trees.add(pool.submit(() -> new Tree(root, r).grow(playouts)));
+        }
+        int[] visits = new int[ACTIONS.length];
+        for (ForkJoinTask<int[]> tree : trees) {
+            int[] counts = tree.join();
+            for (int a = 0; a < visits.length; a++) {
+                visits[a] += counts[a];
+            }
+        }
+        int best = -1;
+        for (int a = 0; a < visits.length; a++) {
+            if (visits[a] > 0 && (best < 0 || visits[a] > visits[best])) {
+                best = a;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Play a game from the start, one move per tick, until it is over or
+     * the tick limit is reached. After every move the monster controller
+     * (if any) gets a tick, as in the simulator.
+     *
+     * @param engine
+     *            An engine in its starting state
+     * @param monsters
+     *            The controller moving the monsters, not subscribed to a
+     *            game loop, or null if the monsters shouldn't move
+     * @param maxTicks
+     *            Maximum number of ticks
+     * @return The number of ticks played.
+     * @see Simulator
+     */
+    public long play(Engine engine, IMonsterController monsters,
+            long maxTicks) {
+        assert engine.inStartingState();
+        engine.start();
+        if (monsters != null) {
+            monsters.start();
+        }
+        long tick = 0;
+        while (engine.inPlayingState() && tick < maxTicks) {
+            int a = chooseMove(SearchState.of(engine));
+            if (a >= 0) {
+                engine.movePlayer(DIRECTIONS[a][0], DIRECTIONS[a][1]);
+            }
+            if (monsters != null && engine.inPlayingState()) {
+                monsters.doTick();
+            }
+            tick++;
+        }
+        if (monsters != null) {
+            monsters.stop();
+        }
+        return tick;
+    }
+
+    /**
+     * Stop the threads of the pool.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * @param state
+     *            A state
+     * @param a
+     *            Number of an action
+     * @return True iff the action doesn't run into a wall or the border.
+     */
+    private static boolean legal(SearchState state, int a) {
+        int target = state.indexAtOffset(state.getPlayerIndex(),
+                DIRECTIONS[a][0], DIRECTIONS[a][1]);
+        return target >= 0
+            && !state.getBitboards().has(Guest.WALL_TYPE, target);
+    }
+
+    /**
+     * Play a single tick: move the player, then every monster randomly.
+     * The monsters are taken in order, starting with a randomly chosen
+     * one, as the random monster mover does.
+     *
+     * @param state
+     *            The state, in which the game isn't over
+     * @param a
+     *            Number of the player's action, or -1 if the player waits
+     * @param r
+     *            Source of the monsters' moves
+     */
+    private static void tick(SearchState state, int a, SplittableRandom r) {
+        if (a >= 0) {
+            state.movePlayer(DIRECTIONS[a][0], DIRECTIONS[a][1]);
+        }
+        int n = state.getMonsterCount();
+        if (n > 0) {
+            int first = r.nextInt(n);
+            for (int i = 0; i < n && !state.gameOver(); i++) {
+                int[] d = DIRECTIONS[r.nextInt(DIRECTIONS.length)];
+                state.moveMonster((first + i) % n, d[0], d[1]);
+            }
+        }
+    }
+
+    /**
+     * A search tree grown by a single thread. The children of node i for
+     * the four actions are found at 4 * i up to 4 * i + 3 in the children
+     * array, 0 meaning no child yet; node 0 is the root.
+     */
+    private static final class Tree {
+
+        /**
+         * The state the search starts from.
+         */
+        private final SearchState root;
+
+        /**
+         * The state played out.
+         */
+        private final SearchState state;
+
+        /**
+         * Source of all random choices of this tree.
+         */
+        private final SplittableRandom random;
+
+        /**
+         * Number of food elements at the root.
+         */
+        private final int rootFood;
+
+        /**
+         * Children of the nodes.
+         */
+        private int[] children = new int[4 * 256];
+
+        /**
+         * Number of playouts through each node.
+         */
+        private int[] visits = new int[256];
+
+        /**
+         * Sum of the values of the playouts through each node.
+         */
+        private double[] values = new double[256];
+
+        /**
+         * Number of nodes.
+         */
+        private int size = 1;
+
+        /**
+         * The nodes visited by the current playout.
+         */
+        private int[] path = new int[64];
+
+        /**
+         * Create a tree consisting of a root.
+         *
+         * @param start
+         *            The state at the root, shared by all trees and not
+         *            modified
+         * @param r
+         *            Source of random choices
+         */
+        Tree(SearchState start, SplittableRandom r) {
+            root = start;
+            state = start.copy();
+            random = r;
+            rootFood = start.getFoodLeft();
+        }
+
+        /**
+         * Grow the tree.
+         *
+         * @param n
+         *            Number of playouts
+         * @return The number of playouts through each child of the root,
+         *         indexed by action.
+         */
+        int[] grow(int n) {
+            for (int i = 0; i < n; i++) {
+                playout();
+            }
+            int[] result = new int[ACTIONS.length];
+            for (int a = 0; a < result.length; a++) {
+                result[a] = children[a] == 0 ? 0 : visits[children[a]];
+            }
+            return result;
+        }
+
+        /**
+         * Play out one continuation: select moves within the tree, add a
+         * node, walk on randomly, and record the value of the outcome in
+         * all nodes visited.
+         */
+        private void playout() {
+            state.copyFrom(root);
+            int node = 0;
+            int length = 0;
+            path[length++] = node;
+            boolean expanded = false;
+            while (!expanded && !state.gameOver()) {
+                int a = untried(node);
+                if (a >= 0) {
+                    children[4 * node + a] = newNode();
+                    expanded = true;
+                } else {
+                    a = select(node);
+                    if (a < 0) {
+                        // no legal actions: the tree ends here.
+                        break;
+                    }
+                }
+                tick(state, a, random);
+                node = children[4 * node + a];
+                if (length == path.length) {
+                    path = Arrays.copyOf(path, 2 * length);
+                }
+                path[length++] = node;
+            }
+            double value = rollout();
+            for (int i = 0; i < length; i++) {
+                visits[path[i]]++;
+                values[path[i]] += value;
+            }
+        }
+
+        /**
+         * @param node
+         *            A node
+         * @return A random legal action without a child at the node, or -1
+         *         if there is none.
+         */
+        private int untried(int node) {
+            int result = -1;
+            int seen = 0;
+            for (int a = 0; a < ACTIONS.length; a++) {
+                if (children[4 * node + a] == 0 && legal(state, a)) {
+                    seen++;
+                    if (random.nextInt(seen) == 0) {
+                        result = a;
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * @param node
+         *            A node all legal actions of which have a child
+         * @return The action with the highest UCB1 score, or -1 if the
+         *         node has no children because there are no legal
+         *         actions.
+         */
+        private int select(int node) {
+            double logVisits = Math.log(visits[node]);
+            int result = -1;
+            double best = Double.NEGATIVE_INFINITY;
+            for (int a = 0; a < ACTIONS.length; a++) {
+                int child = children[4 * node + a];
+                if (child != 0) {
+                    double score = values[child] / visits[child]
+                        + EXPLORATION
+                        * Math.sqrt(logVisits / visits[child]);
+                    if (score > best) {
+                        best = score;
+                        result = a;
+                    }
+                }
+            }
+            return result;
+        }
+
+        /**
+         * @return A new node, without children or visits.
+         */
+        private int newNode() {
+            if (size == visits.length) {
+                visits = Arrays.copyOf(visits, 2 * size);
+                values = Arrays.copyOf(values, 2 * size);
+                children = Arrays.copyOf(children, 8 * size);
+            }
+            return size++;
+        }
+
+        /**
+         * Walk on randomly from the current state, not entering walls and
+         * preferably not entering monsters, up to the horizon.
+         *
+         * @return The value of the outcome, between 0 and 1.
+         */
+        private double rollout() {
+            for (int t = 0; t < HORIZON && !state.gameOver(); t++) {
+                int choice = -1;
+                int seen = 0;
+                int fallback = -1;
+                for (int a = 0; a < ACTIONS.length; a++) {
+                    if (legal(state, a)) {
+                        fallback = a;
+                        int target = state.indexAtOffset(
+                                state.getPlayerIndex(),
+                                DIRECTIONS[a][0], DIRECTIONS[a][1]);
+                        if (!state.getBitboards().has(
+                                Guest.MONSTER_TYPE, target)) {
+                            seen++;
+                            if (random.nextInt(seen) == 0) {
+                                choice = a;
+                            }
+                        }
+                    }
+                }
+                tick(state, choice >= 0 ? choice : fallback, random);
+            }
+            double result;
+            if (state.playerDied()) {
+                result = 0;
+            } else if (state.playerWon()) {
+                result = 1;
+            } else {
+                result = (state.getFoodEaten() + closeness())
+                    / (rootFood + 1);
+            }
+            return result;
+        }
+
+        /**
+         * @return 1 / (1 + d), where d is the Manhattan distance from the
+         *         player to the nearest food.
+         */
+        private double closeness() {
+            Bitboards bits = state.getBitboards();
+            int w = state.getWidth();
+            int px = state.getPlayerIndex() % w;
+            int py = state.getPlayerIndex() / w;
+            int nearest = Integer.MAX_VALUE;
+            for (int word = 0; word < bits.wordCount(); word++) {
+                long food = bits.word(Guest.FOOD_TYPE, word);
+                for (; food != 0; food &= food - 1) {
+                    int i = word * Long.SIZE
+                        + Long.numberOfTrailingZeros(food);
+                    nearest = Math.min(nearest,
+                            Math.abs(i % w - px) + Math.abs(i / w - py));
+                }
+            }
+            return 1.0 / (1 + nearest);
+        }
+    }
+
+    /**
+     * Play the default game against randomly moving monsters, seeded like
+     * the player, and report the outcome and the number of playouts per
+     * second.
+     *
+     * @param args
+     *            Optionally the seed, the number of playouts per thread
+     *            per move, and the number of threads.
+     */
+    public static void main(String[] args) {
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : 0;
+        int n = args.length > 1 ? Integer.parseInt(args[1])
+            : DEFAULT_PLAYOUTS;
+        int t = args.length > 2 ? Integer.parseInt(args[2])
+            : Runtime.getRuntime().availableProcessors();
+        MctsPlayer player = new MctsPlayer(n, t, seed);
+        Engine engine = new Engine();
+        long start = System.nanoTime();
+        long ticks = player.play(engine, new RandomMonsterMover(engine, seed),
+                Long.MAX_VALUE);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        player.shutdown();
+        System.out.println(engine.getState() + " after " + ticks
+                + " ticks, " + engine.getFoodEaten() + " food eaten, "
+                + Math.round(ticks * n * t / seconds) + " playouts/s");
+    }
+}
@@ -0,0 +1,116 @@
+package jpacman.headless;
+
+/**
+ * A fixed sequence of player actions, one per tick, written as a string of
+ * action characters. The characters are the ones used by the fuzzer:
+ * <code>U</code>, <code>D</code>, <code>L</code> and <code>R</code> move the
+ * player, <code>S</code> (re)starts the game, <code>Q</code> halts it,
+ * <code>W</code> waits a tick, and <code>E</code> exits.
+ */
+public class PlayerScript {
+
+    /**
+     * Move the player up.
+     */
+    public static final char UP = 'U';
+
+    /**
+     * Move the player down.
+     */
+    public static final char DOWN = 'D';
+
+    /**
+     * Move the player to the left.
+     */
+    public static final char LEFT = 'L';
+
+    /**
+     * Move the player to the right.
+     */
+    public static final char RIGHT = 'R';
+
+    /**
+     * (Re)start the game.
+     */
+    public static final char START = 'S';
+
+    /**
+     * Halt the game.
+     */
+    public static final char QUIT = 'Q';
+
+    /**
+     * Do nothing during this tick.
+     */
+    public static final char WAIT = 'W';
+
+    /**
+     * Stop playing altogether.
+     */
+    public static final char EXIT = 'E';
+
+    /**
+     * All valid action characters.
+     */
+    private static final String ACTIONS = "UDLRSQWE";
+
+    /**
+     * The actions to be performed.
+     */
+    private String actions;
+
+    /**
+     * Index of the next action.
+     */
+    private int position = 0;
+
+    /**
+     * Create a script from a string of action characters.
+     *
+     * @param script
+     *            The actions, one character per tick.
+     * @throws IllegalArgumentException
+     *             If the string contains an unknown action.
+     */
+    public PlayerScript(String script) {
+        assert script != null;
+        for (int i = 0; i < script.length(); i++) {
+            if (ACTIONS.indexOf(script.charAt(i)) < 0) {
+                throw new IllegalArgumentException("unknown action ``"
+                        + script.charAt(i) + "'' at position " + i);
+            }
+        }
+        actions = script;
+    }
+
+    /**
+     * @return true iff there are actions left.
+     */
+    public boolean hasNext() {
+        return position < actions.length();
+    }
+
+    /**
+     * Obtain the next action. Precondition: there are actions left.
+     *
+     * @return The action character.
+     */
+    public char next() {
+        assert hasNext();
+        return actions.charAt(position++);
+    }
+
+    /**
+     * @return The number of actions taken from the script so far.
+     */
+    public int position() {
+        return position;
+    }
+
+    /**
+     * @return The total number of actions in the script.
+     */
+    public int length() {
+        return actions.length();
+    }
+}
@@ -0,0 +1,66 @@
+package jpacman.headless;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import jpacman.model.CompiledMap;
+import jpacman.model.Engine;
+import jpacman.model.EventReplayer;
+import jpacman.model.Game;
+import jpacman.model.MapFile;
+import jpacman.model.MapSource;
+
+/**
+ * Replay a recorded session without a user interface, as fast as
+ * possible, and report the state it ends in.
+ *
+ * @see EventReplayer
+ */
+public final class Replayer {
+
+    /**
+     * No instances: the replayer is only used from the command line.
+     */
+    private Replayer() {
+    }
+
+    /**
+     * Replay an event log.
+     *
+     * @param args The event log, optionally followed by the map file the
+     *            session was played on; by default, the default map.
+     * @throws IOException If a file can't be read, or the log is invalid.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: Replayer <event log> [<map file>]");
+            return;
+        }
+        Engine engine;
+        if (args.length == 1) {
+            engine = new Engine();
+        } else {
+            MapSource map;
+            if (args[1].endsWith(CompiledMap.SUFFIX)) {
+                map = CompiledMap.read(Paths.get(args[1]));
+            } else {
+                map = MapFile.open(Paths.get(args[1]));
+            }
+            engine = new Engine(new Game(map, false));
+        }
+        EventReplayer replayer;
+        long start = System.nanoTime();
+        try (InputStream in = Files.newInputStream(Paths.get(args[0]))) {
+            replayer = new EventReplayer(in);
+            replayer.replay(engine);
+        }
+        long micros = (System.nanoTime() - start) / 1000;
+        System.out.println(engine.getState() + " after "
+                + replayer.getRecords() + " calls in "
+                + replayer.getTick() + " ticks, "
+                + engine.getFoodEaten() + " food eaten, replayed in "
+                + micros + " us");
+    }
+}
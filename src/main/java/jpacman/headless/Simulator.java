@@ -0,0 +1,184 @@
+package jpacman.headless;
+
+import jpacman.controller.IMonsterController;
+import jpacman.model.Engine;
+import jpacman.model.EventRecorder;
+
+/**
+ * Drive an engine without a user interface, advancing the game in discrete
+ * ticks as fast as possible. During every tick the next action from the
+ * player script is carried out, after which the monster controller (if
+ * any) gets a tick as well, provided the game is being played.
+ * <p>
+ * The monster controller should not be subscribed to a game loop: the
+ * simulator invokes its doTick method itself.
+ */
+public class Simulator {
+
+    /**
+     * The model of the game.
+     */
+    private Engine theEngine;
+
+    /**
+     * The controller moving the monsters, possibly null.
+     */
+    private IMonsterController monsterController;
+
+    /**
+     * The actions of the player.
+     */
+    private PlayerScript script;
+
+    /**
+     * The number of ticks simulated so far.
+     */
+    private long tick = 0;
+
+    /**
+     * Has the exit action been carried out?
+     */
+    private boolean exited = false;
+
+    /**
+     * The recorder of the engine's calls, or null.
+     */
+    private EventRecorder recorder;
+
+    /**
+     * Create a simulator for the given engine.
+     *
+     * @param e
+     *            The engine, in its starting state.
+     * @param m
+     *            The controller moving the monsters, or null if the
+     *            monsters shouldn't move.
+     * @param s
+     *            The actions of the player.
+     */
+    public Simulator(Engine e, IMonsterController m, PlayerScript s) {
+        assert e != null;
+        assert s != null;
+        theEngine = e;
+        monsterController = m;
+        script = s;
+    }
+
+    /**
+     * @return true iff the script is done or the exit action was taken.
+     */
+    public boolean finished() {
+        return exited || !script.hasNext();
+    }
+
+    /**
+     * Simulate a single tick. Precondition: not finished.
+     */
+    public void step() {
+        assert !finished();
+        if (recorder != null) {
+            recorder.setTick(tick);
+        }
+        perform(script.next());
+        if (!exited && monsterController != null
+                && theEngine.inPlayingState()) {
+            monsterController.doTick();
+        }
+        tick++;
+    }
+
+    /**
+     * Simulate ticks until the simulation is finished.
+     *
+     * @return The total number of ticks simulated.
+     */
+    public long run() {
+        return run(Long.MAX_VALUE);
+    }
+
+    /**
+     * Simulate ticks until the simulation is finished, or the given total
+     * number of ticks has been reached.
+     *
+     * @param maxTicks
+     *            The maximum total number of ticks.
+     * @return The total number of ticks simulated.
+     */
+    public long run(long maxTicks) {
+        while (!finished() && tick < maxTicks) {
+            step();
+        }
+        return tick;
+    }
+
+    /**
+     * Carry out a single player action, in the same way
+     * the Pacman controller responds to the GUI.
+     *
+     * @param action
+     *            The action character.
+     */
+    private void perform(char action) {
+        switch (action) {
+        case PlayerScript.UP:
+            theEngine.movePlayer(0, -1);
+            break;
+        case PlayerScript.DOWN:
+            theEngine.movePlayer(0, 1);
+            break;
+        case PlayerScript.LEFT:
+            theEngine.movePlayer(-1, 0);
+            break;
+        case PlayerScript.RIGHT:
+            theEngine.movePlayer(1, 0);
+            break;
+        case PlayerScript.START:
+            theEngine.start();
+            if (monsterController != null) {
+                monsterController.start();
+            }
+            break;
+        case PlayerScript.QUIT:
+        case PlayerScript.EXIT:
+            if (monsterController != null) {
+                monsterController.stop();
+            }
+            theEngine.quit();
+            exited = action == PlayerScript.EXIT;
+            break;
+        case PlayerScript.WAIT:
+            break;
+        default:
+            assert false : "unknown action " + action;
+        }
+    }
+
+    /**
+     * Record the calls to the engine from now on, tagged with the number
+     * of the tick during which they are made.
+     *
+     * @param r
+     *            A recorder not used before
+     * @see Engine#setRecorder(EventRecorder)
+     */
+    public void record(EventRecorder r) {
+        assert r != null;
+        recorder = r;
+        r.setTick(tick);
+        theEngine.setRecorder(r);
+    }
+
+    /**
+     * @return The number of ticks simulated so far.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * @return The engine driven by this simulator.
+     */
+    public Engine getEngine() {
+        return theEngine;
+    }
+}
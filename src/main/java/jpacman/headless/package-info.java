@@ -0,0 +1,10 @@
+/**
+  * This package contains controllers that drive the pacman engine
+  * without a user interface, for example to play large numbers of
+  * games in batch for testing and balancing purposes.
+  *
+  * Games are advanced in discrete ticks, as fast as possible:
+  * nothing in this package relies on Swing timers or loads any
+  * AWT classes.
+  */
+package jpacman.headless;
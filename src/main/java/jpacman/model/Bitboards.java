@@ -0,0 +1,376 @@
+package jpacman.model;
+
+import java.util.BitSet;
+
+/**
+ * One bit set per type of guest -- walls, food, monsters and the player --
+ * over the squares of a board, numbered row by row as by Board.index. The
+ * board keeps them in sync with the guests occupying and leaving its
+ * cells, so that searches can test what is in a square, count food, or
+ * look for monsters next to a square without visiting any cell or guest.
+ * <p>
+ * Bit i of the set for a type is bit (i % 64) of word (i / 64), so
+ * threads filling disjoint ranges of whole words don't interfere.
+ *
+ * @see Board#getBitboards()
+ */
+public final class Bitboards {
+
+    /**
+     * Log2 of the number of bits in a word.
+     */
+    private static final int WORD_SHIFT = 6;
+
+    /**
+     * Width and height of the board.
+     */
+    private final int width, height;
+
+    /**
+     * The squares occupied by each type of guest.
+     */
+    private final long[] walls, food, monsters, players;
+
+    /**
+     * Zobrist hash of the contents of all squares: the exclusive or of
+     * the keys of every occupied square.
+     */
+    private long hash = 0;
+
+    /**
+     * True iff the hash is kept up to date with every update.
+     */
+    private boolean hashing = true;
+
+    /**
+     * Create empty bit sets for a board of the given size.
+     *
+     * @param w
+     *            Width of the board
+     * @param h
+     *            Height of the board
+     */
+    Bitboards(int w, int h) {
+        assert w >= 0 && h >= 0;
+        width = w;
+        height = h;
+        int words = wordsFor(w * h);
+        walls = new long[words];
+        food = new long[words];
+        monsters = new long[words];
+        players = new long[words];
+    }
+
+    /**
+     * Create a copy of the given bit sets.
+     *
+     * @param other
+     *            The bit sets to be copied
+     */
+    private Bitboards(Bitboards other) {
+        width = other.width;
+        height = other.height;
+        walls = other.walls.clone();
+        food = other.food.clone();
+        monsters = other.monsters.clone();
+        players = other.players.clone();
+        hash = other.hash;
+        hashing = other.hashing;
+    }
+
+    /**
+     * @param squares
+     *            A number of squares
+     * @return The number of words needed for one bit per square.
+     */
+    static int wordsFor(int squares) {
+        return (squares + (1 << WORD_SHIFT) - 1) >>> WORD_SHIFT;
+    }
+
+    /**
+     * @return An independent copy of these bit sets.
+     */
+    public Bitboards copy() {
+        return new Bitboards(this);
+    }
+
+    /**
+     * Bring the given squares up to date with other bit sets of the same
+     * size, so that a private copy of a board's bit sets can be kept
+     * current without copying it in full.
+     *
+     * @param other
+     *            The bit sets to be copied from
+     * @param squares
+     *            The squares to be copied
+     */
+    public void copySquares(Bitboards other, BitSet squares) {
+        assert other.width == width && other.height == height;
+        for (int i = squares.nextSetBit(0); i >= 0 && i < width * height;
+                i = squares.nextSetBit(i + 1)) {
+            update(i, other.typeAt(i));
+        }
+    }
+
+    /**
+     * Overwrite these bit sets with a copy of others of the same size,
+     * without allocating.
+     *
+     * @param other
+     *            The bit sets to be copied
+     */
+    void copyFrom(Bitboards other) {
+        assert other.width == width && other.height == height;
+        System.arraycopy(other.walls, 0, walls, 0, walls.length);
+        System.arraycopy(other.food, 0, food, 0, food.length);
+        System.arraycopy(other.monsters, 0, monsters, 0, monsters.length);
+        System.arraycopy(other.players, 0, players, 0, players.length);
+        hash = other.hash;
+        hashing = other.hashing;
+    }
+
+    /**
+     * @param type
+     *            A guest type code
+     * @return The bit set for the type, or null for the empty type.
+     */
+    private long[] bitsOf(char type) {
+        long[] result = null;
+        switch (type) {
+        case Guest.WALL_TYPE:
+            result = walls;
+            break;
+        case Guest.FOOD_TYPE:
+            result = food;
+            break;
+        case Guest.MONSTER_TYPE:
+            result = monsters;
+            break;
+        case Guest.PLAYER_TYPE:
+            result = players;
+            break;
+        default:
+            assert type == Guest.EMPTY_TYPE : "unknown type " + type;
+        }
+        return result;
+    }
+
+    /**
+     * Record the type of the guest now occupying a square.
+     *
+     * @param index
+     *            Index of the square
+     * @param type
+     *            Type of its guest, or the empty type
+     */
+    void update(int index, char type) {
+        assert 0 <= index && index < width * height;
+        if (hashing) {
+            hash ^= key(typeAt(index), index) ^ key(type, index);
+        }
+        int word = index >>> WORD_SHIFT;
+        long mask = ~(1L << index);
+        walls[word] &= mask;
+        food[word] &= mask;
+        monsters[word] &= mask;
+        players[word] &= mask;
+        long[] bits = bitsOf(type);
+        if (bits != null) {
+            bits[word] |= ~mask;
+        }
+    }
+
+    /**
+     * Return the Zobrist key of a guest type in a square. The keys are
+     * derived from the type and the index by a fixed mixing function,
+     * rather than drawn from a table, so they take no memory and are the
+     * same for every board.
+     *
+     * @param type
+     *            A guest type code
+     * @param index
+     *            Index of a square
+     * @return The key, 0 for the empty type.
+     */
+    static long key(char type, int index) {
+        int slot = "WFMP".indexOf(type);
+        long result = 0;
+        if (slot >= 0) {
+            // the finalizer of SplitMix64.
+            long z = (4L * index + slot + 1) * 0x9E3779B97F4A7C15L;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            result = z ^ (z >>> 31);
+        }
+        return result;
+    }
+
+    /**
+     * Switch maintaining the hash on or off. While it is off, threads can
+     * update disjoint words; switching it on again recomputes the hash.
+     *
+     * @param on
+     *            True iff the hash should be kept up to date.
+     */
+    void setHashing(boolean on) {
+        if (on && !hashing) {
+            long h = 0;
+            char[] types = {Guest.WALL_TYPE, Guest.FOOD_TYPE,
+                Guest.MONSTER_TYPE, Guest.PLAYER_TYPE};
+            for (char type : types) {
+                long[] bits = bitsOf(type);
+                for (int w = 0; w < bits.length; w++) {
+                    for (long b = bits[w]; b != 0; b &= b - 1) {
+                        h ^= key(type, (w << WORD_SHIFT)
+                                + Long.numberOfTrailingZeros(b));
+                    }
+                }
+            }
+            hash = h;
+        }
+        hashing = on;
+    }
+
+    /**
+     * Return the Zobrist hash of the contents of the board: equal
+     * contents give equal hashes, on any board of the same width.
+     *
+     * @return The hash, maintained with every change.
+     */
+    public long hash() {
+        assert hashing;
+        return hash;
+    }
+
+    /**
+     * @param type
+     *            A guest type code, other than the empty type
+     * @param index
+     *            Index of a square
+     * @return True iff a guest of the given type occupies the square.
+     */
+    public boolean has(char type, int index) {
+        assert 0 <= index && index < width * height;
+        return (bitsOf(type)[index >>> WORD_SHIFT] & (1L << index)) != 0;
+    }
+
+    /**
+     * @param index
+     *            Index of a square
+     * @return True iff some guest occupies the square.
+     */
+    public boolean occupied(int index) {
+        assert 0 <= index && index < width * height;
+        int word = index >>> WORD_SHIFT;
+        return ((walls[word] | food[word] | monsters[word] | players[word])
+                & (1L << index)) != 0;
+    }
+
+    /**
+     * @param index
+     *            Index of a square
+     * @return True iff the square holds a wall or food, which monsters
+     *         can't pass.
+     */
+    public boolean wallOrFood(int index) {
+        assert 0 <= index && index < width * height;
+        int word = index >>> WORD_SHIFT;
+        return ((walls[word] | food[word]) & (1L << index)) != 0;
+    }
+
+    /**
+     * @param index
+     *            Index of a square
+     * @return True iff a monster could enter the square: it holds neither
+     *         a wall nor food, nor another monster.
+     */
+    public boolean enterable(int index) {
+        assert 0 <= index && index < width * height;
+        int word = index >>> WORD_SHIFT;
+        return ((walls[word] | food[word] | monsters[word])
+                & (1L << index)) == 0;
+    }
+
+    /**
+     * @param index
+     *            Index of a square
+     * @return The type code of the guest in the square.
+     */
+    public char typeAt(int index) {
+        assert 0 <= index && index < width * height;
+        int word = index >>> WORD_SHIFT;
+        long bit = 1L << index;
+        char result = Guest.EMPTY_TYPE;
+        if ((walls[word] & bit) != 0) {
+            result = Guest.WALL_TYPE;
+        } else if ((food[word] & bit) != 0) {
+            result = Guest.FOOD_TYPE;
+        } else if ((monsters[word] & bit) != 0) {
+            result = Guest.MONSTER_TYPE;
+        } else if ((players[word] & bit) != 0) {
+            result = Guest.PLAYER_TYPE;
+        }
+        return result;
+    }
+
+    /**
+     * @param type
+     *            A guest type code, other than the empty type
+     * @return The number of squares occupied by guests of the given type.
+     */
+    public int count(char type) {
+        int result = 0;
+        for (long word : bitsOf(type)) {
+            result += Long.bitCount(word);
+        }
+        return result;
+    }
+
+    /**
+     * @param x
+     *            Horizontal coordinate of a square on the board
+     * @param y
+     *            Vertical coordinate of a square on the board
+     * @return True iff a monster occupies one of the (up to) four squares
+     *         next to (x,y).
+     */
+    public boolean monsterAdjacent(int x, int y) {
+        assert 0 <= x && x < width && 0 <= y && y < height;
+        int i = y * width + x;
+        return x > 0 && monsterAt(i - 1)
+            || x < width - 1 && monsterAt(i + 1)
+            || y > 0 && monsterAt(i - width)
+            || y < height - 1 && monsterAt(i + width);
+    }
+
+    /**
+     * @param index
+     *            Index of a square
+     * @return True iff a monster occupies the square.
+     */
+    private boolean monsterAt(int index) {
+        return (monsters[index >>> WORD_SHIFT] & (1L << index)) != 0;
+    }
+
+    /**
+     * Return a word of the bit set of a type, for searches combining whole
+     * words at a time.
+     *
+     * @param type
+     *            A guest type code, other than the empty type
+     * @param word
+     *            Index of the word, covering squares 64 * word up to
+     *            64 * word + 63
+     * @return The bits of the given word.
+     */
+    public long word(char type, int word) {
+        return bitsOf(type)[word];
+    }
+
+    /**
+     * @return The number of words in each bit set.
+     */
+    public int wordCount() {
+        return walls.length;
+    }
+}
@@ -1,5 +1,7 @@
 package jpacman.model;
 
+import java.util.BitSet;
+
 /**
  * Maintain a rectangular board of cells, potentially occupied by guests. After
  * the board has been created, the dimensions cannot be modified anymore. Guests
@@ -20,6 +22,30 @@ public class Board {
      */
     private Cell[][] cellAt;
 
+    /**
+     * Indices of the cells whose inhabitant changed since the last time
+     * they were taken.
+     */
+    private BitSet touched = new BitSet();
+
+    /**
+     * Indices of the cells whose inhabitant changed since the modified
+     * cells were last taken, which is at least as long ago as the cells
+     * last touched.
+     */
+    private BitSet modified = new BitSet();
+
+    /**
+     * The squares occupied by each type of guest.
+     */
+    private final Bitboards bitboards;
+
+    /**
+     * False while the board is being filled, in which case changes to
+     * cells aren't remembered as touched.
+     */
+    private boolean trackingChanges = true;
+
     /**
      * Create a new board given a width and a height.
      *
@@ -29,18 +55,70 @@ public class Board {
      *            Height of the board
      */
     public Board(int w, int h) {
+        this(w, h, true);
+        assert consistentBoardCellAssociation();
+    }
+
+    /**
+     * Create a new board given a width and a height, optionally without
+     * allocating its cells. The latter is meant for subclasses that keep
+     * track of the board contents in a different way.
+     *
+     * @param w
+     *            Width of the board
+     * @param h
+     *            Height of the board
+     * @param allocateCells
+     *            True iff a cell object should be created for every square
+     */
+    protected Board(int w, int h, boolean allocateCells) {
+        this(w, h, allocateCells, new Bitboards(w, h));
+    }
+
+    /**
+     * Create a new board without cells, whose squares are occupied
+     * according to the given bit sets. Meant for subclasses that keep
+     * track of the board contents in a different way.
+     *
+     * @param w
+     *            Width of the board
+     * @param h
+     *            Height of the board
+     * @param bits
+     *            The squares occupied by each type of guest, not to be
+     *            shared with other boards
+     */
+    Board(int w, int h, Bitboards bits) {
+        this(w, h, false, bits);
+    }
+
+    /**
+     * Create a new board given a width, a height and its bit sets.
+     *
+     * @param w
+     *            Width of the board
+     * @param h
+     *            Height of the board
+     * @param allocateCells
+     *            True iff a cell object should be created for every square
+     * @param bits
+     *            The squares occupied by each type of guest
+     */
+    private Board(int w, int h, boolean allocateCells, Bitboards bits) {
         assert w >= 0;
         assert h >= 0;
         width = w;
         height = h;
-        cellAt = new Cell[w][h];
-        for (int x = 0; x < w; x++) {
-            for (int y = 0; y < h; y++) {
-                cellAt[x][y] = new Cell(x, y, this);
+        bitboards = bits;
+        if (allocateCells) {
+            cellAt = new Cell[w][h];
+            for (int x = 0; x < w; x++) {
+                for (int y = 0; y < h; y++) {
+                    cellAt[x][y] = new Cell(x, y, this);
+                }
             }
         }
         assert invariant();
-        assert consistentBoardCellAssociation();
     }
 
     /**
@@ -53,6 +131,139 @@ public class Board {
         return width >= 0 && height >= 0;
     }
 
+    /**
+     * Place a guest that never moves (a wall or food) on the board by its
+     * type code only, without creating a guest object for it. Boards that
+     * create a cell for every square don't support this, and return false,
+     * in which case the caller should create and place the guest itself.
+     * Precondition: (x,y) falls within the borders and is still empty.
+     *
+     * @param code
+     *            Type code of the guest
+     * @param x
+     *            Horizontal coordinate of the guest
+     * @param y
+     *            Vertical coordinate of the guest
+     * @return True iff the guest has been placed.
+     */
+    boolean putCode(char code, int x, int y) {
+        assert withinBorders(x, y);
+        return false;
+    }
+
+    /**
+     * Notification that the inhabitant of one of this board's cells has
+     * changed. Invoked by the cell itself; the cell is remembered as
+     * touched.
+     *
+     * @param cell
+     *            The cell whose inhabitant changed.
+     */
+    void guestChanged(Cell cell) {
+        int i = index(cell.getX(), cell.getY());
+        Guest g = cell.getInhabitant();
+        bitboards.update(i, g == null ? Guest.EMPTY_TYPE : g.guestType());
+        if (trackingChanges) {
+            touched.set(i);
+            modified.set(i);
+        }
+    }
+
+    /**
+     * Return the bit sets telling which squares are occupied by which type
+     * of guest, which are kept up to date as guests come and go.
+     *
+     * @return The bit sets of this board, not to be modified.
+     */
+    public Bitboards getBitboards() {
+        return bitboards;
+    }
+
+    /**
+     * Switch remembering touched cells on or off. Switching it off allows
+     * different threads to fill disjoint ranges of whole bitboard words of
+     * a new board: a freshly loaded board is reported as entirely new
+     * anyway, and the bitboards are the only other state shared between
+     * cells. Their hash is recomputed once tracking is switched on again.
+     *
+     * @param track
+     *            True iff changed cells should be remembered as touched.
+     */
+    void trackChanges(boolean track) {
+        trackingChanges = track;
+        bitboards.setHashing(track);
+    }
+
+    /**
+     * @return The number of cells touched since touched cells were last
+     *         taken.
+     */
+    int touchedCount() {
+        return touched.cardinality();
+    }
+
+    /**
+     * Store the cells touched since the previous invocation in an array,
+     * and start collecting touched cells afresh.
+     *
+     * @param target
+     *            Array receiving the indices of the touched cells, in
+     *            increasing order, with room for touchedCount() of them.
+     * @return The number of touched cells stored.
+     * @see #index(int, int)
+     */
+    int takeTouchedCells(int[] target) {
+        int n = 0;
+        for (int i = touched.nextSetBit(0); i >= 0;
+                i = touched.nextSetBit(i + 1)) {
+            target[n++] = i;
+        }
+        touched.clear();
+        return n;
+    }
+
+    /**
+     * Add the cells touched since touched cells were last taken to a set,
+     * leaving the set of touched cells as is.
+     *
+     * @param target
+     *            Set receiving the indices of the touched cells.
+     * @see #index(int, int)
+     */
+    void addTouchedCells(BitSet target) {
+        target.or(touched);
+    }
+
+    /**
+     * Return the cells modified since the previous invocation, and start
+     * collecting modified cells afresh. Unlike the touched cells, these
+     * are kept independently of any notifications, so that a game can
+     * tell which cells differ from its initial board.
+     *
+     * @return The indices of the modified cells.
+     * @see #index(int, int)
+     */
+    BitSet takeModifiedCells() {
+        BitSet result = modified;
+        modified = new BitSet();
+        return result;
+    }
+
+    /**
+     * Refresh the given copy of the guest codes for the cells touched since
+     * touched cells were last taken, leaving the set of touched cells as is.
+     *
+     * @param codes
+     *            Codes of all cells, indexed as by index(x, y).
+     */
+    void copyTouchedCodes(char[] codes) {
+        assert codes != null && codes.length == width * height;
+        for (int i = touched.nextSetBit(0); i >= 0;
+                i = touched.nextSetBit(i + 1)) {
+            codes[i] = guestCode(i % width, i / width);
+        }
+    }
+
     /**
      * Check that each cell has a correct link to this board. This function
      * could be part of the invariant, but checking it each time is considered
@@ -92,6 +303,34 @@ public class Board {
         return result;
     }
 
+    /**
+     * Compute the index of position (x,y) when numbering the cells
+     * row by row. Precondition: (x,y) falls within the borders.
+     *
+     * @param x
+     *            Horizontal coordinate
+     * @param y
+     *            Vertical coordinate
+     * @return <code>y * width + x</code>
+     */
+    int index(int x, int y) {
+        assert withinBorders(x, y);
+        return y * width + x;
+    }
+
+    /**
+     * Return the cell with the given index, numbering the cells row by row.
+     *
+     * @param index
+     *            Index of the cell
+     * @return The cell at (index % width, index / width).
+     * @see #index(int, int)
+     */
+    Cell getCell(int index) {
+        assert 0 <= index && index < width * height;
+        return getCell(index % width, index / width);
+    }
+
     /**
      * Return the guest occupying position (x,y), or null if the cell is emtpy.
      * Precondition: (x,y) falls wihtin the borders of the board.
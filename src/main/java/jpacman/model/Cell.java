@@ -103,6 +103,7 @@ public class Cell {
         assert inhabitant==null;
 
         inhabitant = aGuest;
+        board.guestChanged(this);
 
         assert getInhabitant()==aGuest;
         assert invariant();
@@ -121,6 +122,7 @@ public class Cell {
         assert inhabitant==null || inhabitant.getLocation()==null;
 
         inhabitant = null;
+        board.guestChanged(this);
 
         assert inhabitant==null;
         assert invariant();
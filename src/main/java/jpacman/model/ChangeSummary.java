@@ -0,0 +1,179 @@
+package jpacman.model;
+
+/**
+ * Summary of what changed in an engine since its observers were last
+ * notified: the cells whose inhabitant changed, the amount of food eaten
+ * in the mean time, and the state before and after. An engine passes a
+ * summary as argument to the update method of its observers, so that they
+ * only need to refresh what actually changed.
+ * <p>
+ * If the board itself was replaced, e.g. because a game over was followed
+ * by a restart, no individual cells are listed and allCellsTouched holds.
+ * <p>
+ * An engine reuses its summary for every notification, so that notifying
+ * doesn't allocate. A summary is therefore only valid during the update
+ * it is passed to: observers should take what they need from it, rather
+ * than keep it.
+ *
+ * @see Engine#flushChanges()
+ */
+public final class ChangeSummary {
+
+    /**
+     * Width of the board, used to turn cell indices into coordinates.
+     */
+    private int width;
+
+    /**
+     * Indices of the touched cells, followed by unused entries.
+     */
+    private int[] touchedCells = new int[0];
+
+    /**
+     * Number of touched cells.
+     */
+    private int touchedCount;
+
+    /**
+     * True iff every cell should be considered touched.
+     */
+    private boolean allCells;
+
+    /**
+     * Change in the amount of food eaten.
+     */
+    private int scoreDelta;
+
+    /**
+     * State at the previous notification.
+     */
+    private Engine.State previousState;
+
+    /**
+     * State at this notification.
+     */
+    private Engine.State state;
+
+    /**
+     * Create an empty summary, to be filled by the engine.
+     */
+    ChangeSummary() {
+    }
+
+    /**
+     * Make room for the given number of touched cells.
+     *
+     * @param n
+     *            The number of touched cells
+     * @return The array to store their indices in, y * width + x.
+     */
+    int[] cellsFor(int n) {
+        if (touchedCells.length < n) {
+            touchedCells = new int[Math.max(n, 2 * touchedCells.length)];
+        }
+        return touchedCells;
+    }
+
+    /**
+     * Fill in the summary. The indices of the touched cells should have
+     * been stored in the array returned by cellsFor.
+     *
+     * @param boardWidth
+     *            Width of the board
+     * @param cells
+     *            Number of cells touched
+     * @param all
+     *            True iff every cell should be considered touched
+     * @param delta
+     *            Change in the amount of food eaten
+     * @param before
+     *            State at the previous notification
+     * @param after
+     *            Current state
+     */
+    void set(int boardWidth, int cells, boolean all, int delta,
+            Engine.State before, Engine.State after) {
+        assert 0 <= cells && cells <= touchedCells.length;
+        assert before != null && after != null;
+        width = boardWidth;
+        touchedCount = cells;
+        allCells = all;
+        scoreDelta = delta;
+        previousState = before;
+        state = after;
+    }
+
+    /**
+     * @return true iff every cell should be redrawn.
+     */
+    public boolean allCellsTouched() {
+        return allCells;
+    }
+
+    /**
+     * @return The number of individual cells touched.
+     */
+    public int touchedCount() {
+        return touchedCount;
+    }
+
+    /**
+     * @param i
+     *            Index in the list of touched cells, 0 &lt;= i &lt;
+     *            touchedCount().
+     * @return Index of the i-th touched cell, y * width + x.
+     */
+    public int touchedIndex(int i) {
+        assert 0 <= i && i < touchedCount;
+        return touchedCells[i];
+    }
+
+    /**
+     * @param i
+     *            Index in the list of touched cells, 0 &lt;= i &lt;
+     *            touchedCount().
+     * @return Horizontal coordinate of the i-th touched cell.
+     */
+    public int touchedX(int i) {
+        return touchedCells[i] % width;
+    }
+
+    /**
+     * @param i
+     *            Index in the list of touched cells, 0 &lt;= i &lt;
+     *            touchedCount().
+     * @return Vertical coordinate of the i-th touched cell.
+     */
+    public int touchedY(int i) {
+        return touchedCells[i] / width;
+    }
+
+    /**
+     * @return Change in the amount of food eaten since the previous
+     *         notification.
+     */
+    public int getScoreDelta() {
+        return scoreDelta;
+    }
+
+    /**
+     * @return The state at the previous notification.
+     */
+    public Engine.State getPreviousState() {
+        return previousState;
+    }
+
+    /**
+     * @return The current state.
+     */
+    public Engine.State getState() {
+        return state;
+    }
+
+    /**
+     * @return true iff a state transition occurred.
+     */
+    public boolean stateChanged() {
+        return previousState != state;
+    }
+}
@@ -0,0 +1,224 @@
+package jpacman.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A board for (very) large maps. Instead of creating a cell and a guest
+ * object for every square, the guest type code of each square is kept in a
+ * flat array indexed by <code>y * width + x</code>. Cell objects, and the
+ * walls or food they contain, are only created once a square is actually
+ * needed as a cell -- in practice, the squares the moving guests occupy and
+ * try to move to.
+ * <p>
+ * Once created, a cell stays around, so that moves keeping a reference to
+ * it remain valid.
+ */
+public class CompactBoard extends Board {
+
+    /**
+     * The guest type code of every square, row by row.
+     */
+    private char[] codes;
+
+    /**
+     * The cells created so far, keyed by their square index.
+     */
+    private HashMap<Integer, Cell> cells = new HashMap<Integer, Cell>();
+
+    /**
+     * Create a new, empty compact board given a width and a height.
+     *
+     * @param w
+     *            Width of the board
+     * @param h
+     *            Height of the board
+     */
+    public CompactBoard(int w, int h) {
+        super(w, h, false);
+        codes = new char[w * h];
+        Arrays.fill(codes, Guest.EMPTY_TYPE);
+        assert codes.length == getWidth() * getHeight();
+        assert invariant();
+    }
+
+    /**
+     * Create a new compact board containing the walls and food of a
+     * template, without any cells yet.
+     *
+     * @param w
+     *            Width of the board
+     * @param h
+     *            Height of the board
+     * @param template
+     *            Codes of the walls and food of all squares, indexed by
+     *            y * width + x; all other squares should be empty.
+     * @param bits
+     *            Bit sets of the walls and food in the template
+     */
+    CompactBoard(int w, int h, char[] template, Bitboards bits) {
+        super(w, h, bits.copy());
+        assert template.length == w * h;
+        codes = template.clone();
+        assert invariant();
+    }
+
+    /**
+     * Check that each cell created has a correct link to this board, and that
+     * its inhabitant is reflected in the code array.
+     *
+     * @return True iff the cell/board association is consistent
+     */
+    @Override
+    protected boolean consistentBoardCellAssociation() {
+        boolean result = true;
+        for (Cell c : cells.values()) {
+            Guest g = c.getInhabitant();
+            char code = g == null ? Guest.EMPTY_TYPE : g.guestType();
+            result = result && c.getBoard().equals(this)
+                && codes[index(c.getX(), c.getY())] == code;
+        }
+        return result;
+    }
+
+    /**
+     * Return the cell at position (x,y), creating it (and the wall or food
+     * it contains) if that hasn't been done before. Precondition: (x,y)
+     * falls within the borders of the board.
+     *
+     * @param x
+     *            Horizontal coordinate of the requested cell
+     * @param y
+     *            Vertical coordinate of the requested cell
+     * @return The cell at (x,y).
+     */
+    @Override
+    public Cell getCell(int x, int y) {
+        assert invariant();
+        assert withinBorders(x, y)
+        : "Cell requested (" + x + "," + y + ") out of borders "
+        + getWidth() + " * " + getHeight();
+        int i = index(x, y);
+        Cell result = cells.get(i);
+        if (result == null) {
+            result = new Cell(x, y, this);
+            cells.put(i, result);
+            Guest resident = createStaticGuest(codes[i]);
+            if (resident != null) {
+                resident.occupy(result);
+            }
+        }
+        assert result != null;
+        assert invariant();
+        return result;
+    }
+
+    /**
+     * Create the guest object for a square that so far only had a code.
+     *
+     * @param code
+     *            The square's code.
+     * @return A fresh wall or food element, or null for an empty square.
+     */
+    private Guest createStaticGuest(char code) {
+        Guest result = null;
+        switch (code) {
+        case Guest.WALL_TYPE:
+            result = new Wall();
+            break;
+        case Guest.FOOD_TYPE:
+            result = new Food();
+            break;
+        case Guest.EMPTY_TYPE:
+            break;
+        default:
+            assert false : "moving guests always have a cell";
+        }
+        return result;
+    }
+
+    /**
+     * Return the guest occupying position (x,y), or null if the cell is
+     * empty. Empty squares are answered without creating a cell.
+     * Precondition: (x,y) falls wihtin the borders of the board.
+     *
+     * @param x
+     *            Horizontal coordinate of the requested cell
+     * @param y
+     *            Vertical coordinate of the requested cell
+     * @return The guest at (x,y).
+     */
+    @Override
+    public Guest getGuest(int x, int y) {
+        assert invariant();
+        assert withinBorders(x, y);
+        Guest result = null;
+        if (codes[index(x, y)] != Guest.EMPTY_TYPE) {
+            result = getCell(x, y).getInhabitant();
+        }
+        return result;
+    }
+
+    /**
+     * Return the guest code of the cell at (x,y), straight from the code
+     * array.
+     *
+     * @param x
+     *            Horizontal position
+     * @param y
+     *            Vertical position
+     * @return Code representing guest type
+     */
+    @Override
+    public char guestCode(int x, int y) {
+        assert invariant();
+        assert withinBorders(x, y);
+        return codes[index(x, y)];
+    }
+
+    /**
+     * Store a wall or food element by its code only, unless a cell already
+     * exists for the square.
+     *
+     * @param code
+     *            Type code of the guest
+     * @param x
+     *            Horizontal coordinate of the guest
+     * @param y
+     *            Vertical coordinate of the guest
+     * @return True iff the guest has been placed.
+     */
+    @Override
+    boolean putCode(char code, int x, int y) {
+        assert code == Guest.WALL_TYPE || code == Guest.FOOD_TYPE;
+        assert codes[index(x, y)] == Guest.EMPTY_TYPE
+            : "only empty cells can be filled.";
+        boolean result = !cells.containsKey(index(x, y));
+        if (result) {
+            codes[index(x, y)] = code;
+            getBitboards().update(index(x, y), code);
+        }
+        return result;
+    }
+
+    /**
+     * Keep the code array in sync with the cell's inhabitant.
+     *
+     * @param cell
+     *            The cell whose inhabitant changed.
+     */
+    @Override
+    void guestChanged(Cell cell) {
+        super.guestChanged(cell);
+        Guest g = cell.getInhabitant();
+        codes[index(cell.getX(), cell.getY())] =
+            g == null ? Guest.EMPTY_TYPE : g.guestType();
+    }
+
+    /**
+     * @return The number of squares for which a cell has been created.
+     */
+    public int cellsCreated() {
+        return cells.size();
+    }
+}
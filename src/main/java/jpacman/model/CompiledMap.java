@@ -0,0 +1,347 @@
+package jpacman.model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A map that has been checked and summarized once, so that it can be
+ * loaded again without parsing. It knows the position of the player and
+ * the monsters and the amount of food up front, and keeps its walls and
+ * food as a template that a compact board simply copies.
+ * <p>
+ * Compiled maps can be stored in a binary file: a header with the
+ * dimensions, the player position, the number of food elements and the
+ * number of monsters, followed by the codes of all squares in reading
+ * order, packed two to a byte (the first one in the low four bits).
+ *
+ * @see Game#Game(MapSource, boolean)
+ */
+public final class CompiledMap implements MapSource {
+
+    /**
+     * File name extension of compiled map files.
+     */
+    public static final String SUFFIX = ".cmap";
+
+    /**
+     * First four bytes of a compiled map file: "JPMC".
+     */
+    static final int MAGIC = 0x4A504D43;
+
+    /**
+     * Version of the file format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * The guest type codes, indexed by their value in the packed stream.
+     */
+    private static final String CODES = "" + Guest.EMPTY_TYPE
+        + Guest.WALL_TYPE + Guest.FOOD_TYPE + Guest.PLAYER_TYPE
+        + Guest.MONSTER_TYPE;
+
+    /**
+     * Width and height of the map.
+     */
+    private final int width, height;
+
+    /**
+     * The codes of all squares, two to a byte.
+     */
+    private final byte[] packed;
+
+    /**
+     * Number of food elements on the map.
+     */
+    private final int foodCount;
+
+    /**
+     * Indices (y * width + x) of the player and the monsters, in reading
+     * order.
+     */
+    private final int[] movers;
+
+    /**
+     * Index of the player.
+     */
+    private final int playerIndex;
+
+    /**
+     * The codes of the walls and food of all squares, created once a
+     * compact board needs them.
+     */
+    private char[] template;
+
+    /**
+     * The bit sets of the walls and food of the template.
+     */
+    private Bitboards bitTemplate;
+
+    /**
+     * Summarize the packed codes of a map, checking that they are valid.
+     *
+     * @param w
+     *            Width of the map
+     * @param h
+     *            Height of the map
+     * @param cells
+     *            The packed codes of all squares
+     * @throws IllegalArgumentException
+     *             If the map contains unknown codes, or not exactly one
+     *             player.
+     */
+    private CompiledMap(int w, int h, byte[] cells) {
+        width = w;
+        height = h;
+        packed = cells;
+        int food = 0;
+        int player = -1;
+        int[] found = new int[0];
+        int count = 0;
+        for (int i = 0; i < w * h; i++) {
+            int value = nibble(i);
+            if (value >= CODES.length()) {
+                throw new IllegalArgumentException(
+                        "unknown code " + value + " at square " + i);
+            }
+            char code = CODES.charAt(value);
+            if (code == Guest.FOOD_TYPE) {
+                food++;
+            } else if (code == Guest.PLAYER_TYPE
+                    || code == Guest.MONSTER_TYPE) {
+                if (code == Guest.PLAYER_TYPE) {
+                    if (player >= 0) {
+                        throw new IllegalArgumentException(
+                                "second player at square " + i);
+                    }
+                    player = i;
+                }
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, 2 * count + 4);
+                }
+                found[count++] = i;
+            }
+        }
+        if (player < 0) {
+            throw new IllegalArgumentException("no player on the map");
+        }
+        foodCount = food;
+        playerIndex = player;
+        movers = Arrays.copyOf(found, count);
+    }
+
+    /**
+     * Compile a map.
+     *
+     * @param map
+     *            The map to be compiled
+     * @return The compiled map.
+     * @throws IllegalArgumentException
+     *             If the map is empty, contains unknown codes, or doesn't
+     *             contain exactly one player.
+     */
+    public static CompiledMap compile(MapSource map) {
+        int w = map.getWidth();
+        int h = map.getHeight();
+        if (w <= 0 || h <= 0) {
+            throw new IllegalArgumentException("empty map");
+        }
+        byte[] cells = new byte[(int) (((long) w * h + 1) / 2)];
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                char code = map.codeAt(x, y);
+                int value = CODES.indexOf(code);
+                if (value < 0) {
+                    throw new IllegalArgumentException("unknown cell type ``"
+                            + code + "'' at (" + x + "," + y + ")");
+                }
+                int i = y * w + x;
+                cells[i >> 1] |= (byte) (value << ((i & 1) << 2));
+            }
+        }
+        return new CompiledMap(w, h, cells);
+    }
+
+    /**
+     * Read a compiled map from a file.
+     *
+     * @param file
+     *            The compiled map file
+     * @return The map stored in the file.
+     * @throws IOException
+     *             If the file can't be read, or doesn't contain a valid
+     *             compiled map.
+     */
+    public static CompiledMap read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException(file + ": not a compiled map");
+            }
+            int w = in.readInt();
+            int h = in.readInt();
+            int px = in.readInt();
+            int py = in.readInt();
+            int food = in.readInt();
+            int monsters = in.readInt();
+            if (w <= 0 || h <= 0 || (long) w * h > Integer.MAX_VALUE) {
+                throw new IOException(file + ": invalid dimensions "
+                        + w + "x" + h);
+            }
+            byte[] cells = new byte[(int) (((long) w * h + 1) / 2)];
+            in.readFully(cells);
+            if (in.read() >= 0) {
+                throw new IOException(file + ": trailing data");
+            }
+            CompiledMap result;
+            try {
+                result = new CompiledMap(w, h, cells);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(file + ": " + e.getMessage(), e);
+            }
+            if (result.getPlayerX() != px || result.getPlayerY() != py
+                    || result.foodCount != food
+                    || result.movers.length != monsters + 1) {
+                throw new IOException(file + ": header doesn't match map");
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Write this map to a file.
+     *
+     * @param file
+     *            The file to be written
+     * @throws IOException
+     *             If the file can't be written.
+     */
+    public void write(Path file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(width);
+            out.writeInt(height);
+            out.writeInt(getPlayerX());
+            out.writeInt(getPlayerY());
+            out.writeInt(foodCount);
+            out.writeInt(getMonsterCount());
+            out.write(packed);
+        }
+    }
+
+    /**
+     * @param i
+     *            Index of a square
+     * @return The value of the square in the packed stream.
+     */
+    private int nibble(int i) {
+        return (packed[i >> 1] >> ((i & 1) << 2)) & 0xF;
+    }
+
+    /**
+     * @see MapSource#getWidth()
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @see MapSource#getHeight()
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @see MapSource#codeAt(int, int)
+     */
+    public char codeAt(int x, int y) {
+        assert 0 <= x && x < width && 0 <= y && y < height;
+        return CODES.charAt(nibble(y * width + x));
+    }
+
+    /**
+     * @return The column of the player.
+     */
+    public int getPlayerX() {
+        return playerIndex % width;
+    }
+
+    /**
+     * @return The row of the player.
+     */
+    public int getPlayerY() {
+        return playerIndex / width;
+    }
+
+    /**
+     * @return The number of food elements on the map.
+     */
+    public int getFoodCount() {
+        return foodCount;
+    }
+
+    /**
+     * @return The number of monsters on the map.
+     */
+    public int getMonsterCount() {
+        return movers.length - 1;
+    }
+
+    /**
+     * @return Indices (y * width + x) of the player and the monsters, in
+     *         reading order. Not to be modified.
+     */
+    int[] getMovers() {
+        return movers;
+    }
+
+    /**
+     * Return the codes of the walls and food of all squares, indexed by
+     * y * width + x, with the squares of the player and the monsters
+     * empty. The template is created the first time it is asked for.
+     *
+     * @return The template, not to be modified.
+     */
+    synchronized char[] codeTemplate() {
+        if (template == null) {
+            char[] codes = new char[width * height];
+            for (int i = 0; i < codes.length; i++) {
+                char code = CODES.charAt(nibble(i));
+                codes[i] = code == Guest.WALL_TYPE || code == Guest.FOOD_TYPE
+                    ? code : Guest.EMPTY_TYPE;
+            }
+            template = codes;
+        }
+        return template;
+    }
+
+    /**
+     * Return the bit sets of the walls and food in the code template,
+     * created the first time they are asked for.
+     *
+     * @return The bit sets, not to be modified.
+     * @see #codeTemplate()
+     */
+    synchronized Bitboards bitboardTemplate() {
+        if (bitTemplate == null) {
+            char[] codes = codeTemplate();
+            Bitboards bits = new Bitboards(width, height);
+            for (int i = 0; i < codes.length; i++) {
+                if (codes[i] != Guest.EMPTY_TYPE) {
+                    bits.update(i, codes[i]);
+                }
+            }
+            bitTemplate = bits;
+        }
+        return bitTemplate;
+    }
+}
@@ -0,0 +1,745 @@
+package jpacman.model;
+
+import java.util.Arrays;
+
+/**
+ * The number of monster steps from every cell of a board to one source
+ * cell, typically the player's. The distances are computed by a single
+ * breadth-first search, after which a monster can find a step toward the
+ * source by just comparing the distances of its neighbours.
+ * <p>
+ * Monsters cannot enter walls or food, so these block the search. Other
+ * monsters don't, since they move out of the way soon enough. The map is
+ * a cache: it reflects the board contents at the last computation, plus
+ * the changes it has been told about since.
+ * <p>
+ * Changes are handled incrementally. A cell that becomes blocked, or a
+ * source that moves away, first invalidates the cells that lost their
+ * only shortest path -- the cells without a neighbour one step closer to
+ * the source. The invalidated cells, together with a cell that becomes
+ * passable or the new source, are then settled again by a search that
+ * only visits cells whose distance actually changes. Since a moving
+ * source can change the distance of almost every cell on an open board,
+ * the map falls back to a full computation once the cells invalidated
+ * and settled grow beyond a fraction of the board. An abandoned update
+ * costs more than the full computation it gives way to, so after a
+ * source move is abandoned, the following source moves are computed in
+ * full right away, for a number of moves that doubles with every
+ * consecutive abandoned attempt. Once the source moves into a part of the
+ * board where its moves affect fewer cells, incremental updates resume.
+ * <p>
+ * Incremental updates pay off for changing cells, and for source moves
+ * in narrow corridors. They don't make a step of the source an order of
+ * magnitude cheaper than a full computation in general. A step to a
+ * neighbouring cell changes the distance of every cell that can be
+ * reached from both, by one up or down, and on an open board that is
+ * nearly every cell. A map holding the distance of every cell has to
+ * rewrite all of those, just as a full computation does, and the bucket
+ * queue makes that dearer per cell than the plain search. Measured on
+ * 1000x1000 boards, a step costs about 17 ms against 19 ms for a full
+ * computation on an open board, and about 1.1 ms against 2.5 ms when
+ * diagonal lines of food cut the board into strips.
+ */
+public class DistanceMap {
+
+    /**
+     * Distance of cells from which the source cannot be reached.
+     */
+    public static final int UNREACHABLE = -1;
+
+    /**
+     * An incremental update invalidating or settling more than one in this
+     * many cells is abandoned in favour of a full computation.
+     */
+    public static final int FALLBACK_FRACTION = 8;
+
+    /**
+     * Number of cells an incremental update may always handle: on small
+     * boards a full computation isn't worth avoiding anyway.
+     */
+    private static final int MIN_WORK = 64;
+
+    /**
+     * Largest number of source moves computed in full in a row, without
+     * attempting an incremental update.
+     */
+    public static final int MAX_SKIPPED_MOVES = 64;
+
+    /**
+     * Internal distance of unreachable cells, larger than any real one.
+     */
+    private static final int INFINITE = Integer.MAX_VALUE;
+
+    /**
+     * Marks the end of a list of cells in a bucket.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * The board the distances are computed for.
+     */
+    private final Board board;
+
+    /**
+     * The bit sets telling which squares are blocked.
+     */
+    private final Bitboards bits;
+
+    /**
+     * Width and height of the board.
+     */
+    private final int width, height;
+
+    /**
+     * Distance of every cell to the source, indexed by y * width + x.
+     */
+    private final int[] distance;
+
+    /**
+     * Whether every cell was blocked when the map was last told about it.
+     */
+    private final boolean[] blocked;
+
+    /**
+     * Queue of cell indices used by the breadth-first search.
+     */
+    private final int[] queue;
+
+    /**
+     * Coordinates of the source, or -1 if not computed yet.
+     */
+    private int sourceX = -1, sourceY = -1;
+
+    /**
+     * Bucket queue used by incremental updates, allocated on first use:
+     * the first cell queued with every key, and per cell the neighbouring
+     * cells in its bucket.
+     */
+    private int[] bucketHead, bucketNext, bucketPrev;
+
+    /**
+     * Key under which every queued cell is queued.
+     */
+    private int[] bucketKey;
+
+    /**
+     * Whether every cell is currently queued, or invalidated.
+     */
+    private boolean[] queued, invalid;
+
+    /**
+     * The cells invalidated by the current update; invalidCount of them.
+     */
+    private int[] invalidCells;
+
+    /**
+     * Number of invalidated cells.
+     */
+    private int invalidCount;
+
+    /**
+     * Smallest key that may still have cells queued, and the largest key
+     * queued so far.
+     */
+    private int minKey, maxKey;
+
+    /**
+     * Number of full computations, and of incremental updates, so far.
+     */
+    private int fullComputations, incrementalUpdates;
+
+    /**
+     * Number of incremental updates abandoned so far.
+     */
+    private int abandonedUpdates;
+
+    /**
+     * Number of cells invalidated or settled by the current update.
+     */
+    private int work;
+
+    /**
+     * Number of source moves still to be computed in full without an
+     * attempt at an incremental update, and the number of moves to skip
+     * after the next abandoned attempt.
+     */
+    private int skippedMoves, backoff = 1;
+
+    /**
+     * Create a distance map for the given board, in which every cell is
+     * unreachable until the first computation.
+     *
+     * @param b
+     *            The board to compute distances on.
+     */
+    public DistanceMap(Board b) {
+        this(b, b.getBitboards());
+    }
+
+    /**
+     * Create a distance map for the given board, reading its contents
+     * from the given bit sets rather than from the board itself -- for
+     * example a copy kept up to date by a caller that mustn't read the
+     * board while others change it.
+     *
+     * @param b
+     *            The board to compute distances on.
+     * @param view
+     *            Bit sets of the size of the board, telling which
+     *            squares are blocked.
+     */
+    public DistanceMap(Board b, Bitboards view) {
+        assert b != null && view != null;
+        board = b;
+        bits = view;
+        width = b.getWidth();
+        height = b.getHeight();
+        distance = new int[width * height];
+        blocked = new boolean[width * height];
+        queue = new int[width * height];
+        Arrays.fill(distance, INFINITE);
+    }
+
+    /**
+     * @return The board the distances are computed for.
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * @return Horizontal coordinate of the source, or -1 if the distances
+     *         haven't been computed yet.
+     */
+    public int getSourceX() {
+        return sourceX;
+    }
+
+    /**
+     * @return Vertical coordinate of the source, or -1 if the distances
+     *         haven't been computed yet.
+     */
+    public int getSourceY() {
+        return sourceY;
+    }
+
+    /**
+     * @return Number of times all distances were computed from scratch.
+     */
+    public int getFullComputations() {
+        return fullComputations;
+    }
+
+    /**
+     * @return Number of changes handled without a full computation.
+     */
+    public int getIncrementalUpdates() {
+        return incrementalUpdates;
+    }
+
+    /**
+     * @return Number of incremental updates abandoned in favour of a full
+     *         computation.
+     */
+    public int getAbandonedUpdates() {
+        return abandonedUpdates;
+    }
+
+    /**
+     * Determine whether a monster could stand on the cell at (x,y),
+     * according to the current contents of the bit sets read.
+     *
+     * @param x
+     *            Horizontal coordinate
+     * @param y
+     *            Vertical coordinate
+     * @return True iff (x,y) is within the borders, and neither contains a
+     *         wall nor food.
+     */
+    public boolean passable(int x, int y) {
+        boolean result = false;
+        if (board.withinBorders(x, y)) {
+            result = !bits.wallOrFood(y * width + x);
+        }
+        return result;
+    }
+
+    /**
+     * (Re)compute the distances of all cells to the source at (x,y), using
+     * the current contents of the board.
+     *
+     * @param x
+     *            Horizontal coordinate of the source
+     * @param y
+     *            Vertical coordinate of the source
+     */
+    public void computeFrom(int x, int y) {
+        assert board.withinBorders(x, y);
+        for (int cy = 0; cy < height; cy++) {
+            for (int cx = 0; cx < width; cx++) {
+                blocked[cy * width + cx] = !passable(cx, cy);
+            }
+        }
+        sourceX = x;
+        sourceY = y;
+        recompute();
+    }
+
+    /**
+     * Compute all distances from scratch, using the blocked cells as known
+     * to the map.
+     */
+    private void recompute() {
+        fullComputations++;
+        Arrays.fill(distance, INFINITE);
+        int head = 0;
+        int tail = 0;
+        int start = sourceY * width + sourceX;
+        distance[start] = 0;
+        queue[tail++] = start;
+        while (head < tail) {
+            int i = queue[head++];
+            int cx = i % width;
+            int cy = i / width;
+            int d = distance[i] + 1;
+            tail = visit(cx - 1, cy, d, tail);
+            tail = visit(cx + 1, cy, d, tail);
+            tail = visit(cx, cy - 1, d, tail);
+            tail = visit(cx, cy + 1, d, tail);
+        }
+    }
+
+    /**
+     * Enqueue the cell at (x,y) with the given distance, if it is passable
+     * and hasn't been reached before.
+     *
+     * @param x
+     *            Horizontal coordinate
+     * @param y
+     *            Vertical coordinate
+     * @param d
+     *            Distance of the cell
+     * @param tail
+     *            Current end of the queue
+     * @return The new end of the queue.
+     */
+    private int visit(int x, int y, int d, int tail) {
+        int result = tail;
+        if (open(x, y) && distance[y * width + x] == INFINITE) {
+            distance[y * width + x] = d;
+            queue[result++] = y * width + x;
+        }
+        return result;
+    }
+
+    /**
+     * @param x
+     *            Horizontal coordinate
+     * @param y
+     *            Vertical coordinate
+     * @return True iff (x,y) is within the borders and wasn't blocked
+     *         when the map was last told about it.
+     */
+    private boolean open(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height
+            && !blocked[y * width + x];
+    }
+
+    /**
+     * @param x
+     *            Horizontal coordinate
+     * @param y
+     *            Vertical coordinate
+     * @return The number of steps from (x,y) to the source, or UNREACHABLE.
+     */
+    public int distance(int x, int y) {
+        int result = UNREACHABLE;
+        if (board.withinBorders(x, y) && distance[y * width + x] != INFINITE) {
+            result = distance[y * width + x];
+        }
+        return result;
+    }
+
+    /**
+     * Move the source to (x,y), updating only the distances that change.
+     * Precondition: the distances have been computed before.
+     *
+     * @param x
+     *            Horizontal coordinate of the new source
+     * @param y
+     *            Vertical coordinate of the new source
+     */
+    public void moveSource(int x, int y) {
+        assert sourceX >= 0 : "distances not computed yet";
+        assert board.withinBorders(x, y);
+        if (x == sourceX && y == sourceY) {
+            return;
+        }
+        int oldSource = sourceY * width + sourceX;
+        sourceX = x;
+        sourceY = y;
+        blocked[y * width + x] = false;
+        if (skippedMoves > 0) {
+            // recent attempts were abandoned: don't waste another one.
+            skippedMoves--;
+            recompute();
+            return;
+        }
+        work = 0;
+        boolean done = invalidate(oldSource);
+        if (done) {
+            int start = y * width + x;
+            distance[start] = 0;
+            if (queued[start]) {
+                unlink(start);
+            }
+            push(start, 0);
+            done = settle();
+        }
+        if (done) {
+            backoff = 1;
+            incrementalUpdates++;
+        } else {
+            skippedMoves = backoff;
+            backoff = Math.min(2 * backoff, MAX_SKIPPED_MOVES);
+            recompute();
+        }
+    }
+
+    /**
+     * Take into account that the cell at (x,y) may have become blocked or
+     * passable, e.g. because food was eaten or put back, updating only the
+     * distances that change. Precondition: the distances have been
+     * computed before.
+     *
+     * @param x
+     *            Horizontal coordinate of the cell
+     * @param y
+     *            Vertical coordinate of the cell
+     */
+    public void cellChanged(int x, int y) {
+        assert sourceX >= 0 : "distances not computed yet";
+        int i = y * width + x;
+        boolean nowBlocked = !passable(x, y)
+            && !(x == sourceX && y == sourceY);
+        if (nowBlocked == blocked[i]) {
+            return;
+        }
+        blocked[i] = nowBlocked;
+        work = 0;
+        boolean done = true;
+        if (nowBlocked) {
+            done = (distance[i] == INFINITE || invalidate(i)) && settle();
+        } else {
+            int d = closestNeighbour(i);
+            if (d != INFINITE) {
+                distance[i] = d + 1;
+                push(i, d + 1);
+                done = settle();
+            }
+        }
+        if (done) {
+            incrementalUpdates++;
+        } else {
+            recompute();
+        }
+    }
+
+    /**
+     * Invalidate the cells whose distance may have grown because the given
+     * cell no longer offers a shortest path: the cell itself, unless it is
+     * the source and not blocked, and recursively every cell left without
+     * a neighbour one step closer to the source. Cells are considered in
+     * order of their old distance, so that every neighbour that could
+     * still offer a path has been decided on first. The invalidated cells
+     * that aren't blocked are queued again with the best distance their
+     * remaining neighbours offer.
+     *
+     * @param seed
+     *            Index of the cell that lost its shortest path.
+     * @return False iff the update was abandoned because too many cells
+     *         were handled, in which case the distances must be
+     *         recomputed.
+     */
+    private boolean invalidate(int seed) {
+        allocateBuckets();
+        invalidCount = 0;
+        push(seed, distance[seed]);
+        int i = pop();
+        while (i != NONE) {
+            int x = i % width;
+            int y = i / width;
+            boolean source = x == sourceX && y == sourceY;
+            if (blocked[i] || !source && !supported(i)) {
+                if (!countWork()) {
+                    return false;
+                }
+                invalid[i] = true;
+                invalidCells[invalidCount++] = i;
+                int d = distance[i] + 1;
+                queueSuccessor(x - 1, y, d);
+                queueSuccessor(x + 1, y, d);
+                queueSuccessor(x, y - 1, d);
+                queueSuccessor(x, y + 1, d);
+            }
+            i = pop();
+        }
+        for (int k = 0; k < invalidCount; k++) {
+            distance[invalidCells[k]] = INFINITE;
+        }
+        for (int k = 0; k < invalidCount; k++) {
+            int c = invalidCells[k];
+            invalid[c] = false;
+            if (!blocked[c]) {
+                int d = closestNeighbour(c);
+                if (d != INFINITE) {
+                    distance[c] = d + 1;
+                    push(c, d + 1);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Queue the cell at (x,y) for invalidation if its distance is the
+     * given one, i.e. if it may have relied on the cell just invalidated.
+     *
+     * @param x
+     *            Horizontal coordinate
+     * @param y
+     *            Vertical coordinate
+     * @param d
+     *            The distance of cells that may have relied on it.
+     */
+    private void queueSuccessor(int x, int y, int d) {
+        if (open(x, y)) {
+            int i = y * width + x;
+            if (distance[i] == d && !invalid[i] && !queued[i]) {
+                push(i, d);
+            }
+        }
+    }
+
+    /**
+     * @param i
+     *            Index of a cell with a finite distance
+     * @return True iff one of its neighbours that hasn't been invalidated
+     *         is one step closer to the source.
+     */
+    private boolean supported(int i) {
+        int x = i % width;
+        int y = i / width;
+        int d = distance[i] - 1;
+        return supports(x - 1, y, d) || supports(x + 1, y, d)
+            || supports(x, y - 1, d) || supports(x, y + 1, d);
+    }
+
+    /**
+     * @param x
+     *            Horizontal coordinate
+     * @param y
+     *            Vertical coordinate
+     * @param d
+     *            Required distance
+     * @return True iff (x,y) is open, valid, and at distance d.
+     */
+    private boolean supports(int x, int y, int d) {
+        return open(x, y) && distance[y * width + x] == d
+            && !invalid[y * width + x];
+    }
+
+    /**
+     * @param i
+     *            Index of a cell
+     * @return The smallest distance of its open neighbours, possibly
+     *         INFINITE.
+     */
+    private int closestNeighbour(int i) {
+        int x = i % width;
+        int y = i / width;
+        int result = INFINITE;
+        result = Math.min(result, openDistance(x - 1, y));
+        result = Math.min(result, openDistance(x + 1, y));
+        result = Math.min(result, openDistance(x, y - 1));
+        result = Math.min(result, openDistance(x, y + 1));
+        return result;
+    }
+
+    /**
+     * @param x
+     *            Horizontal coordinate
+     * @param y
+     *            Vertical coordinate
+     * @return The distance of (x,y) if it is open, INFINITE otherwise.
+     */
+    private int openDistance(int x, int y) {
+        int result = INFINITE;
+        if (open(x, y)) {
+            result = distance[y * width + x];
+        }
+        return result;
+    }
+
+    /**
+     * Settle the queued cells in order of distance, lowering the distance
+     * of every neighbour for which a queued cell offers a shorter path,
+     * and queueing that neighbour in turn.
+     *
+     * @return False iff the update was abandoned because too many cells
+     *         were handled, in which case the distances must be
+     *         recomputed.
+     */
+    private boolean settle() {
+        allocateBuckets();
+        int i = pop();
+        while (i != NONE) {
+            if (!countWork()) {
+                return false;
+            }
+            int x = i % width;
+            int y = i / width;
+            int d = distance[i] + 1;
+            relax(x - 1, y, d);
+            relax(x + 1, y, d);
+            relax(x, y - 1, d);
+            relax(x, y + 1, d);
+            i = pop();
+        }
+        return true;
+    }
+
+    /**
+     * Count one more cell handled by the current update, abandoning the
+     * update if it handled too many to beat a full computation.
+     *
+     * @return False iff the update was abandoned.
+     */
+    private boolean countWork() {
+        if (work == Math.max(MIN_WORK, distance.length / FALLBACK_FRACTION)) {
+            abandonedUpdates++;
+            clearBuckets();
+            return false;
+        }
+        work++;
+        return true;
+    }
+
+    /**
+     * Lower the distance of (x,y) to d if it is open and farther away.
+     *
+     * @param x
+     *            Horizontal coordinate
+     * @param y
+     *            Vertical coordinate
+     * @param d
+     *            The distance offered.
+     */
+    private void relax(int x, int y, int d) {
+        if (open(x, y)) {
+            int i = y * width + x;
+            if (distance[i] > d) {
+                distance[i] = d;
+                if (queued[i]) {
+                    unlink(i);
+                }
+                push(i, d);
+            }
+        }
+    }
+
+    /**
+     * Allocate the bucket queue, if that hasn't been done yet.
+     */
+    private void allocateBuckets() {
+        if (bucketHead == null) {
+            int n = distance.length;
+            bucketHead = new int[n + 1];
+            Arrays.fill(bucketHead, NONE);
+            bucketNext = new int[n];
+            bucketPrev = new int[n];
+            bucketKey = new int[n];
+            queued = new boolean[n];
+            invalid = new boolean[n];
+            invalidCells = new int[n];
+            minKey = n + 1;
+            maxKey = -1;
+        }
+    }
+
+    /**
+     * Queue a cell under the given key.
+     *
+     * @param i
+     *            Index of a cell that isn't queued
+     * @param key
+     *            Its key, at most the number of cells.
+     */
+    private void push(int i, int key) {
+        allocateBuckets();
+        assert !queued[i];
+        assert 0 <= key && key < bucketHead.length;
+        queued[i] = true;
+        bucketKey[i] = key;
+        bucketPrev[i] = NONE;
+        bucketNext[i] = bucketHead[key];
+        if (bucketHead[key] != NONE) {
+            bucketPrev[bucketHead[key]] = i;
+        }
+        bucketHead[key] = i;
+        minKey = Math.min(minKey, key);
+        maxKey = Math.max(maxKey, key);
+    }
+
+    /**
+     * Remove a queued cell from its bucket.
+     *
+     * @param i
+     *            Index of a queued cell
+     */
+    private void unlink(int i) {
+        assert queued[i];
+        if (bucketPrev[i] != NONE) {
+            bucketNext[bucketPrev[i]] = bucketNext[i];
+        } else {
+            bucketHead[bucketKey[i]] = bucketNext[i];
+        }
+        if (bucketNext[i] != NONE) {
+            bucketPrev[bucketNext[i]] = bucketPrev[i];
+        }
+        queued[i] = false;
+    }
+
+    /**
+     * Remove a cell with the smallest key from the queue.
+     *
+     * @return Its index, or NONE if the queue is empty.
+     */
+    private int pop() {
+        while (minKey <= maxKey && bucketHead[minKey] == NONE) {
+            minKey++;
+        }
+        int result = NONE;
+        if (minKey <= maxKey) {
+            result = bucketHead[minKey];
+            unlink(result);
+        } else {
+            minKey = bucketHead.length;
+            maxKey = -1;
+        }
+        return result;
+    }
+
+    /**
+     * Empty the queue and forget about invalidated cells.
+     */
+    private void clearBuckets() {
+        for (int i = pop(); i != NONE; i = pop()) {
+            assert !queued[i];
+        }
+        for (int k = 0; k < invalidCount; k++) {
+            invalid[invalidCells[k]] = false;
+        }
+        invalidCount = 0;
+    }
+}
@@ -1,5 +1,6 @@
 package jpacman.model;
 
+import java.util.BitSet;
 import java.util.Observable;
 import java.util.Vector;
 
@@ -7,6 +8,17 @@ import java.util.Vector;
  * The top level state machine, which also acts as interface to the viewer
  * (which observes the state machine) and the controller (which triggers the
  * state machine events).
+ * <p>
+ * By default, the observers are notified after every event. In coalescing
+ * mode, changes are only collected, and the observers are notified once,
+ * at the next flushChanges -- typically once per frame. Either way, the
+ * observers receive a ChangeSummary describing what changed.
+ * <p>
+ * The engine also offers an immutable GameSnapshot of the game state. A
+ * snapshot is only taken when asked for after a change -- typically once
+ * per frame -- so that moves don't pay for copying the board. The board
+ * is copied without holding the engine's lock, so viewers reading the
+ * snapshot hardly hold up the controllers moving the guests.
  *
  * @author Arie van Deursen; Aug 1, 2003
  * @version $Id: Engine.java,v 1.6 2008/02/04 11:00:59 arie Exp $
@@ -31,6 +43,73 @@ public class Engine extends Observable {
      */
     private boolean halted = false;
 
+    /**
+     * The states the engine can be in.
+     */
+    public enum State { STARTING, PLAYING, HALTED, DIED, WON };
+
+    /**
+     * True iff notifications are held back until flushChanges.
+     */
+    private boolean coalescing = false;
+
+    /**
+     * True iff changes occurred that the observers haven't been told about.
+     */
+    private boolean changePending = false;
+
+    /**
+     * True iff the board has been replaced since the last notification.
+     */
+    private boolean boardReplaced;
+
+    /**
+     * The state reported in the last notification.
+     */
+    private State notifiedState;
+
+    /**
+     * The amount of food eaten reported in the last notification.
+     */
+    private int notifiedFood;
+
+    /**
+     * The summary passed to the observers, reused for every notification.
+     */
+    private final ChangeSummary summary = new ChangeSummary();
+
+    /**
+     * True while the observers are being notified.
+     */
+    private boolean notifying = false;
+
+    /**
+     * The most recently published snapshot.
+     */
+    private volatile GameSnapshot snapshot;
+
+    /**
+     * True iff the game changed since the most recent snapshot was taken.
+     */
+    private volatile boolean snapshotStale;
+
+    /**
+     * The board the most recent snapshot was taken from.
+     */
+    private Board snapshotBoard;
+
+    /**
+     * Indices of the cells touched since the most recent snapshot, and
+     * already reported to the observers. Cells touched since the last
+     * notification are still kept by the board.
+     */
+    private final BitSet snapshotCells = new BitSet();
+
+    /**
+     * The recorder of all calls changing the game, or null.
+     */
+    private EventRecorder recorder;
+
     /**
      * The game has been set up, and is just waiting to get started.
      * @return true iff game is starting.
@@ -80,6 +159,23 @@ public class Engine extends Observable {
         return inDiedState() || inWonState();
     }
 
+    /**
+     * @return The state the engine is in.
+     */
+    public synchronized State getState() {
+        State result = State.PLAYING;
+        if (inStartingState()) {
+            result = State.STARTING;
+        } else if (inHaltedState()) {
+            result = State.HALTED;
+        } else if (inDiedState()) {
+            result = State.DIED;
+        } else if (inWonState()) {
+            result = State.WON;
+        }
+        return result;
+    }
+
     /**
      * We can be in at most one of the Engine's states.
      *
@@ -131,6 +227,10 @@ public class Engine extends Observable {
         assert g.initialized();
         theGame = g;
         starting = true;
+        boardReplaced = true;
+        notifiedState = State.STARTING;
+        notifiedFood = g.getPlayer().getPointsEaten();
+        publishSnapshot(null);
         assert inStartingState();
         assert invariant();
     }
@@ -140,6 +240,9 @@ public class Engine extends Observable {
      */
     public synchronized void quit() {
         assert invariant();
+        if (recorder != null) {
+            recorder.record(EventRecorder.QUIT);
+        }
         if (inPlayingState()) {
             halted = true;
             notifyViewers();
@@ -152,6 +255,9 @@ public class Engine extends Observable {
      */
     public synchronized void start() {
         assert invariant();
+        if (recorder != null) {
+            recorder.record(EventRecorder.START);
+        }
         if (inHaltedState()) {
             assert halted;
             halted = false;
@@ -162,7 +268,11 @@ public class Engine extends Observable {
             } else {
                 if (inGameOverState()) {
                     assert !starting;
+                    Board board = theGame.getBoard();
                     theGame.initialize();
+                    // a restored board is reported by its touched cells.
+                    boardReplaced = boardReplaced
+                        || theGame.getBoard() != board;
                 }
             }
         }
@@ -176,6 +286,9 @@ public class Engine extends Observable {
      */
     public synchronized void undo() {
         assert invariant();
+        if (recorder != null) {
+            recorder.record(EventRecorder.UNDO);
+        }
         if (inStartingState()) {
             return;
         }
@@ -195,6 +308,9 @@ public class Engine extends Observable {
      */
     public synchronized void movePlayer(int dx, int dy) {
         assert invariant();
+        if (recorder != null) {
+            recorder.playerMoved(dx, dy);
+        }
         if (inPlayingState()) {
             theGame.movePlayer(dx, dy);
             notifyViewers();
@@ -214,6 +330,9 @@ public class Engine extends Observable {
      */
     public synchronized void moveMonster(Monster monster, int dx, int dy) {
         assert invariant();
+        if (recorder != null) {
+            recorder.monsterMoved(monster, dx, dy);
+        }
         if (inPlayingState()) {
             theGame.moveMonster(monster, dx, dy);
             notifyViewers();
@@ -222,11 +341,198 @@ public class Engine extends Observable {
     }
 
     /**
-     * Warn the observers that the state has changed.
+     * Try to carry out a batch of monster moves, in order. The viewers are
+     * notified once, after the whole batch. Moves following a move that
+     * kills the player are ignored.
+     *
+     * @param moves
+     *            The moves to be carried out, not null.
+     */
+    public synchronized void moveMonsters(MonsterMoves moves) {
+        assert invariant();
+        assert moves != null;
+        if (recorder != null) {
+            recorder.monstersMoved(moves);
+        }
+        if (inPlayingState()) {
+            for (int i = 0; i < moves.size() && !theGame.gameOver(); i++) {
+                theGame.moveMonster(moves.getMonster(i),
+                        moves.getDx(i), moves.getDy(i));
+            }
+            notifyViewers();
+        }
+        assert invariant();
+    }
+
+    /**
+     * Record every following call of start, quit, undo, and of the
+     * methods moving the player and the monsters, whether or not it
+     * changes the game. The recorder starts its log with a description of
+     * the current state.
+     *
+     * @param r
+     *            A recorder not used before, or null to stop recording
+     */
+    public synchronized void setRecorder(EventRecorder r) {
+        assert invariant();
+        recorder = r;
+        if (r != null) {
+            r.attach(getState(), theGame);
+        }
+    }
+
+    /**
+     * Mark the snapshot as out of date, and warn the observers that the
+     * state has changed, unless notifications are being coalesced.
      */
     private void notifyViewers() {
-        setChanged();
-        notifyObservers();
+        snapshotStale = true;
+        changePending = true;
+        if (!coalescing) {
+            flushChanges();
+        }
+    }
+
+    /**
+     * Publish a snapshot of the current state. Given a copy of the codes of
+     * the current snapshot, only the cells touched since then are patched,
+     * unless the board was replaced since.
+     *
+     * @param copy
+     *            A copy of the codes of the current snapshot, made while
+     *            it was current, or null
+     */
+    private void publishSnapshot(char[] copy) {
+        Board board = theGame.getBoard();
+        int w = board.getWidth();
+        int h = board.getHeight();
+        GameSnapshot previous = snapshot;
+        char[] codes = copy;
+        if (codes == null || board != snapshotBoard) {
+            codes = new char[w * h];
+            for (int y = 0; y < h; y++) {
+                for (int x = 0; x < w; x++) {
+                    codes[y * w + x] = board.guestCode(x, y);
+                }
+            }
+        } else {
+            for (int i = snapshotCells.nextSetBit(0); i >= 0;
+                    i = snapshotCells.nextSetBit(i + 1)) {
+                codes[i] = board.guestCode(i % w, i / w);
+            }
+            board.copyTouchedCodes(codes);
+        }
+        snapshotCells.clear();
+        long version = previous == null ? 0 : previous.getVersion() + 1;
+        snapshotBoard = board;
+        snapshot = new GameSnapshot(version, w, h, codes,
+                theGame.getPlayerLastDx(), theGame.getPlayerLastDy(),
+                theGame.getPlayer().getPointsEaten(), getState());
+        snapshotStale = false;
+    }
+
+    /**
+     * The snapshot of the current game state. A new snapshot is only
+     * taken if the game changed since the previous one. The codes of the
+     * previous snapshot are then copied without locking the engine, and
+     * only the cells touched since are patched holding its lock, so that
+     * moves are hardly held up. If the game didn't change, the engine
+     * isn't locked at all, so viewers can use it at any time.
+     *
+     * @return The latest snapshot.
+     */
+    public GameSnapshot getSnapshot() {
+        if (snapshotStale) {
+            GameSnapshot previous = snapshot;
+            char[] copy = previous.copyCodes();
+            synchronized (this) {
+                // unless another reader took a newer snapshot meanwhile.
+                if (snapshotStale && snapshot == previous) {
+                    publishSnapshot(copy);
+                }
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Switch coalescing of notifications on or off. Switching it off
+     * delivers any pending changes.
+     *
+     * @param b
+     *            True iff notifications should be held back until
+     *            flushChanges is invoked.
+     */
+    public synchronized void setCoalescing(boolean b) {
+        coalescing = b;
+        if (!coalescing) {
+            flushChanges();
+        }
+    }
+
+    /**
+     * @return true iff notifications are coalesced.
+     */
+    public synchronized boolean isCoalescing() {
+        return coalescing;
+    }
+
+    /**
+     * Notify the observers of the changes since the previous notification,
+     * if there are any, passing a ChangeSummary as argument. The engine
+     * reuses its summary, unless an observer causes a notification while
+     * being notified.
+     */
+    public synchronized void flushChanges() {
+        if (changePending) {
+            changePending = false;
+            Board board = theGame.getBoard();
+            boolean nested = notifying;
+            ChangeSummary s = nested ? new ChangeSummary() : summary;
+            int[] touched = s.cellsFor(board.touchedCount());
+            int n = board.takeTouchedCells(touched);
+            // the board forgets them; the next snapshot still needs them.
+            for (int i = 0; i < n; i++) {
+                snapshotCells.set(touched[i]);
+            }
+            if (boardReplaced) {
+                n = 0;
+            }
+            State state = getState();
+            int food = theGame.getPlayer().getPointsEaten();
+            s.set(board.getWidth(), n, boardReplaced, food - notifiedFood,
+                    notifiedState, state);
+            boardReplaced = false;
+            notifiedState = state;
+            notifiedFood = food;
+            if (countObservers() > 0) {
+                notifying = true;
+                try {
+                    setChanged();
+                    notifyObservers(s);
+                } finally {
+                    notifying = nested;
+                }
+            }
+        }
+    }
+
+    /**
+     * Add the cells touched since the last notification to a set, without
+     * notifying the observers. Lets a controller holding the engine's lock
+     * see changes that are being coalesced, while the other observers
+     * still receive them once, at the next flushChanges. The cells added
+     * are reported again by that notification.
+     *
+     * @param cells
+     *            Set receiving the indices of the touched cells,
+     *            y * width + x.
+     * @return True iff the board was replaced since the last notification,
+     *         in which case the cells added don't tell what changed.
+     */
+    public synchronized boolean addPendingChanges(BitSet cells) {
+        theGame.getBoard().addTouchedCells(cells);
+        return boardReplaced;
     }
 
     /**
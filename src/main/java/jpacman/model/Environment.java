@@ -0,0 +1,221 @@
+package jpacman.model;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.Vector;
+
+/**
+ * A game wrapped as a learning environment: an agent repeatedly observes
+ * the board, chooses one of a fixed set of actions, and is told the reward
+ * earned and whether the episode is done.
+ * <p>
+ * Every step moves the player, and then every monster in a random
+ * direction, taking the monsters in order from a randomly chosen one, as
+ * the random monster mover does. The random choices come from a source
+ * seeded at creation, so episodes can be repeated. The reward of a step
+ * is the number of points eaten during it, and an episode is done once
+ * the game is over. Resetting restores the board in place.
+ * <p>
+ * Observations are tensors of shape [CHANNELS][height][width], flattened
+ * into a float array in that order: channel c holds 1 for every square
+ * occupied by a guest of type CHANNEL_TYPES.charAt(c), and 0 elsewhere.
+ *
+ * @see VectorEnvironment
+ */
+public final class Environment {
+
+    /**
+     * The guest types of the channels of an observation.
+     */
+    public static final String CHANNEL_TYPES = "" + Guest.WALL_TYPE
+        + Guest.FOOD_TYPE + Guest.MONSTER_TYPE + Guest.PLAYER_TYPE;
+
+    /**
+     * Number of channels of an observation.
+     */
+    public static final int CHANNELS = CHANNEL_TYPES.length();
+
+    /**
+     * Actions: moving the player up, down, left or right, or leaving it
+     * where it is.
+     */
+    public static final int UP = 0, DOWN = 1, LEFT = 2, RIGHT = 3, STAY = 4;
+
+    /**
+     * Number of actions.
+     */
+    public static final int ACTIONS = 5;
+
+    /**
+     * The movements of the actions, as {dx, dy}.
+     */
+    private static final int[][] DIRECTIONS =
+        {{0, -1}, {0, 1}, {-1, 0}, {1, 0}, {0, 0}};
+
+    /**
+     * The game played.
+     */
+    private final Game game;
+
+    /**
+     * Source of the monsters' moves.
+     */
+    private final SplittableRandom random;
+
+    /**
+     * The monsters of the current episode.
+     */
+    private Vector<Monster> monsters;
+
+    /**
+     * Number of steps taken in the current episode.
+     */
+    private int steps = 0;
+
+    /**
+     * Create an environment playing the given map.
+     *
+     * @param map
+     *            The map, one string per row
+     * @param seed
+     *            Seed of the monsters' moves
+     */
+    public Environment(String[] map, long seed) {
+        this(new Game(map), new SplittableRandom(seed));
+    }
+
+    /**
+     * Create an environment playing a game.
+     *
+     * @param g
+     *            A fresh game, not played by anyone else
+     * @param r
+     *            Source of the monsters' moves
+     */
+    Environment(Game g, SplittableRandom r) {
+        assert g != null && g.initialized();
+        game = g;
+        random = r;
+        // there is no undoing: keep the journal as small as possible.
+        game.setUndoLimit(1);
+        game.setPooledMoves(true);
+        monsters = game.getMonsters();
+    }
+
+    /**
+     * Start a new episode.
+     */
+    public void reset() {
+        game.initialize();
+        monsters = game.getMonsters();
+        steps = 0;
+    }
+
+    /**
+     * Carry out an action. Precondition: the episode isn't done.
+     *
+     * @param action
+     *            One of the actions, from 0 up to ACTIONS
+     * @return The reward: the number of points eaten.
+     */
+    public int step(int action) {
+        assert 0 <= action && action < ACTIONS;
+        assert !done() : "episode is over";
+        int before = game.getPlayer().getPointsEaten();
+        if (action != STAY) {
+            move(game.getPlayer(), DIRECTIONS[action]);
+        }
+        int n = monsters.size();
+        if (n > 0) {
+            int first = random.nextInt(n);
+            for (int i = 0; i < n && !game.gameOver(); i++) {
+                move(monsters.elementAt((first + i) % n),
+                        DIRECTIONS[random.nextInt(STAY)]);
+            }
+        }
+        steps++;
+        return game.getPlayer().getPointsEaten() - before;
+    }
+
+    /**
+     * Move a guest, unless that would take it beyond the borders.
+     *
+     * @param guest
+     *            The player or a monster
+     * @param d
+     *            The movement, as {dx, dy}
+     */
+    private void move(MovingGuest guest, int[] d) {
+        Cell from = guest.getLocation();
+        if (game.getBoard().withinBorders(from.getX() + d[0],
+                from.getY() + d[1])) {
+            if (guest == game.getPlayer()) {
+                game.movePlayer(d[0], d[1]);
+            } else {
+                game.moveMonster((Monster) guest, d[0], d[1]);
+            }
+        }
+    }
+
+    /**
+     * @return True iff the game is over.
+     */
+    public boolean done() {
+        return game.gameOver();
+    }
+
+    /**
+     * @return The number of steps taken in the current episode.
+     */
+    public int getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return The number of floats in an observation.
+     */
+    public int observationSize() {
+        Board board = game.getBoard();
+        return CHANNELS * board.getWidth() * board.getHeight();
+    }
+
+    /**
+     * @return A new observation of the current state.
+     */
+    public float[] observe() {
+        float[] result = new float[observationSize()];
+        observe(result, 0);
+        return result;
+    }
+
+    /**
+     * Write an observation of the current state into an array.
+     *
+     * @param target
+     *            The array
+     * @param offset
+     *            Index in the array of the first float of the observation
+     */
+    public void observe(float[] target, int offset) {
+        Bitboards bits = game.getBoard().getBitboards();
+        int squares = game.getBoard().getWidth() * game.getBoard().getHeight();
+        Arrays.fill(target, offset, offset + CHANNELS * squares, 0f);
+        for (int c = 0; c < CHANNELS; c++) {
+            char type = CHANNEL_TYPES.charAt(c);
+            int base = offset + c * squares;
+            for (int w = 0; w < bits.wordCount(); w++) {
+                for (long b = bits.word(type, w); b != 0; b &= b - 1) {
+                    target[base + w * Long.SIZE
+                           + Long.numberOfTrailingZeros(b)] = 1f;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The game played, for inspection.
+     */
+    public Game getGame() {
+        return game;
+    }
+}
@@ -0,0 +1,326 @@
+package jpacman.model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Record every call changing the game of an engine -- starting, quitting,
+ * undoing, and moving the player and the monsters -- so that a session can
+ * be replayed exactly, for example to reproduce an assertion failure.
+ * <p>
+ * The log is a compact binary stream. It starts with a header: the four
+ * bytes "JPEL", followed by the version, the width and height of the
+ * board, the state of the engine, and the hash of the game state when
+ * recording started. Every call follows as a record: the number of ticks
+ * since the previous record shifted left by three bits, or'ed with the
+ * kind of record, followed by its arguments. The player's moves have their
+ * offsets as arguments, and the monsters' moves the number of the monster
+ * (0 for a monster of a previous round) and its offsets. A batch of monster
+ * moves has the number of moves, followed by the moves. Numbers are
+ * written as variable length integers, seven bits per byte, least
+ * significant first, with offsets zigzag encoded so that small negative
+ * offsets are short as well.
+ * <p>
+ * Records are buffered; they reach the stream when the buffer is full, on
+ * flush, and on close. Writing errors don't disturb the game: recording
+ * stops, and the error is kept.
+ *
+ * @see Engine#setRecorder(EventRecorder)
+ * @see EventReplayer
+ */
+public final class EventRecorder {
+
+    /**
+     * First four bytes of a log: "JPEL".
+     */
+    static final int MAGIC = 0x4A50454C;
+
+    /**
+     * Version of the log format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Kinds of records.
+     */
+    static final int START = 0, QUIT = 1, UNDO = 2, PLAYER = 3, MONSTER = 4,
+        MONSTERS = 5;
+
+    /**
+     * Number of bits of a record's first number holding its kind.
+     */
+    static final int KIND_BITS = 3;
+
+    /**
+     * Size of the buffer.
+     */
+    private static final int BUFFER_SIZE = 1 << 13;
+
+    /**
+     * The stream the log is written to.
+     */
+    private final OutputStream out;
+
+    /**
+     * Records not yet written to the stream.
+     */
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    /**
+     * Number of bytes in the buffer.
+     */
+    private int count = 0;
+
+    /**
+     * The current tick.
+     */
+    private long tick = 0;
+
+    /**
+     * The tick of the previous record.
+     */
+    private long recordedTick = 0;
+
+    /**
+     * True iff the header has been written.
+     */
+    private boolean attached = false;
+
+    /**
+     * The error that stopped recording, or null.
+     */
+    private IOException error;
+
+    /**
+     * Create a recorder writing to a stream.
+     *
+     * @param stream
+     *            The stream the log is written to
+     */
+    public EventRecorder(OutputStream stream) {
+        assert stream != null;
+        out = stream;
+    }
+
+    /**
+     * Write the header, describing the state of the engine the recorder
+     * is attached to. A recorder can only be attached once.
+     *
+     * @param state
+     *            The state of the engine
+     * @param game
+     *            The game of the engine
+     */
+    synchronized void attach(Engine.State state, Game game) {
+        assert !attached : "recorder attached twice";
+        attached = true;
+        byte[] magic = {(byte) (MAGIC >>> 24), (byte) (MAGIC >>> 16),
+            (byte) (MAGIC >>> 8), (byte) MAGIC};
+        for (byte b : magic) {
+            put(b);
+        }
+        putNumber(VERSION);
+        putNumber(game.boardWidth());
+        putNumber(game.boardHeight());
+        putNumber(state.ordinal());
+        putNumber(game.stateHash());
+    }
+
+    /**
+     * Set the current tick, with which the following records are tagged.
+     *
+     * @param t
+     *            The tick, not smaller than the current one
+     */
+    public synchronized void setTick(long t) {
+        assert t >= tick;
+        tick = t;
+    }
+
+    /**
+     * @return The current tick.
+     */
+    public synchronized long getTick() {
+        return tick;
+    }
+
+    /**
+     * Record a call without arguments.
+     *
+     * @param kind
+     *            START, QUIT or UNDO
+     */
+    synchronized void record(int kind) {
+        assert kind == START || kind == QUIT || kind == UNDO;
+        putRecord(kind);
+    }
+
+    /**
+     * Record a move of the player.
+     *
+     * @param dx
+     *            Horizontal offset
+     * @param dy
+     *            Vertical offset
+     */
+    synchronized void playerMoved(int dx, int dy) {
+        putRecord(PLAYER);
+        putOffsets(dx, dy);
+    }
+
+    /**
+     * Record a move of a monster.
+     *
+     * @param monster
+     *            The monster
+     * @param dx
+     *            Horizontal offset
+     * @param dy
+     *            Vertical offset
+     */
+    synchronized void monsterMoved(Monster monster, int dx, int dy) {
+        putRecord(MONSTER);
+        putMonster(monster, dx, dy);
+    }
+
+    /**
+     * Record a batch of monster moves.
+     *
+     * @param moves
+     *            The moves
+     */
+    synchronized void monstersMoved(MonsterMoves moves) {
+        putRecord(MONSTERS);
+        putNumber(moves.size());
+        for (int i = 0; i < moves.size(); i++) {
+            putMonster(moves.getMonster(i), moves.getDx(i), moves.getDy(i));
+        }
+    }
+
+    /**
+     * Start a record of the given kind, at the current tick.
+     *
+     * @param kind
+     *            The kind of record
+     */
+    private void putRecord(int kind) {
+        assert attached;
+        putNumber((tick - recordedTick) << KIND_BITS | kind);
+        recordedTick = tick;
+    }
+
+    /**
+     * Write the number and offsets of a monster's move.
+     *
+     * @param monster
+     *            The monster
+     * @param dx
+     *            Horizontal offset
+     * @param dy
+     *            Vertical offset
+     */
+    private void putMonster(Monster monster, int dx, int dy) {
+        // monsters of a previous round are no longer on the board.
+        putNumber(monster.getLocation() == null ? 0 : monster.getMoverId());
+        putOffsets(dx, dy);
+    }
+
+    /**
+     * @param dx
+     *            Horizontal offset
+     * @param dy
+     *            Vertical offset
+     */
+    private void putOffsets(int dx, int dy) {
+        putNumber(zigzag(dx));
+        putNumber(zigzag(dy));
+    }
+
+    /**
+     * @param n
+     *            A number
+     * @return The number with its sign in the lowest bit, so that small
+     *         negative numbers become small positive ones.
+     */
+    static long zigzag(long n) {
+        return n << 1 ^ n >> (Long.SIZE - 1);
+    }
+
+    /**
+     * Write a number, seven bits per byte, the highest bit of every byte
+     * but the last one set.
+     *
+     * @param n
+     *            The number, taken as unsigned
+     */
+    private void putNumber(long n) {
+        long rest = n;
+        while ((rest & ~0x7FL) != 0) {
+            put((byte) (rest | 0x80));
+            rest >>>= 7;
+        }
+        put((byte) rest);
+    }
+
+    /**
+     * @param b
+     *            A byte to be buffered
+     */
+    private void put(byte b) {
+        if (count == buffer.length) {
+            drain();
+        }
+        buffer[count++] = b;
+    }
+
+    /**
+     * Write the buffer to the stream, unless an error occurred before.
+     */
+    private void drain() {
+        if (error == null) {
+            try {
+                out.write(buffer, 0, count);
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+        count = 0;
+    }
+
+    /**
+     * Write all records so far to the stream, and flush it.
+     */
+    public synchronized void flush() {
+        drain();
+        if (error == null) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+    }
+
+    /**
+     * Write all records so far to the stream, and close it. The engine
+     * shouldn't record any further calls.
+     */
+    public synchronized void close() {
+        flush();
+        try {
+            out.close();
+        } catch (IOException e) {
+            if (error == null) {
+                error = e;
+            }
+        }
+    }
+
+    /**
+     * @return The error that stopped recording, or null if there was
+     *         none.
+     */
+    public synchronized IOException getError() {
+        return error;
+    }
+}
@@ -0,0 +1,216 @@
+package jpacman.model;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Vector;
+
+/**
+ * Carry out the calls recorded in a log on an engine, as fast as possible
+ * and without any user interface, so that a recorded session can be
+ * reproduced. The engine should be in the state the log starts from: same
+ * board, same contents, same engine state.
+ *
+ * @see EventRecorder
+ */
+public final class EventReplayer {
+
+    /**
+     * The log.
+     */
+    private final InputStream in;
+
+    /**
+     * Tick of the last record replayed.
+     */
+    private long tick = 0;
+
+    /**
+     * Number of records replayed.
+     */
+    private long records = 0;
+
+    /**
+     * The monsters of the current round, numbered from 1.
+     */
+    private Vector<Monster> monsters;
+
+    /**
+     * Create a replayer reading a log from a stream.
+     *
+     * @param stream
+     *            The stream containing the log
+     */
+    public EventReplayer(InputStream stream) {
+        assert stream != null;
+        in = new BufferedInputStream(stream);
+    }
+
+    /**
+     * Replay the whole log.
+     *
+     * @param engine
+     *            The engine, in the state the log starts from
+     * @return The number of records replayed.
+     * @throws IOException
+     *             If the log can't be read, is invalid or truncated, or
+     *             doesn't start from the state of the engine.
+     */
+    public long replay(Engine engine) throws IOException {
+        readHeader(engine);
+        monsters = engine.getMonsters();
+        MonsterMoves batch = new MonsterMoves();
+        for (int first = in.read(); first >= 0; first = in.read()) {
+            long head = readNumber(first);
+            tick += head >>> EventRecorder.KIND_BITS;
+            int kind = (int) (head & ((1 << EventRecorder.KIND_BITS) - 1));
+            switch (kind) {
+            case EventRecorder.START:
+                engine.start();
+                // a restart brings new monsters.
+                monsters = engine.getMonsters();
+                break;
+            case EventRecorder.QUIT:
+                engine.quit();
+                break;
+            case EventRecorder.UNDO:
+                engine.undo();
+                break;
+            case EventRecorder.PLAYER:
+                engine.movePlayer(readOffset(), readOffset());
+                break;
+            case EventRecorder.MONSTER:
+                Monster monster = readMonster();
+                int dx = readOffset();
+                int dy = readOffset();
+                if (monster != null) {
+                    engine.moveMonster(monster, dx, dy);
+                }
+                break;
+            case EventRecorder.MONSTERS:
+                batch.clear();
+                long size = readNumber(in.read());
+                for (long i = 0; i < size; i++) {
+                    Monster m = readMonster();
+                    int mdx = readOffset();
+                    int mdy = readOffset();
+                    // monsters of a previous round wouldn't move anyway.
+                    if (m != null) {
+                        batch.add(m, mdx, mdy);
+                    }
+                }
+                engine.moveMonsters(batch);
+                break;
+            default:
+                throw new IOException("unknown record kind " + kind
+                        + " after record " + records);
+            }
+            records++;
+        }
+        return records;
+    }
+
+    /**
+     * Read the header, and check that the engine is in the state the log
+     * starts from.
+     *
+     * @param engine
+     *            The engine
+     * @throws IOException
+     *             If the header can't be read, or doesn't match the engine.
+     */
+    private void readHeader(Engine engine) throws IOException {
+        int magic = 0;
+        for (int i = 0; i < Integer.BYTES; i++) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("not an event log");
+            }
+            magic = magic << Byte.SIZE | b;
+        }
+        if (magic != EventRecorder.MAGIC
+                || readNumber(in.read()) != EventRecorder.VERSION) {
+            throw new IOException("not an event log");
+        }
+        long width = readNumber(in.read());
+        long height = readNumber(in.read());
+        long state = readNumber(in.read());
+        long hash = readNumber(in.read());
+        if (width != engine.boardWidth() || height != engine.boardHeight()
+                || state != engine.getState().ordinal()
+                || hash != engine.getGame().stateHash()) {
+            throw new IOException(
+                    "log doesn't start from the state of the engine");
+        }
+    }
+
+    /**
+     * @return The monster with the number read, or null for a monster of a
+     *         previous round.
+     * @throws IOException
+     *             If the log can't be read, or there is no such monster.
+     */
+    private Monster readMonster() throws IOException {
+        long number = readNumber(in.read());
+        if (number > monsters.size()) {
+            throw new IOException("unknown monster " + number
+                    + " after record " + records);
+        }
+        return number == 0 ? null : monsters.elementAt((int) number - 1);
+    }
+
+    /**
+     * @return The zigzag encoded offset read.
+     * @throws IOException
+     *             If the log can't be read.
+     */
+    private int readOffset() throws IOException {
+        long n = readNumber(in.read());
+        return (int) (n >>> 1 ^ -(n & 1));
+    }
+
+    /**
+     * Read a number written seven bits per byte.
+     *
+     * @param first
+     *            The first byte of the number, already read, or -1 at the
+     *            end of the stream
+     * @return The number.
+     * @throws IOException
+     *             If the log can't be read, or ends within the number.
+     */
+    private long readNumber(int first) throws IOException {
+        long result = 0;
+        int shift = 0;
+        for (int b = first; ; b = in.read()) {
+            if (b < 0) {
+                throw new EOFException("log truncated after record "
+                        + records);
+            }
+            if (shift >= Long.SIZE) {
+                throw new IOException("number too long after record "
+                        + records);
+            }
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+    }
+
+    /**
+     * @return The tick of the last record replayed.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * @return The number of records replayed.
+     */
+    public long getRecords() {
+        return records;
+    }
+}
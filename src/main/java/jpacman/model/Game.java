@@ -1,5 +1,6 @@
 package jpacman.model;
 
+import java.util.BitSet;
 import java.util.Vector;
 
 /**
@@ -37,13 +38,40 @@ public class Game {
     /**
      * The initial map / layout on the board.
      */
-    private String[] theMap;
+    private MapSource theMap;
 
     /**
-     * The executed moves for each step.
+     * Indices (y * width + x) of the squares initially holding the player
+     * and the monsters, in reading order.
      */
-    private Vector<Vector<Move>> movedStack = new Vector<>();;
+    private int[] initialMovers;
 
+    /**
+     * The number of food elements on the initial board.
+     */
+    private int initialFood;
+
+    /**
+     * The most recently executed moves, which can be undone.
+     */
+    private UndoJournal journal =
+        new UndoJournal(UndoJournal.DEFAULT_CAPACITY);
+
+    /**
+     * Should the board only keep type codes for walls and food?
+     */
+    private boolean compactBoard = false;
+
+    /**
+     * Should moves be resolved against a reusable move record
+     * instead of fresh Move objects?
+     */
+    private boolean pooledMoves = false;
+
+    /**
+     * The move record reused for every move in pooled move mode.
+     */
+    private MoveRecord pooledMove = new MoveRecord();
 
     /**
      * Create a new Game using a default map.
@@ -57,21 +85,53 @@ public class Game {
      * @param map The world to be used in the game.
      */
     public Game(String[] map) {
+        this(map, false);
+    }
+
+    /**
+     * Create a new Game using a custom map, optionally on a compact board
+     * which only creates cells for the squares actually visited. This is
+     * intended for (very) large maps.
+     * @param map The world to be used in the game.
+     * @param compact True iff a CompactBoard should be used.
+     * @see CompactBoard
+     */
+    public Game(String[] map, boolean compact) {
+        this(new StringMap(map), compact);
+    }
+
+    /**
+     * Create a new Game using a map from some other source, such as a
+     * memory mapped map file. The map is kept, to restore the squares
+     * changed when the game is restarted.
+     * @param map The world to be used in the game.
+     * @param compact True iff a CompactBoard should be used.
+     * @see MapFile
+     */
+    public Game(MapSource map, boolean compact) {
+        assert map != null;
         theMap = map;
+        compactBoard = compact;
         initialize();
         assert invariant();
     }
 
     /**
-     * (Re)set the fields of the game to their initial values.     *
+     * (Re)set the fields of the game to their initial values. On a
+     * restart, the board is kept, and only the cells modified since it
+     * was loaded are restored, so that the time needed doesn't depend on
+     * the size of the map.
      */
     void initialize() {
         monsters = new Vector<Monster>();
         totalPoints = 0;
         thePlayer = null;
-        theBoard = null;
-        movedStack.add(new Vector<>());
-        loadWorld(theMap);
+        journal.clear();
+        if (theBoard == null) {
+            loadWorld(theMap);
+        } else {
+            restoreWorld();
+        }
         assert invariant();
     }
 
@@ -143,6 +203,45 @@ public class Game {
         return theBoard;
     }
 
+    /**
+     * Switch between resolving moves through Move objects (the default)
+     * and resolving them against a single reusable move record, in which
+     * case a move doesn't allocate anything once the undo journal has
+     * grown to its full capacity.
+     *
+     * @param pooled True iff the move record should be used.
+     */
+    public void setPooledMoves(boolean pooled) {
+        pooledMoves = pooled;
+    }
+
+    /**
+     * @return true iff moves are resolved against a reusable move record.
+     */
+    public boolean pooledMoves() {
+        return pooledMoves;
+    }
+
+    /**
+     * Set the maximum number of moves (of the player and the monsters
+     * together) that are remembered for undo. Once this number is
+     * exceeded, the oldest moves can no longer be undone. Setting the
+     * limit discards the moves remembered so far.
+     *
+     * @param maxMoves The maximum number of moves, at least one.
+     */
+    public void setUndoLimit(int maxMoves) {
+        assert maxMoves > 0;
+        journal = new UndoJournal(maxMoves);
+    }
+
+    /**
+     * @return The maximum number of moves remembered for undo.
+     */
+    public int getUndoLimit() {
+        return journal.capacity();
+    }
+
     /**
      * Precondition: the player doesn't exist yet.
      * @return a new Player.
@@ -150,6 +249,7 @@ public class Game {
     private Player createPlayer() {
         assert thePlayer == null : "Player exists already";
         thePlayer = new Player();
+        thePlayer.setMoverId(0);
         return thePlayer;
     }
 
@@ -169,6 +269,7 @@ public class Game {
     private Monster createMonster() {
         Monster m = new Monster();
         monsters.add(m);
+        m.setMoverId(monsters.size());
         return m;
     }
 
@@ -204,6 +305,13 @@ public class Game {
     void addGuestFromCode(char code, int x, int y) {
         assert getBoard() != null : "Board should exist";
         assert getBoard().withinBorders(x, y);
+        if ((code == Guest.WALL_TYPE || code == Guest.FOOD_TYPE)
+                && getBoard().putCode(code, x, y)) {
+            if (code == Guest.FOOD_TYPE) {
+                totalPoints += Food.DEFAULT_POINTS;
+            }
+            return;
+        }
         Guest theGuest = null;
         switch (code) {
         case Guest.WALL_TYPE:
@@ -235,32 +343,139 @@ public class Game {
 
     /**
      * Load a custom map. Postcondition: the invariant holds.
+     * <p>
+     * Large maps are read by several threads, each filling a band of rows
+     * with walls and food. A compact board for a compiled map copies its
+     * walls and food from the map's template instead. The player and the
+     * monsters are placed afterwards, in reading order.
      *
      * @param map
-     *            String array for a customized world map.
+     *            The customized world map.
+     * @see MapLoader
      */
-    private void loadWorld(String[] map) {
-        int height = map.length;
+    private void loadWorld(MapSource map) {
+        int height = map.getHeight();
         assert height > 0 : "at least one cell with one player required.";
-        int width = map[0].length();
+        int width = map.getWidth();
         assert width > 0 : "empty rows not permitted.";
 
         assert theBoard == null;
-        theBoard = new Board(width, height);
-
-        // read the map into the cells
-        for (int y = 0; y < height; y++) {
-            assert map[y].length() == width
-                : "all lines in map should be of equal length.";
-            for (int x = 0; x < width; x++) {
-                assert getBoard().getGuest(x, y) == null
-                    : "only empty cells can be filled.";
-                addGuestFromCode(map[y].charAt(x), x, y);
+        int[] movers;
+        if (compactBoard && map instanceof CompiledMap) {
+            // walls and food are copied from the template as a whole.
+            CompiledMap compiled = (CompiledMap) map;
+            theBoard = new CompactBoard(width, height,
+                    compiled.codeTemplate(), compiled.bitboardTemplate());
+            totalPoints += compiled.getFoodCount() * Food.DEFAULT_POINTS;
+            movers = compiled.getMovers();
+        } else {
+            if (compactBoard) {
+                theBoard = new CompactBoard(width, height);
+            } else {
+                theBoard = new Board(width, height);
+            }
+            // read the map into the cells
+            MapLoader loader = new MapLoader(map, theBoard);
+            theBoard.trackChanges(false);
+            loader.invoke();
+            theBoard.trackChanges(true);
+            totalPoints += loader.getFoodCount() * Food.DEFAULT_POINTS;
+            movers = loader.getMovers();
+        }
+        for (int i : movers) {
+            addGuestFromCode(map.codeAt(i % width, i / width),
+                    i % width, i / width);
+        }
+        initialMovers = movers;
+        initialFood = totalPoints / Food.DEFAULT_POINTS;
+        theBoard.takeModifiedCells();
+        assert invariant();
+    }
+
+    /**
+     * Bring the board back to its initial state: every cell modified since
+     * the board was loaded or last restored gets its guest from the map
+     * again, and fresh moving guests are put on their initial squares.
+     * Postcondition: the invariant holds.
+     */
+    private void restoreWorld() {
+        Board board = theBoard;
+        int width = board.getWidth();
+        BitSet changed = board.takeModifiedCells();
+        for (int i : initialMovers) {
+            changed.set(i);
+        }
+        // empty all cells first, so that the moving guests of the
+        // previous round are gone before anything is put back.
+        for (int i = changed.nextSetBit(0); i >= 0;
+                i = changed.nextSetBit(i + 1)) {
+            Guest g = board.getCell(i).getInhabitant();
+            if (g != null) {
+                g.deoccupy();
+            }
+        }
+        for (int i = changed.nextSetBit(0); i >= 0;
+                i = changed.nextSetBit(i + 1)) {
+            char code = theMap.codeAt(i % width, i / width);
+            if (code == Guest.WALL_TYPE) {
+                new Wall().occupy(board.getCell(i));
+            } else if (code == Guest.FOOD_TYPE) {
+                new Food().occupy(board.getCell(i));
             }
         }
+        totalPoints = initialFood * Food.DEFAULT_POINTS;
+        for (int i : initialMovers) {
+            addGuestFromCode(theMap.codeAt(i % width, i / width),
+                    i % width, i / width);
+        }
+        board.takeModifiedCells();
         assert invariant();
     }
 
+    /**
+     * A map given as an array of strings, one per row.
+     */
+    private static final class StringMap implements MapSource {
+
+        /**
+         * The rows of the map.
+         */
+        private final String[] rows;
+
+        /**
+         * @param map The rows of the map, all of equal length.
+         */
+        StringMap(String[] map) {
+            assert map != null;
+            rows = map;
+            for (String row : rows) {
+                assert row.length() == rows[0].length()
+                    : "all lines in map should be of equal length.";
+            }
+        }
+
+        /**
+         * @see MapSource#getWidth()
+         */
+        public int getWidth() {
+            return rows.length == 0 ? 0 : rows[0].length();
+        }
+
+        /**
+         * @see MapSource#getHeight()
+         */
+        public int getHeight() {
+            return rows.length;
+        }
+
+        /**
+         * @see MapSource#codeAt(int, int)
+         */
+        public char codeAt(int x, int y) {
+            return rows[y].charAt(x);
+        }
+    }
+
     /**
      * Move the player to offsets (x+dx,y+dy). If the move is not possible
      * (wall, beyond borders), the move is not carried out. Precondition:
@@ -276,10 +491,18 @@ public class Game {
     void moveMonster(Monster monster, int dx, int dy) {
         assert invariant();
         assert !gameOver() : "can only move when game isn't over";
+        if (monster.getLocation() == null) {
+            // a monster of a previous round, no longer on the board.
+            return;
+        }
         Cell targetCell =
             monster.getLocation().cellAtOffset(dx, dy);
-        MonsterMove monsterMove = new MonsterMove(monster, targetCell);
-        applyMove(monsterMove);
+        if (pooledMoves) {
+            applyRecord(pooledMove.resolve(monster, targetCell), false);
+        } else {
+            MonsterMove monsterMove = new MonsterMove(monster, targetCell);
+            applyMove(monsterMove, false);
+        }
         assert invariant();
     }
 
@@ -300,22 +523,27 @@ public class Game {
         assert !gameOver() : "can only move when game isn't over";
         Cell targetCell =
             getPlayer().getLocation().cellAtOffset(dx, dy);
-        PlayerMove playerMove = new PlayerMove(getPlayer(), targetCell);
-        nextSegMoveStack();
-        applyMove(playerMove);
+        if (pooledMoves) {
+            applyRecord(pooledMove.resolve(getPlayer(), targetCell), true);
+        } else {
+            PlayerMove playerMove = new PlayerMove(getPlayer(), targetCell);
+            applyMove(playerMove, true);
+        }
         getPlayer().setLastDirection(dx, dy);
         assert invariant();
     }
 
     /**
-     * Actually apply the given move, if it is possible.
+     * Actually apply the given move, if it is possible, and enter it in
+     * the undo journal.
      * @param move The move to be made.
+     * @param segmentStart True iff the move starts a new undo segment.
      */
-    private void applyMove(Move move) {
+    private void applyMove(Move move, boolean segmentStart) {
         assert move != null;
         assert invariant();
         assert !gameOver();
-        pushMoveStack(move);
+        Cell from = move.getFromCell();
         if (move.movePossible()) {
             move.apply();
             assert move.moveDone();
@@ -327,23 +555,141 @@ public class Game {
                 assert playerDied();
             }
         }
+        boolean done = move.moveDone();
+        journalMove(move.getMovingGuest(), from, move.getTargetCell(),
+                done ? move.getTargetGuest() : null,
+                done ? move.foodDelta() : 0,
+                done, move.playerDies(), segmentStart);
+        assert invariant();
+    }
+
+    /**
+     * Actually apply the move represented by the given record, if it is
+     * possible, and enter it in the undo journal.
+     * @param record The move to be made.
+     * @param segmentStart True iff the move starts a new undo segment.
+     */
+    private void applyRecord(MoveRecord record, boolean segmentStart) {
+        assert record != null;
+        assert invariant();
+        assert !gameOver();
+        if (record.movePossible()) {
+            record.apply();
+            assert !playerDied() : "move possible => not killed";
+        } else if (record.playerDies()) {
+            assert !playerWon() : "you can't win by dying";
+            getPlayer().die();
+            assert playerDied();
+        }
+        journalMove(record.getMovingGuest(), record.getFromCell(),
+                record.getTargetCell(), record.getCaptured(),
+                record.foodDelta(), record.moveDone(), record.playerDies(),
+                segmentStart);
         assert invariant();
     }
 
     /**
-     * Undo the last moves.
+     * Enter a move in the undo journal. Monster moves without any effect
+     * are left out; player moves always start a new segment, even if
+     * they have no effect.
+     *
+     * @param mover The guest that moved
+     * @param from The cell the mover started from
+     * @param to The target cell, null if beyond the borders
+     * @param captured The guest removed from the target cell, if any
+     * @param food The amount of food eaten
+     * @param applied True iff the move has been carried out
+     * @param dies True iff the move killed the player
+     * @param segmentStart True iff the move starts a new segment
+     */
+    private void journalMove(MovingGuest mover, Cell from, Cell to,
+            Guest captured, int food, boolean applied, boolean dies,
+            boolean segmentStart) {
+        if (applied || dies || segmentStart) {
+            journal.record(mover.getMoverId(),
+                    getBoard().index(from.getX(), from.getY()),
+                    to == null ? -1 : getBoard().index(to.getX(), to.getY()),
+                    captured == null ? Guest.EMPTY_TYPE : captured.guestType(),
+                    food, applied, dies, segmentStart);
+        }
+    }
+
+    /**
+     * Undo the last moves: the most recent player move, and the monster
+     * moves made after it. If these moves are no longer in the undo
+     * journal, the oldest moves still in the journal are undone.
      */
     public void undo() {
         assert invariant();
-        for (Move move : popMoveStack()) {
-            if (move.moveDone()){
-                move.undo();
+        boolean segmentDone = false;
+        // undo in reverse order, so that every guest returns
+        // to a cell that has been freed already.
+        while (!segmentDone && !journal.isEmpty()) {
+            int e = journal.last();
+            undoJournalEntry(e);
+            segmentDone = journal.startsSegment(e);
+            journal.dropLast();
+        }
+        assert invariant();
+    }
+
+    /**
+     * Undo the effects of a single move from the journal.
+     * @param e Slot of the journal entry.
+     */
+    private void undoJournalEntry(int e) {
+        if (journal.playerDies(e)) {
+            getPlayer().revive();
+        }
+        if (journal.applied(e)) {
+            MovingGuest mover = getMover(journal.moverId(e));
+            Cell to = getBoard().getCell(journal.toIndex(e));
+            assert mover.getLocation() == to;
+            mover.deoccupy();
+            mover.occupy(getBoard().getCell(journal.fromIndex(e)));
+            if (journal.captured(e) == Guest.FOOD_TYPE) {
+                new Food(journal.foodDelta(e)).occupy(to);
             }
-            if (move.playerDies()){
-                getPlayer().revive();
+            if (journal.foodDelta(e) != 0) {
+                getPlayer().eat(-journal.foodDelta(e));
             }
         }
-        assert invariant();
+    }
+
+    /**
+     * Find a moving guest by its id.
+     * @param moverId Id of the guest, 0 for the player.
+     * @return The player or monster with the given id.
+     */
+    private MovingGuest getMover(int moverId) {
+        MovingGuest result;
+        if (moverId == 0) {
+            result = getPlayer();
+        } else {
+            result = monsters.elementAt(moverId - 1);
+        }
+        assert result.getMoverId() == moverId;
+        return result;
+    }
+
+    /**
+     * Return a 64 bit Zobrist hash of the state of the game: the guest
+     * type in every square, and whether the player is still alive. The
+     * hash is maintained by the board as guests come and go, so it takes
+     * constant time, and returns to its earlier value when moves are
+     * undone. Monsters are interchangeable: swapping two of them doesn't
+     * change the hash.
+     *
+     * @return The hash of the current state.
+     * @see Bitboards#hash()
+     */
+    public long stateHash() {
+        assert initialized();
+        long result = getBoard().getBitboards().hash();
+        if (playerDied()) {
+            result = ~result;
+        }
+        return result;
     }
 
     /**
@@ -422,37 +768,4 @@ public class Game {
     public char getGuestCode(int x, int y) {
         return getBoard().guestCode(x, y);
     }
-
-    /**
-     * Adds the move to the stack
-     * @param move the move executed
-     */
-    protected void pushMoveStack(Move move) {
-        assert movedStack != null && !movedStack.isEmpty();
-        movedStack.lastElement().add(move);
-        assert movedStack.lastElement().contains(move);
-    }
-
-    /**
-     * Adds a new segment to the stack
-     */
-    protected void nextSegMoveStack() {
-        assert movedStack != null;
-        movedStack.add(new Vector<Move>());
-    }
-
-
-    /**
-     * Pop the movedStack
-     * @return A list containing all moves happened after the segment created.
-     */
-    protected Vector<Move> popMoveStack() {
-        assert movedStack != null && !movedStack.isEmpty();
-        var retval = movedStack.removeLast();
-        if (movedStack.isEmpty()) {
-            nextSegMoveStack();
-        }
-        assert !movedStack.isEmpty();
-        return retval;
-    }
 }
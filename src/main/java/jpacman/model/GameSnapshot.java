@@ -0,0 +1,167 @@
+package jpacman.model;
+
+/**
+ * Immutable copy of the game state as needed for drawing it: the guest
+ * codes of all cells, the player's latest direction, the amount of food
+ * eaten, and the engine state. An engine takes a fresh snapshot when asked
+ * for one after a change, so that viewers can read a consistent state
+ * without holding the engine's lock while drawing.
+ * <p>
+ * Snapshots are numbered: a snapshot with a higher version describes a
+ * later state of the same engine.
+ *
+ * @see Engine#getSnapshot()
+ */
+public final class GameSnapshot {
+
+    /**
+     * Sequence number of this snapshot.
+     */
+    private final long version;
+
+    /**
+     * Width and height of the board.
+     */
+    private final int width, height;
+
+    /**
+     * Guest codes of all cells, indexed by y * width + x. Never modified
+     * once the snapshot has been published.
+     */
+    private final char[] codes;
+
+    /**
+     * Most recent advancement of the player.
+     */
+    private final int playerLastDx, playerLastDy;
+
+    /**
+     * Amount of food eaten.
+     */
+    private final int foodEaten;
+
+    /**
+     * State of the engine.
+     */
+    private final Engine.State state;
+
+    /**
+     * Create a new snapshot, taking ownership of the array of codes.
+     *
+     * @param v
+     *            Sequence number
+     * @param w
+     *            Width of the board
+     * @param h
+     *            Height of the board
+     * @param c
+     *            Guest codes, indexed by y * w + x
+     * @param dx
+     *            Most recent horizontal advancement of the player
+     * @param dy
+     *            Most recent vertical advancement of the player
+     * @param food
+     *            Amount of food eaten
+     * @param s
+     *            State of the engine
+     */
+    GameSnapshot(long v, int w, int h, char[] c, int dx, int dy, int food,
+            Engine.State s) {
+        assert c != null && c.length == w * h;
+        assert s != null;
+        version = v;
+        width = w;
+        height = h;
+        codes = c;
+        playerLastDx = dx;
+        playerLastDy = dy;
+        foodEaten = food;
+        state = s;
+    }
+
+    /**
+     * @return Sequence number of this snapshot.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return The board's width.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return The board's height.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * The guest code at position x, y.
+     *
+     * @param x
+     *            X coordinate
+     * @param y
+     *            Y coordinate
+     * @return Type code of the guest.
+     */
+    public char getGuestCode(int x, int y) {
+        assert 0 <= x && x < width && 0 <= y && y < height;
+        return codes[y * width + x];
+    }
+
+    /**
+     * Copy the guest codes of all cells, row by row.
+     *
+     * @param target
+     *            Array receiving the code of (x,y) at y * width + x, with
+     *            room for all cells.
+     */
+    public void copyGuestCodes(char[] target) {
+        assert target != null && target.length >= codes.length;
+        System.arraycopy(codes, 0, target, 0, codes.length);
+    }
+
+    /**
+     * Package visible, used by the engine to derive the next snapshot.
+     *
+     * @return A fresh copy of the guest codes.
+     */
+    char[] copyCodes() {
+        return codes.clone();
+    }
+
+    /**
+     * @return The most recent advancement of the player in the horizontal
+     *         direction.
+     */
+    public int getPlayerLastDx() {
+        return playerLastDx;
+    }
+
+    /**
+     * @return The most recent advancement of the player in the vertical
+     *         direction.
+     */
+    public int getPlayerLastDy() {
+        return playerLastDy;
+    }
+
+    /**
+     * @return Amount of food eaten.
+     */
+    public int getFoodEaten() {
+        return foodEaten;
+    }
+
+    /**
+     * @return The state the engine was in.
+     */
+    public Engine.State getState() {
+        return state;
+    }
+}
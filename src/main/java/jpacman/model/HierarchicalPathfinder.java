@@ -0,0 +1,728 @@
+package jpacman.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Path finding for monsters on very large boards. The board is divided in
+ * square chunks. Where two neighbouring chunks have a run of open cells
+ * facing each other along their shared border, the middle pair of the run
+ * forms an entrance. Per chunk, the distances between its entrance cells
+ * within the chunk are computed in advance.
+ * <p>
+ * Finding a step toward a target then only requires a search within the
+ * chunk of the start and of the target, plus a search over the entrances,
+ * instead of a search over the whole board. The paths found are not always
+ * the shortest ones, but a target that can be reached is always found.
+ * <p>
+ * As in the distance map, monsters cannot enter walls or food. The
+ * pathfinder reflects the board contents at its creation, plus the cells
+ * it has been told have changed since. Only the chunks affected by such
+ * changes are rebuilt, just before the next search.
+ *
+ * @see DistanceMap
+ */
+public class HierarchicalPathfinder {
+
+    /**
+     * Default width and height of a chunk.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 16;
+
+    /**
+     * Result of a search that didn't find a step.
+     */
+    public static final int NO_STEP = -1;
+
+    /**
+     * Parent of the entrances reached directly from the start.
+     */
+    private static final int START = -2;
+
+    /**
+     * Marks the absence of an entrance.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * Best path found leads to the target without passing an entrance.
+     */
+    private static final int DIRECT = -3;
+
+    /**
+     * Precomputed data of a single chunk.
+     */
+    private static final class Chunk {
+
+        /**
+         * Indices of the entrance cells in the chunk, in increasing order.
+         */
+        private int[] nodes = new int[0];
+
+        /**
+         * Distance within the chunk between entrance i and j, at
+         * i * nodes.length + j, or -1 if there is no path.
+         */
+        private int[] distances = new int[0];
+
+        /**
+         * Pairs of cells facing each other across a border: the first
+         * one in this chunk, the second one in a neighbouring chunk.
+         */
+        private int[] portalFrom = new int[0], portalTo = new int[0];
+    }
+
+    /**
+     * The board paths are found on.
+     */
+    private final Board board;
+
+    /**
+     * The bit sets telling which squares are blocked.
+     */
+    private final Bitboards bits;
+
+    /**
+     * Width and height of the board, and of a chunk.
+     */
+    private final int width, height, chunkSize;
+
+    /**
+     * Number of chunks horizontally and vertically.
+     */
+    private final int chunksX, chunksY;
+
+    /**
+     * Maximum number of entrances in a single chunk.
+     */
+    private final int maxNodes;
+
+    /**
+     * Whether every cell was blocked when the pathfinder was last told
+     * about it.
+     */
+    private final boolean[] blocked;
+
+    /**
+     * The chunks, row by row.
+     */
+    private final Chunk[] chunks;
+
+    /**
+     * Chunks to be rebuilt before the next search.
+     */
+    private final BitSet dirty = new BitSet();
+
+    /**
+     * Number of chunk rebuilds so far.
+     */
+    private int rebuilds;
+
+    /**
+     * Distances within the chunk of the start and of the target, and the
+     * previous cell on a shortest path from the start, by position in the
+     * chunk.
+     */
+    private final int[] startDist, startParent, targetDist;
+
+    /**
+     * Queue used by the searches within a chunk.
+     */
+    private final int[] localQueue;
+
+    /**
+     * Cost, predecessor and search number per entrance, allocated on
+     * first use. Entrance i of chunk c has number c * maxNodes + i.
+     */
+    private int[] cost, parent, visited;
+
+    /**
+     * Number of the current search over the entrances.
+     */
+    private int search;
+
+    /**
+     * Heap of entrances to be expanded, as (estimate << 32) | number.
+     */
+    private long[] heap = new long[64];
+
+    /**
+     * Number of entrances on the heap.
+     */
+    private int heapSize;
+
+    /**
+     * Create a pathfinder with chunks of the default size.
+     *
+     * @param b
+     *            The board to find paths on.
+     */
+    public HierarchicalPathfinder(Board b) {
+        this(b, DEFAULT_CHUNK_SIZE, b.getBitboards());
+    }
+
+    /**
+     * Create a pathfinder with chunks of the default size, reading the
+     * contents of the board from the given bit sets rather than from the
+     * board itself.
+     *
+     * @param b
+     *            The board to find paths on
+     * @param view
+     *            Bit sets of the size of the board, telling which
+     *            squares are blocked.
+     * @see DistanceMap#DistanceMap(Board, Bitboards)
+     */
+    public HierarchicalPathfinder(Board b, Bitboards view) {
+        this(b, DEFAULT_CHUNK_SIZE, view);
+    }
+
+    /**
+     * Create a pathfinder with chunks of the given size.
+     *
+     * @param b
+     *            The board to find paths on
+     * @param size
+     *            Width and height of a chunk, at least 2.
+     */
+    public HierarchicalPathfinder(Board b, int size) {
+        this(b, size, b.getBitboards());
+    }
+
+    /**
+     * Create a pathfinder with chunks of the given size, reading the
+     * contents of the board from the given bit sets.
+     *
+     * @param b
+     *            The board to find paths on
+     * @param size
+     *            Width and height of a chunk, at least 2
+     * @param view
+     *            Bit sets of the size of the board, telling which
+     *            squares are blocked.
+     */
+    public HierarchicalPathfinder(Board b, int size, Bitboards view) {
+        assert b != null && view != null;
+        assert size >= 2;
+        board = b;
+        bits = view;
+        width = b.getWidth();
+        height = b.getHeight();
+        chunkSize = size;
+        chunksX = (width + size - 1) / size;
+        chunksY = (height + size - 1) / size;
+        maxNodes = 4 * size;
+        blocked = new boolean[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                blocked[y * width + x] = !passable(x, y);
+            }
+        }
+        chunks = new Chunk[chunksX * chunksY];
+        for (int c = 0; c < chunks.length; c++) {
+            chunks[c] = new Chunk();
+        }
+        dirty.set(0, chunks.length);
+        startDist = new int[size * size];
+        startParent = new int[size * size];
+        targetDist = new int[size * size];
+        localQueue = new int[size * size];
+    }
+
+    /**
+     * @return The board paths are found on.
+     */
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * @return Number of times a chunk was (re)built so far.
+     */
+    public int getChunkRebuilds() {
+        return rebuilds;
+    }
+
+    /**
+     * Determine whether a monster could stand on the cell at (x,y),
+     * according to the current contents of the bit sets read.
+     *
+     * @param x
+     *            Horizontal coordinate
+     * @param y
+     *            Vertical coordinate
+     * @return True iff (x,y) is within the borders, and neither contains a
+     *         wall nor food.
+     */
+    public boolean passable(int x, int y) {
+        boolean result = false;
+        if (board.withinBorders(x, y)) {
+            result = !bits.wallOrFood(y * width + x);
+        }
+        return result;
+    }
+
+    /**
+     * Take into account that the cell at (x,y) may have become blocked or
+     * passable. If so, its chunk is rebuilt before the next search, as is
+     * the chunk across the border if the cell lies on one.
+     *
+     * @param x
+     *            Horizontal coordinate of the cell
+     * @param y
+     *            Vertical coordinate of the cell
+     */
+    public void cellChanged(int x, int y) {
+        assert board.withinBorders(x, y);
+        boolean nowBlocked = !passable(x, y);
+        if (nowBlocked == blocked[y * width + x]) {
+            return;
+        }
+        blocked[y * width + x] = nowBlocked;
+        int cx = x / chunkSize;
+        int cy = y / chunkSize;
+        dirty.set(cy * chunksX + cx);
+        if (x % chunkSize == 0 && cx > 0) {
+            dirty.set(cy * chunksX + cx - 1);
+        }
+        if ((x + 1) % chunkSize == 0 && cx + 1 < chunksX) {
+            dirty.set(cy * chunksX + cx + 1);
+        }
+        if (y % chunkSize == 0 && cy > 0) {
+            dirty.set((cy - 1) * chunksX + cx);
+        }
+        if ((y + 1) % chunkSize == 0 && cy + 1 < chunksY) {
+            dirty.set((cy + 1) * chunksX + cx);
+        }
+    }
+
+    /**
+     * Find the first step of a path from (fromX, fromY) to (toX, toY).
+     *
+     * @param fromX
+     *            Horizontal coordinate of the start
+     * @param fromY
+     *            Vertical coordinate of the start
+     * @param toX
+     *            Horizontal coordinate of the target
+     * @param toY
+     *            Vertical coordinate of the target
+     * @return The index, y * width + x, of the neighbour of the start to
+     *         step to, or NO_STEP if the start is the target or the target
+     *         cannot be reached.
+     */
+    public int nextStep(int fromX, int fromY, int toX, int toY) {
+        assert board.withinBorders(fromX, fromY);
+        assert board.withinBorders(toX, toY);
+        rebuildDirtyChunks();
+        if (fromX == toX && fromY == toY) {
+            return NO_STEP;
+        }
+        int from = fromY * width + fromX;
+        int to = toY * width + toX;
+        int sc = chunkOf(from);
+        int tc = chunkOf(to);
+        localSearch(from, sc, startDist, startParent);
+        localSearch(to, tc, targetDist, null);
+        int bestCost = Integer.MAX_VALUE;
+        int bestLast = NONE;
+        if (sc == tc && startDist[local(to)] >= 0) {
+            bestCost = startDist[local(to)];
+            bestLast = DIRECT;
+        }
+        allocateSearch();
+        search++;
+        heapSize = 0;
+        Chunk start = chunks[sc];
+        for (int i = 0; i < start.nodes.length; i++) {
+            int d = startDist[local(start.nodes[i])];
+            if (d >= 0) {
+                reach(sc * maxNodes + i, start.nodes[i], d, START, to);
+            }
+        }
+        while (heapSize > 0) {
+            long top = popHeap();
+            int id = (int) top;
+            int estimate = (int) (top >>> 32);
+            int c = id / maxNodes;
+            int cell = chunks[c].nodes[id % maxNodes];
+            if (estimate >= bestCost) {
+                break;
+            }
+            if (estimate > cost[id] + manhattan(cell, to)) {
+                continue;
+            }
+            if (c == tc && targetDist[local(cell)] >= 0
+                    && cost[id] + targetDist[local(cell)] < bestCost) {
+                bestCost = cost[id] + targetDist[local(cell)];
+                bestLast = id;
+            }
+            expand(id, c, cell, to);
+        }
+        return firstStep(from, to, sc, bestLast);
+    }
+
+    /**
+     * Reach the neighbours of an entrance: the other entrances of its
+     * chunk, and the entrances across the border it lies on.
+     *
+     * @param id
+     *            Number of the entrance
+     * @param c
+     *            Its chunk
+     * @param cell
+     *            Its cell
+     * @param to
+     *            The target cell
+     */
+    private void expand(int id, int c, int cell, int to) {
+        Chunk chunk = chunks[c];
+        int k = chunk.nodes.length;
+        int i = id % maxNodes;
+        for (int j = 0; j < k; j++) {
+            int d = chunk.distances[i * k + j];
+            if (d > 0) {
+                reach(c * maxNodes + j, chunk.nodes[j], cost[id] + d, id, to);
+            }
+        }
+        for (int p = 0; p < chunk.portalFrom.length; p++) {
+            if (chunk.portalFrom[p] == cell) {
+                int other = chunk.portalTo[p];
+                int oc = chunkOf(other);
+                int j = Arrays.binarySearch(chunks[oc].nodes, other);
+                assert j >= 0 : "entrances of neighbouring chunks disagree";
+                reach(oc * maxNodes + j, other, cost[id] + 1, id, to);
+            }
+        }
+    }
+
+    /**
+     * Record that an entrance can be reached at the given cost, if that is
+     * cheaper than found before in this search.
+     *
+     * @param id
+     *            Number of the entrance
+     * @param cell
+     *            Its cell
+     * @param c
+     *            The cost of reaching it
+     * @param from
+     *            Number of the entrance it is reached from, or START
+     * @param to
+     *            The target cell
+     */
+    private void reach(int id, int cell, int c, int from, int to) {
+        if (visited[id] != search || c < cost[id]) {
+            visited[id] = search;
+            cost[id] = c;
+            parent[id] = from;
+            pushHeap(((long) (c + manhattan(cell, to)) << 32) | id);
+        }
+    }
+
+    /**
+     * Derive the first step from the best path found.
+     *
+     * @param from
+     *            The start cell
+     * @param to
+     *            The target cell
+     * @param sc
+     *            The chunk of the start
+     * @param last
+     *            Last entrance on the best path, DIRECT, or NONE if
+     *            there is no path.
+     * @return The neighbour of the start to step to, or NO_STEP.
+     */
+    private int firstStep(int from, int to, int sc, int last) {
+        int result = NO_STEP;
+        if (last == DIRECT) {
+            result = stepToward(from, to);
+        } else if (last != NONE) {
+            int second = NONE;
+            int first = last;
+            while (parent[first] != START) {
+                second = first;
+                first = parent[first];
+            }
+            int firstCell = chunks[sc].nodes[first % maxNodes];
+            if (firstCell != from) {
+                result = stepToward(from, firstCell);
+            } else if (second != NONE) {
+                int secondCell = chunks[second / maxNodes]
+                    .nodes[second % maxNodes];
+                if (chunkOf(secondCell) == sc) {
+                    result = stepToward(from, secondCell);
+                } else {
+                    result = secondCell;
+                }
+            } else if (startDist[local(to)] >= 0 && chunkOf(to) == sc) {
+                result = stepToward(from, to);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Follow the shortest path within the chunk from the start back from
+     * a cell in the same chunk, to find the first step of that path.
+     *
+     * @param from
+     *            The start cell
+     * @param target
+     *            A different cell reached by the search from the start.
+     * @return The neighbour of the start on the path to the target.
+     */
+    private int stepToward(int from, int target) {
+        assert target != from;
+        int x0 = chunkOf(from) % chunksX * chunkSize;
+        int y0 = chunkOf(from) / chunksX * chunkSize;
+        int start = local(from);
+        int l = local(target);
+        while (startParent[l] != start) {
+            l = startParent[l];
+        }
+        return (y0 + l / chunkSize) * width + x0 + l % chunkSize;
+    }
+
+    /**
+     * Compute the distances from a cell to the other cells of its chunk,
+     * without leaving the chunk.
+     *
+     * @param origin
+     *            The cell to start from
+     * @param c
+     *            Its chunk
+     * @param dist
+     *            Receives the distances by position in the chunk, or -1
+     * @param prev
+     *            If not null, receives the previous cell on a shortest
+     *            path by position in the chunk
+     */
+    private void localSearch(int origin, int c, int[] dist, int[] prev) {
+        int x0 = c % chunksX * chunkSize;
+        int y0 = c / chunksX * chunkSize;
+        int x1 = Math.min(x0 + chunkSize, width);
+        int y1 = Math.min(y0 + chunkSize, height);
+        Arrays.fill(dist, -1);
+        int head = 0;
+        int tail = 0;
+        int o = local(origin);
+        dist[o] = 0;
+        localQueue[tail++] = o;
+        while (head < tail) {
+            int l = localQueue[head++];
+            int x = x0 + l % chunkSize;
+            int y = y0 + l / chunkSize;
+            for (int dir = 0; dir < 4; dir++) {
+                int nx = x + (dir == 0 ? -1 : dir == 1 ? 1 : 0);
+                int ny = y + (dir == 2 ? -1 : dir == 3 ? 1 : 0);
+                if (nx >= x0 && nx < x1 && ny >= y0 && ny < y1
+                        && !blocked[ny * width + nx]) {
+                    int n = (ny - y0) * chunkSize + nx - x0;
+                    if (dist[n] < 0) {
+                        dist[n] = dist[l] + 1;
+                        if (prev != null) {
+                            prev[n] = l;
+                        }
+                        localQueue[tail++] = n;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuild the chunks affected by changes since the previous search.
+     */
+    private void rebuildDirtyChunks() {
+        for (int c = dirty.nextSetBit(0); c >= 0;
+                c = dirty.nextSetBit(c + 1)) {
+            rebuild(c);
+        }
+        dirty.clear();
+    }
+
+    /**
+     * Find the entrances on the borders of a chunk, and the distances
+     * between them within the chunk.
+     *
+     * @param c
+     *            The chunk to be rebuilt
+     */
+    private void rebuild(int c) {
+        rebuilds++;
+        int x0 = c % chunksX * chunkSize;
+        int y0 = c / chunksX * chunkSize;
+        int x1 = Math.min(x0 + chunkSize, width) - 1;
+        int y1 = Math.min(y0 + chunkSize, height) - 1;
+        int[] from = new int[maxNodes];
+        int[] to = new int[maxNodes];
+        int n = 0;
+        if (x0 > 0) {
+            n = findEntrances(x0, y0, 0, 1, y1 - y0 + 1, -1, 0, from, to, n);
+        }
+        if (x1 < width - 1) {
+            n = findEntrances(x1, y0, 0, 1, y1 - y0 + 1, 1, 0, from, to, n);
+        }
+        if (y0 > 0) {
+            n = findEntrances(x0, y0, 1, 0, x1 - x0 + 1, 0, -1, from, to, n);
+        }
+        if (y1 < height - 1) {
+            n = findEntrances(x0, y1, 1, 0, x1 - x0 + 1, 0, 1, from, to, n);
+        }
+        Chunk chunk = chunks[c];
+        chunk.portalFrom = Arrays.copyOf(from, n);
+        chunk.portalTo = Arrays.copyOf(to, n);
+        chunk.nodes = Arrays.stream(chunk.portalFrom).sorted().distinct()
+            .toArray();
+        int k = chunk.nodes.length;
+        chunk.distances = new int[k * k];
+        for (int i = 0; i < k; i++) {
+            localSearch(chunk.nodes[i], c, targetDist, null);
+            for (int j = 0; j < k; j++) {
+                chunk.distances[i * k + j] = targetDist[local(chunk.nodes[j])];
+            }
+        }
+    }
+
+    /**
+     * Find the entrances along one border of a chunk: for every run of
+     * open cells facing open cells across the border, the middle pair.
+     *
+     * @param x
+     *            Horizontal coordinate of the first border cell
+     * @param y
+     *            Vertical coordinate of the first border cell
+     * @param stepX
+     *            Horizontal offset to the next border cell
+     * @param stepY
+     *            Vertical offset to the next border cell
+     * @param length
+     *            Number of border cells
+     * @param acrossX
+     *            Horizontal offset to the facing cell
+     * @param acrossY
+     *            Vertical offset to the facing cell
+     * @param from
+     *            Receives the border cells of the entrances
+     * @param to
+     *            Receives the facing cells of the entrances
+     * @param n
+     *            Number of entrances found so far
+     * @return The number of entrances found, including those on this
+     *         border.
+     */
+    private int findEntrances(int x, int y, int stepX, int stepY, int length,
+            int acrossX, int acrossY, int[] from, int[] to, int n) {
+        int result = n;
+        int runStart = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean open = false;
+            if (i < length) {
+                int bx = x + i * stepX;
+                int by = y + i * stepY;
+                open = !blocked[by * width + bx]
+                    && !blocked[(by + acrossY) * width + bx + acrossX];
+            }
+            if (open && runStart < 0) {
+                runStart = i;
+            } else if (!open && runStart >= 0) {
+                int mid = (runStart + i - 1) / 2;
+                int bx = x + mid * stepX;
+                int by = y + mid * stepY;
+                from[result] = by * width + bx;
+                to[result] = (by + acrossY) * width + bx + acrossX;
+                result++;
+                runStart = -1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param cell
+     *            Index of a cell
+     * @return The chunk containing it.
+     */
+    private int chunkOf(int cell) {
+        return (cell / width) / chunkSize * chunksX
+            + (cell % width) / chunkSize;
+    }
+
+    /**
+     * @param cell
+     *            Index of a cell
+     * @return Its position within its chunk.
+     */
+    private int local(int cell) {
+        return (cell / width) % chunkSize * chunkSize
+            + (cell % width) % chunkSize;
+    }
+
+    /**
+     * @param a
+     *            Index of a cell
+     * @param b
+     *            Index of another cell
+     * @return The number of steps between them on an open board.
+     */
+    private int manhattan(int a, int b) {
+        return Math.abs(a % width - b % width)
+            + Math.abs(a / width - b / width);
+    }
+
+    /**
+     * Allocate the arrays for searching over the entrances, if that hasn't
+     * been done yet.
+     */
+    private void allocateSearch() {
+        if (cost == null) {
+            cost = new int[chunks.length * maxNodes];
+            parent = new int[chunks.length * maxNodes];
+            visited = new int[chunks.length * maxNodes];
+        }
+    }
+
+    /**
+     * Add an element to the heap.
+     *
+     * @param e
+     *            The element
+     */
+    private void pushHeap(long e) {
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, 2 * heap.length);
+        }
+        int i = heapSize++;
+        while (i > 0 && heap[(i - 1) / 2] > e) {
+            heap[i] = heap[(i - 1) / 2];
+            i = (i - 1) / 2;
+        }
+        heap[i] = e;
+    }
+
+    /**
+     * Remove the smallest element from a non-empty heap.
+     *
+     * @return The element removed.
+     */
+    private long popHeap() {
+        long result = heap[0];
+        long e = heap[--heapSize];
+        int i = 0;
+        while (2 * i + 1 < heapSize) {
+            int child = 2 * i + 1;
+            if (child + 1 < heapSize && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (heap[child] >= e) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = e;
+        return result;
+    }
+}
@@ -0,0 +1,172 @@
+package jpacman.model;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A map read straight from a memory mapped map file, for worlds too large
+ * to be read into strings. The file consists of rows of single byte guest
+ * type codes, each terminated by a newline (or carriage return and
+ * newline); the terminator of the last row may be omitted.
+ * <p>
+ * Opening the file checks in a single pass over the bytes that all rows
+ * have the same length and terminator, so that the code of a square can
+ * be found directly from its position. The codes themselves are checked
+ * by the game reading the map. Files larger than 2GB are mapped in
+ * several segments.
+ */
+public final class MapFile implements MapSource {
+
+    /**
+     * Log2 of the number of bytes in a mapped segment.
+     */
+    private static final int SEGMENT_SHIFT = 30;
+
+    /**
+     * Number of bytes in a mapped segment, except for the last one.
+     */
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+    /**
+     * The file, mapped in consecutive segments.
+     */
+    private final MappedByteBuffer[] segments;
+
+    /**
+     * Number of codes in a row.
+     */
+    private final int width;
+
+    /**
+     * Number of rows.
+     */
+    private final int height;
+
+    /**
+     * Number of bytes from the start of one row to the start of the next.
+     */
+    private final int stride;
+
+    /**
+     * Map the given file, and check its layout.
+     *
+     * @param mapped
+     *            The mapped segments of the file
+     * @param file
+     *            The file, to be mentioned in errors
+     * @throws IOException
+     *             If the file doesn't contain rows of equal length.
+     */
+    private MapFile(MappedByteBuffer[] mapped, Path file) throws IOException {
+        segments = mapped;
+        long rowStart = 0;
+        long pos = 0;
+        int rowWidth = -1;
+        int rowStride = -1;
+        int rows = 0;
+        boolean carriageReturn = false;
+        for (MappedByteBuffer segment : segments) {
+            int limit = segment.limit();
+            for (int i = 0; i < limit; i++, pos++) {
+                byte b = segment.get(i);
+                if (b == '\n') {
+                    int length = (int) Math.min(pos - rowStart,
+                            Integer.MAX_VALUE);
+                    int w = carriageReturn ? length - 1 : length;
+                    if (rowWidth < 0) {
+                        rowWidth = w;
+                        rowStride = length + 1;
+                    }
+                    if (w != rowWidth || length + 1 != rowStride) {
+                        throw new IOException(file + ": row " + (rows + 1)
+                                + " differs in length from the first row");
+                    }
+                    rows++;
+                    rowStart = pos + 1;
+                }
+                carriageReturn = b == '\r';
+            }
+        }
+        if (rowStart < pos) {
+            // the last row lacks a terminator.
+            int length = (int) Math.min(pos - rowStart, Integer.MAX_VALUE);
+            int w = carriageReturn ? length - 1 : length;
+            if (rowWidth < 0) {
+                rowWidth = w;
+                rowStride = length + 1;
+            }
+            if (w != rowWidth) {
+                throw new IOException(file + ": row " + (rows + 1)
+                        + " differs in length from the first row");
+            }
+            rows++;
+        }
+        if (rows == 0 || rowWidth <= 0) {
+            throw new IOException(file + ": empty map");
+        }
+        if ((long) rows * rowWidth > Integer.MAX_VALUE) {
+            throw new IOException(file + ": map of " + rowWidth + "x" + rows
+                    + " too large for a board");
+        }
+        width = rowWidth;
+        height = rows;
+        stride = rowStride;
+    }
+
+    /**
+     * Map the given file into memory, and check that it consists of rows
+     * of equal length.
+     *
+     * @param file
+     *            The map file
+     * @return The map contained in the file.
+     * @throws IOException
+     *             If the file can't be read, or its rows differ in length.
+     */
+    public static MapFile open(Path file) throws IOException {
+        try (FileChannel channel =
+                FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int count = (int) ((size + SEGMENT_SIZE - 1) / SEGMENT_SIZE);
+            MappedByteBuffer[] mapped = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long start = i * SEGMENT_SIZE;
+                mapped[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        start, Math.min(SEGMENT_SIZE, size - start));
+            }
+            // the mapping remains valid once the channel is closed.
+            return new MapFile(mapped, file);
+        }
+    }
+
+    /**
+     * @see MapSource#getWidth()
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @see MapSource#getHeight()
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Return the code at the given position, read from the mapped file.
+     * Every byte stands for the character with the same value.
+     *
+     * @see MapSource#codeAt(int, int)
+     */
+    public char codeAt(int x, int y) {
+        assert 0 <= x && x < width && 0 <= y && y < height;
+        long pos = (long) y * stride + x;
+        byte b = segments[(int) (pos >>> SEGMENT_SHIFT)]
+            .get((int) (pos & (SEGMENT_SIZE - 1)));
+        return (char) (b & 0xff);
+    }
+}
@@ -0,0 +1,174 @@
+package jpacman.model;
+
+import java.util.Arrays;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join task filling a fresh board from a map. The squares, in reading
+ * order, are split into bands, which are read in parallel: every band
+ * places its walls and food, counts its food, and collects the positions
+ * of the player and the monsters. Bands start at multiples of 64 squares,
+ * so that no two bands share a word of the board's bitboards. The moving
+ * guests are left to the game, which places them one by one, so that the
+ * single player rule is checked and the monsters are numbered in reading
+ * order, as before.
+ * <p>
+ * The board shouldn't remember touched cells while it is being filled.
+ *
+ * @see Board#trackChanges(boolean)
+ */
+final class MapLoader extends RecursiveAction {
+
+    /**
+     * Number of squares above which a band is split in two.
+     */
+    static final int BAND_CELLS = 1 << 16;
+
+    /**
+     * Serial version, as for every serializable class.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The map read.
+     */
+    private final MapSource map;
+
+    /**
+     * The board filled.
+     */
+    private final Board board;
+
+    /**
+     * Index of the first square of the band, and of the square just
+     * after it.
+     */
+    private final int first, end;
+
+    /**
+     * The number of food elements in the band.
+     */
+    private int foodCount = 0;
+
+    /**
+     * Indices of the squares of the player and monsters in the band, in
+     * reading order.
+     */
+    private int[] movers = new int[0];
+
+    /**
+     * Create a task filling the given board from the whole map.
+     *
+     * @param source
+     *            The map to be read
+     * @param target
+     *            An empty board of the same size as the map
+     */
+    MapLoader(MapSource source, Board target) {
+        this(source, target, 0, source.getWidth() * source.getHeight());
+        assert target.getWidth() == source.getWidth()
+            && target.getHeight() == source.getHeight();
+    }
+
+    /**
+     * Create a task filling a band of squares.
+     *
+     * @param source
+     *            The map to be read
+     * @param target
+     *            The board to be filled
+     * @param from
+     *            Index of the first square of the band
+     * @param to
+     *            Index of the square just after the band
+     */
+    private MapLoader(MapSource source, Board target, int from, int to) {
+        map = source;
+        board = target;
+        first = from;
+        end = to;
+    }
+
+    /**
+     * Split the band in two if it is large, and fill it otherwise.
+     *
+     * @see java.util.concurrent.RecursiveAction#compute()
+     */
+    @Override
+    protected void compute() {
+        if (end - first > BAND_CELLS) {
+            // split at a word boundary of the bitboards.
+            int middle = first + ((end - first) / 2 & -Long.SIZE);
+            MapLoader upper = new MapLoader(map, board, first, middle);
+            MapLoader lower = new MapLoader(map, board, middle, end);
+            invokeAll(upper, lower);
+            foodCount = upper.foodCount + lower.foodCount;
+            movers = Arrays.copyOf(upper.movers,
+                    upper.movers.length + lower.movers.length);
+            System.arraycopy(lower.movers, 0, movers, upper.movers.length,
+                    lower.movers.length);
+        } else {
+            fillBand();
+        }
+    }
+
+    /**
+     * Place the walls and food of the band, and collect its moving guests.
+     */
+    private void fillBand() {
+        int width = map.getWidth();
+        int count = 0;
+        int x = first % width;
+        int y = first / width;
+        for (int i = first; i < end; i++) {
+            char code = map.codeAt(x, y);
+            switch (code) {
+            case Guest.WALL_TYPE:
+                if (!board.putCode(code, x, y)) {
+                    new Wall().occupy(board.getCell(x, y));
+                }
+                break;
+            case Guest.FOOD_TYPE:
+                if (!board.putCode(code, x, y)) {
+                    new Food().occupy(board.getCell(x, y));
+                }
+                foodCount++;
+                break;
+            case Guest.PLAYER_TYPE:
+            case Guest.MONSTER_TYPE:
+                if (count == movers.length) {
+                    movers = Arrays.copyOf(movers, 2 * count + 4);
+                }
+                movers[count++] = i;
+                break;
+            case Guest.EMPTY_TYPE:
+                break;
+            default:
+                assert false
+                    : "unknown cell type``" + code + "'' in worldmap";
+                break;
+            }
+            x++;
+            if (x == width) {
+                x = 0;
+                y++;
+            }
+        }
+        movers = Arrays.copyOf(movers, count);
+    }
+
+    /**
+     * @return The number of food elements on the map.
+     */
+    int getFoodCount() {
+        return foodCount;
+    }
+
+    /**
+     * @return Indices (y * width + x) of the squares of the player and
+     *         the monsters, in reading order.
+     */
+    int[] getMovers() {
+        return movers;
+    }
+}
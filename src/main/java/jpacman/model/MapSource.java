@@ -0,0 +1,33 @@
+package jpacman.model;
+
+/**
+ * The initial layout of a world, as a rectangle of guest type codes. A game
+ * reads squares of its map again when it is restarted, so a map should
+ * keep returning the same codes.
+ *
+ * @see Game#Game(MapSource, boolean)
+ */
+public interface MapSource {
+
+    /**
+     * @return The number of columns of the map.
+     */
+    int getWidth();
+
+    /**
+     * @return The number of rows of the map.
+     */
+    int getHeight();
+
+    /**
+     * Return the guest type code at the given position, which should lie
+     * within the map.
+     *
+     * @param x
+     *            Column of the code
+     * @param y
+     *            Row of the code
+     * @return The code of the guest initially at (x,y).
+     */
+    char codeAt(int x, int y);
+}
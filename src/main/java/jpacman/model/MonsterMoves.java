@@ -0,0 +1,114 @@
+package jpacman.model;
+
+import java.util.Arrays;
+
+/**
+ * A batch of monster moves planned for a single tick, to be carried out in
+ * one go by the engine. The moves are applied in the order in which they
+ * were added. A batch can be cleared and refilled for the next tick, so a
+ * controller needs only one of them.
+ *
+ * @see Engine#moveMonsters(MonsterMoves)
+ */
+public class MonsterMoves {
+
+    /**
+     * Initial number of moves that fit in the batch.
+     */
+    private static final int INITIAL_SIZE = 16;
+
+    /**
+     * The monsters to be moved.
+     */
+    private Monster[] monsters = new Monster[INITIAL_SIZE];
+
+    /**
+     * Horizontal offsets of the moves.
+     */
+    private int[] dxs = new int[INITIAL_SIZE];
+
+    /**
+     * Vertical offsets of the moves.
+     */
+    private int[] dys = new int[INITIAL_SIZE];
+
+    /**
+     * Number of moves in the batch.
+     */
+    private int size = 0;
+
+    /**
+     * Add a move to the batch.
+     *
+     * @param monster
+     *            The monster to be moved, not null
+     * @param dx
+     *            Horizontal offset
+     * @param dy
+     *            Vertical offset
+     */
+    public void add(Monster monster, int dx, int dy) {
+        assert monster != null;
+        if (size == monsters.length) {
+            monsters = Arrays.copyOf(monsters, 2 * size);
+            dxs = Arrays.copyOf(dxs, 2 * size);
+            dys = Arrays.copyOf(dys, 2 * size);
+        }
+        monsters[size] = monster;
+        dxs[size] = dx;
+        dys[size] = dy;
+        size++;
+    }
+
+    /**
+     * Remove all moves from the batch.
+     */
+    public void clear() {
+        Arrays.fill(monsters, 0, size, null);
+        size = 0;
+    }
+
+    /**
+     * @return The number of moves in the batch.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true iff the batch contains no moves.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @param i
+     *            Index of a move, 0 &lt;= i &lt; size().
+     * @return The monster to be moved.
+     */
+    public Monster getMonster(int i) {
+        assert 0 <= i && i < size;
+        return monsters[i];
+    }
+
+    /**
+     * @param i
+     *            Index of a move, 0 &lt;= i &lt; size().
+     * @return The horizontal offset of the move.
+     */
+    public int getDx(int i) {
+        assert 0 <= i && i < size;
+        return dxs[i];
+    }
+
+    /**
+     * @param i
+     *            Index of a move, 0 &lt;= i &lt; size().
+     * @return The vertical offset of the move.
+     */
+    public int getDy(int i) {
+        assert 0 <= i && i < size;
+        return dys[i];
+    }
+}
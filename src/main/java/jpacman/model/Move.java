@@ -245,6 +245,35 @@ public abstract class Move {
         return mover;
     }
 
+    /**
+     * @return The cell the mover started from.
+     */
+    Cell getFromCell() {
+        return fromCell;
+    }
+
+    /**
+     * @return The target cell of the move.
+     */
+    Cell getTargetCell() {
+        return to;
+    }
+
+    /**
+     * @return The guest present at the target cell when the move was
+     *         created.
+     */
+    Guest getTargetGuest() {
+        return targetGuest;
+    }
+
+    /**
+     * @return The amount of food the mover eats by this move.
+     */
+    int foodDelta() {
+        return 0;
+    }
+
     /**
      * @return true if the move has already been applied.
      */
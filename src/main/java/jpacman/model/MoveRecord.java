@@ -0,0 +1,186 @@
+package jpacman.model;
+
+/**
+ * A reusable record of a single move, used by games running in pooled move
+ * mode. Where a Move object is created for every move and computes its
+ * effects through a double dispatch on the guests involved, a move record
+ * is resolved by looking at the type code of the target guest, and can be
+ * resolved again for the next move once it has been applied and entered in
+ * the game's undo journal.
+ * <p>
+ * The effects computed are the same as those of PlayerMove and MonsterMove:
+ * the player can move to empty cells and eat food, and dies when meeting a
+ * monster; a monster can only move to empty cells, and kills the player
+ * when meeting it.
+ *
+ * @see Move
+ */
+final class MoveRecord {
+
+    /**
+     * The guest who initiated the move.
+     */
+    private MovingGuest mover;
+
+    /**
+     * The initial location of the move.
+     */
+    private Cell from;
+
+    /**
+     * The target cell, null if beyond the borders of the board.
+     */
+    private Cell to;
+
+    /**
+     * The guest present at the target cell, which is removed if the move
+     * is applied.
+     */
+    private Guest captured;
+
+    /**
+     * The amount of food eaten if the move is applied.
+     */
+    private int foodEaten;
+
+    /**
+     * Is the move possible?
+     */
+    private boolean possible;
+
+    /**
+     * Is the player going to die as a result of this move?
+     */
+    private boolean playerDies;
+
+    /**
+     * Has the move been applied?
+     */
+    private boolean applied;
+
+    /**
+     * (Re)compute the effects of moving a guest to a given cell, forgetting
+     * whatever move this record represented before. Precondition: the mover
+     * occupies a cell.
+     *
+     * @param movingGuest
+     *            The player or monster to be moved
+     * @param target
+     *            The target cell, or null if beyond the borders
+     * @return This record.
+     */
+    MoveRecord resolve(MovingGuest movingGuest, Cell target) {
+        assert movingGuest != null;
+        assert movingGuest.getLocation() != null;
+        mover = movingGuest;
+        from = movingGuest.getLocation();
+        to = target;
+        captured = null;
+        foodEaten = 0;
+        possible = false;
+        playerDies = false;
+        applied = false;
+        if (target != null) {
+            Guest targetGuest = target.getInhabitant();
+            boolean moverIsPlayer =
+                movingGuest.guestType() == Guest.PLAYER_TYPE;
+            char targetCode = targetGuest == null
+                ? Guest.EMPTY_TYPE : targetGuest.guestType();
+            switch (targetCode) {
+            case Guest.EMPTY_TYPE:
+                possible = true;
+                break;
+            case Guest.FOOD_TYPE:
+                if (moverIsPlayer) {
+                    captured = targetGuest;
+                    foodEaten = ((Food) targetGuest).getPoints();
+                    possible = true;
+                }
+                break;
+            case Guest.MONSTER_TYPE:
+                playerDies = moverIsPlayer;
+                break;
+            case Guest.PLAYER_TYPE:
+                playerDies = !moverIsPlayer;
+                break;
+            default:
+                break;
+            }
+        }
+        assert !(possible && playerDies);
+        return this;
+    }
+
+    /**
+     * @return The guest initiating the move.
+     */
+    MovingGuest getMovingGuest() {
+        return mover;
+    }
+
+    /**
+     * @return The cell the mover started from.
+     */
+    Cell getFromCell() {
+        return from;
+    }
+
+    /**
+     * @return The target cell, null if beyond the borders.
+     */
+    Cell getTargetCell() {
+        return to;
+    }
+
+    /**
+     * @return The guest removed from the target cell by this move, if any.
+     */
+    Guest getCaptured() {
+        return captured;
+    }
+
+    /**
+     * @return The amount of food eaten by this move.
+     */
+    int foodDelta() {
+        return foodEaten;
+    }
+
+    /**
+     * @return true iff the move is possible.
+     */
+    boolean movePossible() {
+        return possible && !applied;
+    }
+
+    /**
+     * @return true iff the player won't survive this move.
+     */
+    boolean playerDies() {
+        return playerDies;
+    }
+
+    /**
+     * @return true iff the move has been applied.
+     */
+    boolean moveDone() {
+        return applied;
+    }
+
+    /**
+     * Actually carry out the move. Precondition: the move is possible.
+     */
+    void apply() {
+        assert movePossible() : "Cannot execute an impossible move.";
+        if (captured != null) {
+            captured.deoccupy();
+        }
+        mover.deoccupy();
+        mover.occupy(to);
+        if (foodEaten != 0) {
+            ((Player) mover).eat(foodEaten);
+        }
+        applied = true;
+        assert from.getInhabitant() == null : "old cell should be freed";
+    }
+}
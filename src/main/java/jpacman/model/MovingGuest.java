@@ -9,9 +9,28 @@ package jpacman.model;
  */
 public abstract class MovingGuest extends Guest {
 
+    /**
+     * Number identifying this guest among the moving guests of its game.
+     */
+    private int moverId;
+
     /**
      * Constructs a new moving guest.
      */
     public MovingGuest() {
     }
+
+    /**
+     * @return The number identifying this guest within its game.
+     */
+    int getMoverId() {
+        return moverId;
+    }
+
+    /**
+     * @param id The number identifying this guest within its game.
+     */
+    void setMoverId(int id) {
+        moverId = id;
+    }
 }
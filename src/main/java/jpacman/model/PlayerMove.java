@@ -82,6 +82,14 @@ public class PlayerMove extends Move {
         return foodEaten;
     }
 
+    /**
+     * @return The food that would be eaten if this move is applied.
+     */
+    @Override
+    int foodDelta() {
+        return foodEaten;
+    }
+
     /**
      * Set the amount of food eaten to a given value.
      *
@@ -0,0 +1,298 @@
+package jpacman.model;
+
+import java.util.Arrays;
+
+/**
+ * A lightweight copy of the state of a game, for searches that play out
+ * many possible continuations. It consists of the bitboards of the board,
+ * the squares of the player and the monsters, and the food eaten, and it
+ * follows the same rules as the game: the player can't enter walls, eats
+ * the food it walks into and dies when meeting a monster, while monsters
+ * can only enter empty squares and the square of the player.
+ * <p>
+ * A state shares nothing with the game it was copied from, or with other
+ * states, so every thread can play out games on its own states. Copying
+ * one state into another allocates nothing. Unlike the game, a state keeps
+ * no undo history and no hash.
+ */
+public final class SearchState {
+
+    /**
+     * Width and height of the board.
+     */
+    private final int width, height;
+
+    /**
+     * The guests on the board.
+     */
+    private final Bitboards bits;
+
+    /**
+     * Index of the square of the player.
+     */
+    private int player;
+
+    /**
+     * Indices of the squares of the monsters, in the order of the game.
+     */
+    private final int[] monsters;
+
+    /**
+     * Number of food elements left on the board.
+     */
+    private int foodLeft;
+
+    /**
+     * Number of food elements eaten since the copy was taken from the game.
+     */
+    private int foodEaten;
+
+    /**
+     * True iff the player has died.
+     */
+    private boolean died;
+
+    /**
+     * Copy the state of a game.
+     *
+     * @param g
+     *            An initialized game
+     */
+    public SearchState(Game g) {
+        assert g != null && g.initialized();
+        Board board = g.getBoard();
+        width = board.getWidth();
+        height = board.getHeight();
+        bits = board.getBitboards().copy();
+        bits.setHashing(false);
+        Cell location = g.getPlayer().getLocation();
+        player = board.index(location.getX(), location.getY());
+        int[] found = new int[g.getMonsters().size()];
+        int count = 0;
+        for (Monster monster : g.getMonsters()) {
+            Cell cell = monster.getLocation();
+            // monsters of a previous round are no longer on the board.
+            if (cell != null) {
+                found[count++] = board.index(cell.getX(), cell.getY());
+            }
+        }
+        monsters = Arrays.copyOf(found, count);
+        foodLeft = bits.count(Guest.FOOD_TYPE);
+        died = g.playerDied();
+    }
+
+    /**
+     * Create a copy of another state.
+     *
+     * @param other
+     *            The state to be copied
+     */
+    private SearchState(SearchState other) {
+        width = other.width;
+        height = other.height;
+        bits = other.bits.copy();
+        monsters = other.monsters.clone();
+        player = other.player;
+        foodLeft = other.foodLeft;
+        foodEaten = other.foodEaten;
+        died = other.died;
+    }
+
+    /**
+     * Copy the state of the game driven by an engine, locking the engine
+     * while doing so.
+     *
+     * @param e
+     *            The engine
+     * @return A copy of the state of its game.
+     */
+    public static SearchState of(Engine e) {
+        synchronized (e) {
+            return new SearchState(e.getGame());
+        }
+    }
+
+    /**
+     * @return An independent copy of this state.
+     */
+    public SearchState copy() {
+        return new SearchState(this);
+    }
+
+    /**
+     * Overwrite this state with a copy of another state of the same game.
+     *
+     * @param other
+     *            The state to be copied
+     */
+    public void copyFrom(SearchState other) {
+        assert other.monsters.length == monsters.length;
+        bits.copyFrom(other.bits);
+        System.arraycopy(other.monsters, 0, monsters, 0, monsters.length);
+        player = other.player;
+        foodLeft = other.foodLeft;
+        foodEaten = other.foodEaten;
+        died = other.died;
+    }
+
+    /**
+     * Find the square at an offset from another one.
+     *
+     * @param from
+     *            Index of a square
+     * @param dx
+     *            Horizontal offset
+     * @param dy
+     *            Vertical offset
+     * @return The index of the square at the offset, or -1 if it is beyond
+     *         the borders.
+     */
+    public int indexAtOffset(int from, int dx, int dy) {
+        int x = from % width + dx;
+        int y = from / width + dy;
+        return 0 <= x && x < width && 0 <= y && y < height
+            ? y * width + x : -1;
+    }
+
+    /**
+     * Move the player, as Game.movePlayer would. Precondition: the game
+     * isn't over.
+     *
+     * @param dx
+     *            Horizontal movement
+     * @param dy
+     *            Vertical movement
+     */
+    public void movePlayer(int dx, int dy) {
+        assert !gameOver();
+        int target = indexAtOffset(player, dx, dy);
+        if (target >= 0) {
+            switch (bits.typeAt(target)) {
+            case Guest.MONSTER_TYPE:
+                died = true;
+                break;
+            case Guest.FOOD_TYPE:
+                foodLeft--;
+                foodEaten++;
+                bits.update(player, Guest.EMPTY_TYPE);
+                bits.update(target, Guest.PLAYER_TYPE);
+                player = target;
+                break;
+            case Guest.EMPTY_TYPE:
+                bits.update(player, Guest.EMPTY_TYPE);
+                bits.update(target, Guest.PLAYER_TYPE);
+                player = target;
+                break;
+            default:
+                assert bits.typeAt(target) == Guest.WALL_TYPE;
+            }
+        }
+    }
+
+    /**
+     * Move a monster, as Game.moveMonster would. Precondition: the game
+     * isn't over.
+     *
+     * @param monster
+     *            Number of the monster, from 0 up to the number of
+     *            monsters
+     * @param dx
+     *            Horizontal movement
+     * @param dy
+     *            Vertical movement
+     */
+    public void moveMonster(int monster, int dx, int dy) {
+        assert !gameOver();
+        int from = monsters[monster];
+        int target = indexAtOffset(from, dx, dy);
+        if (target >= 0) {
+            if (target == player) {
+                died = true;
+            } else if (!bits.occupied(target)) {
+                bits.update(from, Guest.EMPTY_TYPE);
+                bits.update(target, Guest.MONSTER_TYPE);
+                monsters[monster] = target;
+            }
+        }
+    }
+
+    /**
+     * @return The guests on the board, not to be modified.
+     */
+    public Bitboards getBitboards() {
+        return bits;
+    }
+
+    /**
+     * @return The width of the board.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * @return The height of the board.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return The index (y * width + x) of the square of the player.
+     */
+    public int getPlayerIndex() {
+        return player;
+    }
+
+    /**
+     * @return The number of monsters on the board.
+     */
+    public int getMonsterCount() {
+        return monsters.length;
+    }
+
+    /**
+     * @param monster
+     *            Number of a monster
+     * @return The index of the square of the monster.
+     */
+    public int getMonsterIndex(int monster) {
+        return monsters[monster];
+    }
+
+    /**
+     * @return The number of food elements left on the board.
+     */
+    public int getFoodLeft() {
+        return foodLeft;
+    }
+
+    /**
+     * @return The number of food elements eaten since the state was copied
+     *         from the game.
+     */
+    public int getFoodEaten() {
+        return foodEaten;
+    }
+
+    /**
+     * @return True iff the player has died.
+     */
+    public boolean playerDied() {
+        return died;
+    }
+
+    /**
+     * @return True iff all food has been eaten by a living player.
+     */
+    public boolean playerWon() {
+        return foodLeft == 0 && !died;
+    }
+
+    /**
+     * @return True iff the player has died or won.
+     */
+    public boolean gameOver() {
+        return died || foodLeft == 0;
+    }
+}
@@ -0,0 +1,322 @@
+package jpacman.model;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+
+/**
+ * Find the minimum number of player moves needed to eat all food in a
+ * game, assuming the monsters stay where they are. This tells level
+ * designers whether a map can be won at all, and how hard it is.
+ * <p>
+ * The solver searches the game itself, making moves with the game's own
+ * move logic and unmaking them through its undo journal. It uses iterative
+ * deepening A*: every iteration searches all move sequences whose length
+ * plus an estimate of the remaining moves stays within a bound, which is
+ * raised until a solution is found. A transposition table keyed by the
+ * game's state hash remembers, for states already searched, a lower bound
+ * on the moves still needed, so that states reached along different paths
+ * aren't searched again in vain. The table has a fixed number of entries,
+ * later entries replacing earlier ones in the same slot.
+ * <p>
+ * The game is left in its original state, but its undo history is
+ * discarded if it is too short for the search.
+ */
+public final class Solver {
+
+    /**
+     * Result of solving a game that can't be won.
+     */
+    public static final int NO_SOLUTION = -1;
+
+    /**
+     * Default log2 of the number of entries of the transposition table.
+     */
+    public static final int DEFAULT_TABLE_BITS = 20;
+
+    /**
+     * The four directions the player can move in, as {dx, dy}, in the
+     * order of MOVE_NAMES.
+     */
+    private static final int[][] DIRECTIONS =
+        {{0, -1}, {0, 1}, {-1, 0}, {1, 0}};
+
+    /**
+     * The actions moving the player in each direction, as used by the
+     * fuzzer's action scripts.
+     */
+    private static final String MOVE_NAMES = "UDLR";
+
+    /**
+     * Value returned by the search once all food has been eaten.
+     */
+    private static final int FOUND = -1;
+
+    /**
+     * The game searched.
+     */
+    private final Game game;
+
+    /**
+     * Hashes of the states in the transposition table.
+     */
+    private final long[] tableKeys;
+
+    /**
+     * Lower bounds on the number of moves still needed from the states in
+     * the transposition table.
+     */
+    private final int[] tableBounds;
+
+    /**
+     * Directions of the moves made so far by the search.
+     */
+    private int[] path;
+
+    /**
+     * The moves of the solution found by the last search.
+     */
+    private String solution = "";
+
+    /**
+     * Number of states expanded by the last search.
+     */
+    private long expanded;
+
+    /**
+     * Create a solver for the given game, with a transposition table of
+     * the default size.
+     *
+     * @param g
+     *            The game to be solved
+     */
+    public Solver(Game g) {
+        this(g, DEFAULT_TABLE_BITS);
+    }
+
+    /**
+     * Create a solver for the given game.
+     *
+     * @param g
+     *            The game to be solved
+     * @param tableBits
+     *            Log2 of the number of entries of the transposition table
+     */
+    public Solver(Game g, int tableBits) {
+        assert g != null && g.initialized();
+        assert 0 <= tableBits && tableBits < Integer.SIZE - 1;
+        game = g;
+        tableKeys = new long[1 << tableBits];
+        tableBounds = new int[1 << tableBits];
+    }
+
+    /**
+     * Determine whether all food can be eaten: every food element should
+     * be reachable from the player without passing through a wall or a
+     * monster.
+     *
+     * @return True iff the game can be won.
+     */
+    public boolean winnable() {
+        Board board = game.getBoard();
+        Bitboards bits = board.getBitboards();
+        int w = board.getWidth();
+        Cell start = game.getPlayer().getLocation();
+        BitSet reached = new BitSet();
+        ArrayDeque<Integer> queue = new ArrayDeque<Integer>();
+        reached.set(board.index(start.getX(), start.getY()));
+        queue.add(board.index(start.getX(), start.getY()));
+        while (!queue.isEmpty()) {
+            int i = queue.remove();
+            for (int[] d : DIRECTIONS) {
+                int x = i % w + d[0];
+                int y = i / w + d[1];
+                if (board.withinBorders(x, y)) {
+                    int j = y * w + x;
+                    if (!reached.get(j) && walkable(bits, j)) {
+                        reached.set(j);
+                        queue.add(j);
+                    }
+                }
+            }
+        }
+        boolean result = true;
+        for (int word = 0; result && word < bits.wordCount(); word++) {
+            long food = bits.word(Guest.FOOD_TYPE, word);
+            for (; result && food != 0; food &= food - 1) {
+                result = reached.get(word * Long.SIZE
+                        + Long.numberOfTrailingZeros(food));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Find the minimum number of moves to eat all food.
+     *
+     * @param maxMoves
+     *            The largest number of moves considered
+     * @return The number of moves, or NO_SOLUTION if the game can't be won
+     *         within maxMoves moves.
+     */
+    public int solve(int maxMoves) {
+        assert maxMoves >= 0;
+        solution = "";
+        expanded = 0;
+        if (game.playerWon()) {
+            return 0;
+        }
+        if (game.playerDied() || !winnable()) {
+            return NO_SOLUTION;
+        }
+        if (game.getUndoLimit() < maxMoves) {
+            game.setUndoLimit(maxMoves);
+        }
+        boolean pooled = game.pooledMoves();
+        game.setPooledMoves(true);
+        path = new int[maxMoves];
+        int result = NO_SOLUTION;
+        int bound = estimate();
+        while (result == NO_SOLUTION && bound <= maxMoves) {
+            int next = search(0, bound, -1);
+            if (next == FOUND) {
+                result = bound;
+            } else {
+                bound = next;
+            }
+        }
+        game.setPooledMoves(pooled);
+        return result;
+    }
+
+    /**
+     * Search all move sequences from the current state whose length,
+     * plus the estimated number of moves still needed, stays within the
+     * bound.
+     *
+     * @param made
+     *            Number of moves made so far
+     * @param bound
+     *            The bound on the number of moves
+     * @param lastMove
+     *            Direction of the previous move if it didn't eat
+     *            anything, -1 otherwise
+     * @return FOUND if all food has been eaten, or else the smallest
+     *         estimated total number of moves that exceeded the bound.
+     */
+    private int search(int made, int bound, int lastMove) {
+        long hash = game.stateHash();
+        int slot = (int) (hash ^ (hash >>> 32)) & (tableKeys.length - 1);
+        int needed = estimate();
+        if (tableKeys[slot] == hash && tableBounds[slot] > needed) {
+            needed = tableBounds[slot];
+        }
+        if (needed == 0) {
+            solution = pathString(made);
+            return FOUND;
+        }
+        if (made + needed > bound) {
+            return made + needed;
+        }
+        expanded++;
+        int least = Integer.MAX_VALUE;
+        Cell from = game.getPlayer().getLocation();
+        Bitboards bits = game.getBoard().getBitboards();
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            int dx = DIRECTIONS[d][0];
+            int dy = DIRECTIONS[d][1];
+            Cell to = from.cellAtOffset(dx, dy);
+            // going straight back after a move without effect only
+            // returns to the previous state.
+            if (to != null && (d ^ 1) != lastMove
+                    && walkable(bits, game.getBoard().index(to.getX(),
+                            to.getY()))) {
+                int food = game.getPlayer().getPointsEaten();
+                game.movePlayer(dx, dy);
+                path[made] = d;
+                int result = search(made + 1, bound,
+                        game.getPlayer().getPointsEaten() == food ? d : -1);
+                game.undo();
+                if (result == FOUND) {
+                    return FOUND;
+                }
+                least = Math.min(least, result);
+            }
+        }
+        tableKeys[slot] = hash;
+        tableBounds[slot] = least == Integer.MAX_VALUE
+            ? Integer.MAX_VALUE : least - made;
+        return least;
+    }
+
+    /**
+     * @param bits
+     *            The bitboards of the board
+     * @param index
+     *            Index of a square
+     * @return True iff the player can enter the square and survive.
+     */
+    private static boolean walkable(Bitboards bits, int index) {
+        return !bits.has(Guest.WALL_TYPE, index)
+            && !bits.has(Guest.MONSTER_TYPE, index);
+    }
+
+    /**
+     * Estimate the number of moves still needed, never overestimating:
+     * every move eats at most one food element, the nearest one is at
+     * least its Manhattan distance away, and so is the farthest.
+     *
+     * @return A lower bound on the number of moves needed.
+     */
+    private int estimate() {
+        Bitboards bits = game.getBoard().getBitboards();
+        int w = game.getBoard().getWidth();
+        Cell player = game.getPlayer().getLocation();
+        int remaining = 0;
+        int nearest = Integer.MAX_VALUE;
+        int farthest = 0;
+        for (int word = 0; word < bits.wordCount(); word++) {
+            long food = bits.word(Guest.FOOD_TYPE, word);
+            for (; food != 0; food &= food - 1) {
+                int i = word * Long.SIZE + Long.numberOfTrailingZeros(food);
+                int distance = Math.abs(i % w - player.getX())
+                    + Math.abs(i / w - player.getY());
+                nearest = Math.min(nearest, distance);
+                farthest = Math.max(farthest, distance);
+                remaining++;
+            }
+        }
+        return remaining == 0 ? 0
+            : Math.max(nearest + remaining - 1, farthest);
+    }
+
+    /**
+     * @param length
+     *            Number of moves made
+     * @return The moves made, as action characters.
+     */
+    private String pathString(int length) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            result.append(MOVE_NAMES.charAt(path[i]));
+        }
+        return result.toString();
+    }
+
+    /**
+     * @return The moves of the solution found by the last invocation of
+     *         solve, as a string of <code>U</code>, <code>D</code>,
+     *         <code>L</code> and <code>R</code> actions; empty if there
+     *         was none.
+     */
+    public String getSolution() {
+        return solution;
+    }
+
+    /**
+     * @return The number of states expanded by the last invocation of
+     *         solve.
+     */
+    public long getExpanded() {
+        return expanded;
+    }
+}
@@ -0,0 +1,277 @@
+package jpacman.model;
+
+/**
+ * Bounded journal of the moves executed in a game, used to undo them. Each
+ * move is encoded in a few primitive fields: the id of the moving guest,
+ * the board indices of the cell it came from and the cell it went to, the
+ * type code of the guest it captured, and the amount of food eaten.
+ * <p>
+ * Moves are divided in segments: a segment starts with a player move, and
+ * contains the monster moves made after it. The entries are kept in a ring
+ * buffer, which grows until it reaches its capacity; from then on, the
+ * oldest entries are overwritten, so only the most recent moves can be
+ * undone.
+ */
+final class UndoJournal {
+
+    /**
+     * Default maximum number of moves kept.
+     */
+    static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /**
+     * Initial size of the ring buffer.
+     */
+    private static final int INITIAL_SIZE = 64;
+
+    /**
+     * Flag indicating the move has been carried out.
+     */
+    private static final byte APPLIED = 1;
+
+    /**
+     * Flag indicating the move killed the player.
+     */
+    private static final byte PLAYER_DIES = 2;
+
+    /**
+     * Flag indicating the move starts a new segment.
+     */
+    private static final byte SEGMENT_START = 4;
+
+    /**
+     * Maximum number of entries kept.
+     */
+    private int capacity;
+
+    /**
+     * The fields of the entries, in parallel arrays.
+     */
+    private int[] mover, from, to, food;
+
+    /**
+     * The type code of the captured guest of each entry.
+     */
+    private char[] captured;
+
+    /**
+     * The flags of each entry.
+     */
+    private byte[] flags;
+
+    /**
+     * Slot of the oldest entry.
+     */
+    private int first = 0;
+
+    /**
+     * Number of entries in the journal.
+     */
+    private int size = 0;
+
+    /**
+     * Create an empty journal holding at most the given number of moves.
+     *
+     * @param maxMoves
+     *            The capacity, at least one.
+     */
+    UndoJournal(int maxMoves) {
+        assert maxMoves > 0;
+        capacity = maxMoves;
+        allocate(Math.min(INITIAL_SIZE, capacity));
+    }
+
+    /**
+     * (Re)allocate the arrays, keeping the entries present in order.
+     *
+     * @param length
+     *            The new length of the arrays.
+     */
+    private void allocate(int length) {
+        int[] newMover = new int[length];
+        int[] newFrom = new int[length];
+        int[] newTo = new int[length];
+        int[] newFood = new int[length];
+        char[] newCaptured = new char[length];
+        byte[] newFlags = new byte[length];
+        for (int i = 0; i < size; i++) {
+            int e = slot(i);
+            newMover[i] = mover[e];
+            newFrom[i] = from[e];
+            newTo[i] = to[e];
+            newFood[i] = food[e];
+            newCaptured[i] = captured[e];
+            newFlags[i] = flags[e];
+        }
+        mover = newMover;
+        from = newFrom;
+        to = newTo;
+        food = newFood;
+        captured = newCaptured;
+        flags = newFlags;
+        first = 0;
+    }
+
+    /**
+     * @param i
+     *            Position of an entry, counting from the oldest one.
+     * @return The slot in the arrays holding the entry.
+     */
+    private int slot(int i) {
+        return (first + i) % mover.length;
+    }
+
+    /**
+     * Add a move to the journal, overwriting the oldest one if the journal
+     * is full.
+     *
+     * @param moverId
+     *            Id of the moving guest
+     * @param fromIndex
+     *            Board index of the cell the mover left
+     * @param toIndex
+     *            Board index of the target cell, or -1 if beyond the borders
+     * @param capturedCode
+     *            Type code of the guest removed from the target cell
+     * @param foodDelta
+     *            The amount of food eaten
+     * @param applied
+     *            True iff the move has been carried out
+     * @param playerDies
+     *            True iff the move killed the player
+     * @param segmentStart
+     *            True iff the move starts a new segment
+     */
+    void record(int moverId, int fromIndex, int toIndex, char capturedCode,
+            int foodDelta, boolean applied, boolean playerDies,
+            boolean segmentStart) {
+        if (size == mover.length && size < capacity) {
+            allocate(Math.min(2 * size, capacity));
+        }
+        int e;
+        if (size == capacity) {
+            e = first;
+            first = slot(1);
+        } else {
+            e = slot(size);
+            size++;
+        }
+        mover[e] = moverId;
+        from[e] = fromIndex;
+        to[e] = toIndex;
+        captured[e] = capturedCode;
+        food[e] = foodDelta;
+        flags[e] = (byte) ((applied ? APPLIED : 0)
+                | (playerDies ? PLAYER_DIES : 0)
+                | (segmentStart ? SEGMENT_START : 0));
+    }
+
+    /**
+     * @return true iff there are no moves left to undo.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return The number of moves in the journal.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return The maximum number of moves kept.
+     */
+    int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return The slot of the most recent entry. Precondition: not empty.
+     */
+    int last() {
+        assert !isEmpty();
+        return slot(size - 1);
+    }
+
+    /**
+     * Remove the most recent entry. Precondition: not empty.
+     */
+    void dropLast() {
+        assert !isEmpty();
+        size--;
+    }
+
+    /**
+     * Remove all entries.
+     */
+    void clear() {
+        first = 0;
+        size = 0;
+    }
+
+    /**
+     * @param e Slot of an entry.
+     * @return Id of the moving guest.
+     */
+    int moverId(int e) {
+        return mover[e];
+    }
+
+    /**
+     * @param e Slot of an entry.
+     * @return Board index of the cell the mover left.
+     */
+    int fromIndex(int e) {
+        return from[e];
+    }
+
+    /**
+     * @param e Slot of an entry.
+     * @return Board index of the target cell, -1 if beyond the borders.
+     */
+    int toIndex(int e) {
+        return to[e];
+    }
+
+    /**
+     * @param e Slot of an entry.
+     * @return Type code of the guest removed from the target cell.
+     */
+    char captured(int e) {
+        return captured[e];
+    }
+
+    /**
+     * @param e Slot of an entry.
+     * @return The amount of food eaten.
+     */
+    int foodDelta(int e) {
+        return food[e];
+    }
+
+    /**
+     * @param e Slot of an entry.
+     * @return true iff the move has been carried out.
+     */
+    boolean applied(int e) {
+        return (flags[e] & APPLIED) != 0;
+    }
+
+    /**
+     * @param e Slot of an entry.
+     * @return true iff the move killed the player.
+     */
+    boolean playerDies(int e) {
+        return (flags[e] & PLAYER_DIES) != 0;
+    }
+
+    /**
+     * @param e Slot of an entry.
+     * @return true iff the move starts a segment.
+     */
+    boolean startsSegment(int e) {
+        return (flags[e] & SEGMENT_START) != 0;
+    }
+}
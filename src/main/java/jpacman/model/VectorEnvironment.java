@@ -0,0 +1,128 @@
+package jpacman.model;
+
+import java.util.SplittableRandom;
+
+/**
+ * A number of independent environments playing the same map, stepped
+ * together: a single call carries out one action in every environment and
+ * writes all observations, rewards and done flags into arrays supplied by
+ * the caller, so nothing is allocated per step.
+ * <p>
+ * An environment whose episode is done is reset at once, so that every
+ * environment can always be stepped: the done flag tells that the reward
+ * was the last of an episode, and the observation is then the first one
+ * of the next episode.
+ *
+ * @see Environment
+ */
+public final class VectorEnvironment {
+
+    /**
+     * The environments.
+     */
+    private final Environment[] envs;
+
+    /**
+     * Number of floats in the observation of a single environment.
+     */
+    private final int observationSize;
+
+    /**
+     * Create a number of environments playing the same map.
+     *
+     * @param map
+     *            The map, one string per row
+     * @param n
+     *            Number of environments, at least 1
+     * @param seed
+     *            Seed from which the environments get sources of random
+     *            moves of their own
+     */
+    public VectorEnvironment(String[] map, int n, long seed) {
+        assert n > 0;
+        SplittableRandom random = new SplittableRandom(seed);
+        envs = new Environment[n];
+        for (int i = 0; i < n; i++) {
+            envs[i] = new Environment(new Game(map), random.split());
+        }
+        observationSize = envs[0].observationSize();
+    }
+
+    /**
+     * @return The number of environments.
+     */
+    public int size() {
+        return envs.length;
+    }
+
+    /**
+     * @param i
+     *            Number of an environment
+     * @return The environment.
+     */
+    public Environment get(int i) {
+        return envs[i];
+    }
+
+    /**
+     * @return The number of floats in the observation of a single
+     *         environment.
+     */
+    public int observationSize() {
+        return observationSize;
+    }
+
+    /**
+     * @return An array large enough for the observations of all
+     *         environments.
+     */
+    public float[] newObservations() {
+        return new float[envs.length * observationSize];
+    }
+
+    /**
+     * Start a new episode in every environment.
+     *
+     * @param observations
+     *            Array receiving the observations, the one of environment
+     *            i starting at i * observationSize()
+     */
+    public void reset(float[] observations) {
+        assert observations.length >= envs.length * observationSize;
+        for (int i = 0; i < envs.length; i++) {
+            envs[i].reset();
+            envs[i].observe(observations, i * observationSize);
+        }
+    }
+
+    /**
+     * Carry out an action in every environment, resetting those whose
+     * episode ends.
+     *
+     * @param actions
+     *            The action for every environment
+     * @param observations
+     *            Array receiving the observations, the one of environment
+     *            i starting at i * observationSize()
+     * @param rewards
+     *            Array receiving the reward of every environment
+     * @param dones
+     *            Array receiving, for every environment, whether its
+     *            episode ended
+     */
+    public void step(int[] actions, float[] observations, float[] rewards,
+            boolean[] dones) {
+        assert actions.length >= envs.length
+            && rewards.length >= envs.length && dones.length >= envs.length;
+        assert observations.length >= envs.length * observationSize;
+        for (int i = 0; i < envs.length; i++) {
+            Environment env = envs[i];
+            rewards[i] = env.step(actions[i]);
+            dones[i] = env.done();
+            if (dones[i]) {
+                env.reset();
+            }
+            env.observe(observations, i * observationSize);
+        }
+    }
+}
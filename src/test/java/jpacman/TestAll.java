@@ -2,6 +2,7 @@ package jpacman;
 
 import jpacman.controller.*;
 import jpacman.model.*;
+import jpacman.headless.*;
 import junit.framework.JUnit4TestAdapter;
 
 import org.junit.runner.RunWith;
@@ -27,22 +28,44 @@ import org.junit.runners.Suite.SuiteClasses;
  */
 @RunWith(Suite.class)
 @SuiteClasses({
+    BitboardsTest.class,
     BoardTest.class,
     CellTest.class,
+    CompiledMapTest.class,
+    CompactBoardTest.class,
+    DistanceMapTest.class,
+    EnvironmentTest.class,
     EngineTest.class,
+    EventRecorderTest.class,
     FoodTest.class,
     GameTest.class,
     GuestTest.class,
+    HierarchicalPathfinderTest.class,
+    MapFileTest.class,
+    MapLoaderTest.class,
     MonsterMoveTest.class,
+    MoveRecordTest.class,
     ObserverTest.class,
     PlayerMoveTest.class,
     PlayerTest.class,
+    SearchStateTest.class,
+    SolverTest.class,
+    StateHashTest.class,
+    UndoJournalTest.class,
+    VectorEnvironmentTest.class,
 
     BoardViewerTest.class,
+    ChasingMonsterMoverTest.class,
+    GameLoopTest.class,
+    HierarchicalMonsterMoverTest.class,
     ImageFactoryTest.class,
     PacmanTest.class,
     PacmanUiTest.class,
-    RandomMonsterMoverTest.class
+    RandomMonsterMoverTest.class,
+
+    BatchRunnerTest.class,
+    MctsPlayerTest.class,
+    SimulatorTest.class
 })
 
 public final class TestAll  {
@@ -0,0 +1,124 @@
+package jpacman.controller;
+
+import java.util.BitSet;
+
+import jpacman.model.Bitboards;
+import jpacman.model.Board;
+import jpacman.model.Cell;
+import jpacman.model.Engine;
+import jpacman.model.Game;
+import jpacman.model.Monster;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for monsters chasing the player.
+ */
+public class ChasingMonsterMoverTest extends AbstractMonsterControllerTest {
+
+    protected AbstractMonsterController createController(Engine e) {
+        return new ChasingMonsterMover(e);
+    }
+
+    /**
+     * The engine of a small game with one monster in a corridor.
+     */
+    private Engine theEngine;
+
+    /**
+     * The mover under test.
+     */
+    private ChasingMonsterMover theMover;
+
+    /**
+     * Set up a game in which the monster has to go around a wall to get
+     * to the player.
+     */
+    @Before
+    public void setUp() {
+        var map = new String[]
+                {"P0000",
+                 "WWW00",
+                 "M000F"};
+        theEngine = new Engine(new Game(map));
+        theEngine.start();
+        theMover = new ChasingMonsterMover(theEngine);
+        theMover.start();
+    }
+
+    @Test
+    public void testMonsterCatchesPlayer() {
+        Monster monster = theEngine.getMonsters().get(0);
+        for (int i = 0; i < 7; i++) {
+            theMover.doTick();
+            assertTrue(theEngine.inPlayingState());
+        }
+        assertEquals(1, monster.getLocation().getX());
+        assertEquals(0, monster.getLocation().getY());
+        theMover.doTick();
+        assertTrue(theEngine.inDiedState());
+    }
+
+    @Test
+    public void testDistancesOnlyRecomputedAfterPlayerMove() {
+        theMover.doTick();
+        var distances = theMover.getDistances();
+        int monsterX = theEngine.getMonsters().get(0).getLocation().getX();
+        theMover.doTick();
+        assertSame(distances, theMover.getDistances());
+        assertEquals(0, distances.getSourceX());
+        assertEquals(monsterX + 1,
+                theEngine.getMonsters().get(0).getLocation().getX());
+        theEngine.movePlayer(1, 0);
+        theMover.doTick();
+        assertEquals(1, distances.getSourceX());
+    }
+
+    @Test
+    public void testCoalescedChangesNotDeliveredByPlanning() {
+        theMover.doTick();
+        theEngine.setCoalescing(true);
+        int[] notifications = {0};
+        theEngine.addObserver((o, arg) -> notifications[0]++);
+        theEngine.movePlayer(1, 0);
+        theMover.doTick();
+        assertEquals(0, notifications[0]);
+        assertEquals(1, theMover.getDistances().getSourceX());
+        theEngine.flushChanges();
+        assertEquals(1, notifications[0]);
+    }
+
+    @Test
+    public void testRefreshedWithoutEngineLock() {
+        boolean[] locked = {true};
+        ChasingMonsterMover mover = new ChasingMonsterMover(theEngine) {
+            @Override
+            protected void refresh(Board board, Bitboards view,
+                    BitSet changed, boolean replaced, Cell player) {
+                locked[0] = Thread.holdsLock(getEngine());
+                super.refresh(board, view, changed, replaced, player);
+            }
+        };
+        mover.start();
+        Monster monster = theEngine.getMonsters().get(0);
+        mover.doTick();
+        assertFalse(locked[0]);
+        assertEquals(1, monster.getLocation().getX());
+        mover.stop();
+    }
+
+    @Test
+    public void testStoppedMoverStopsObserving() {
+        int observers = theEngine.countObservers();
+        theMover.stop();
+        assertEquals(observers - 1, theEngine.countObservers());
+        theEngine.movePlayer(1, 0);
+        theMover.start();
+        theMover.start();
+        assertEquals(observers, theEngine.countObservers());
+        theMover.doTick();
+        assertEquals(1, theMover.getDistances().getSourceX());
+    }
+}
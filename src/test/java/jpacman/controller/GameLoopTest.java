@@ -0,0 +1,148 @@
+package jpacman.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for the game loop scheduler.
+ */
+public class GameLoopTest {
+
+    /**
+     * The loop under test.
+     */
+    private GameLoop loop = new GameLoop(1);
+
+    /**
+     * Make sure no loop thread survives a test.
+     */
+    @After
+    public void tearDown() {
+        loop.stop();
+    }
+
+    /**
+     * Listeners are invoked at their interval, in order of subscription.
+     */
+    @Test
+    public void testIntervals() {
+        List<String> log = new ArrayList<String>();
+        loop.subscribe(t -> log.add("a" + t), 1);
+        loop.subscribe(t -> log.add("b" + t), 2);
+        for (int i = 0; i < 4; i++) {
+            loop.runTick();
+        }
+        assertEquals(List.of("a0", "b0", "a1", "a2", "b2", "a3"), log);
+        assertEquals(4, loop.getTick());
+    }
+
+    /**
+     * Subscribing twice replaces the first subscription; unsubscribed
+     * listeners aren't invoked any longer.
+     */
+    @Test
+    public void testSubscribeUnsubscribe() {
+        List<Long> ticks = new ArrayList<Long>();
+        ITickListener l = ticks::add;
+        loop.subscribe(l, 1);
+        loop.subscribe(l, 3);
+        assertTrue(loop.isSubscribed(l));
+        for (int i = 0; i < 4; i++) {
+            loop.runTick();
+        }
+        assertEquals(List.of(0L, 3L), ticks);
+        loop.unsubscribe(l);
+        assertFalse(loop.isSubscribed(l));
+        loop.runTick();
+        assertEquals(2, ticks.size());
+    }
+
+    /**
+     * A failing listener doesn't keep the others from being invoked.
+     */
+    @Test
+    public void testFailingListener() {
+        List<Long> ticks = new ArrayList<Long>();
+        loop.subscribe(t -> {
+            throw new IllegalStateException("failing on purpose");
+        }, 1);
+        loop.subscribe(ticks::add, 1);
+        loop.runTick();
+        assertEquals(List.of(0L), ticks);
+    }
+
+    /**
+     * A started loop generates ticks on a thread of its own, and can be
+     * stopped and restarted.
+     *
+     * @throws InterruptedException Never.
+     */
+    @Test
+    public void testStartStop() throws InterruptedException {
+        List<Thread> threads = new ArrayList<Thread>();
+        loop.subscribe(t -> {
+            synchronized (threads) {
+                threads.add(Thread.currentThread());
+            }
+        }, 1);
+        assertFalse(loop.isRunning());
+        loop.start();
+        assertTrue(loop.isRunning());
+        while (loop.getTick() < 3) {
+            Thread.sleep(1);
+        }
+        loop.stop();
+        assertFalse(loop.isRunning());
+        long ticks = loop.getTick();
+        Thread.sleep(10);
+        assertEquals(ticks, loop.getTick());
+        synchronized (threads) {
+            assertNotSame(Thread.currentThread(), threads.get(0));
+        }
+        loop.start();
+        while (loop.getTick() <= ticks) {
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Late ticks are caught up, up to MAX_CATCH_UP of them; the rest are
+     * dropped.
+     *
+     * @throws InterruptedException Never.
+     */
+    @Test
+    public void testCatchUp() throws InterruptedException {
+        GameLoop slow = new GameLoop(10);
+        loop = slow;
+        List<Long> ticks = new ArrayList<Long>();
+        slow.subscribe(t -> {
+            synchronized (ticks) {
+                ticks.add(t);
+            }
+            if (t == 0) {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, 1);
+        slow.start();
+        while (slow.getTick() < 2 + GameLoop.MAX_CATCH_UP) {
+            Thread.sleep(1);
+        }
+        slow.stop();
+        assertTrue(slow.getDroppedTicks() > 0);
+        synchronized (ticks) {
+            for (int i = 0; i < ticks.size(); i++) {
+                assertEquals(i, ticks.get(i).longValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package jpacman.controller;
+
+import jpacman.model.Engine;
+import jpacman.model.Game;
+import jpacman.model.Monster;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for monsters heading for the player over a board divided
+ * in chunks.
+ */
+public class HierarchicalMonsterMoverTest
+    extends AbstractMonsterControllerTest {
+
+    protected AbstractMonsterController createController(Engine e) {
+        return new HierarchicalMonsterMover(e);
+    }
+
+    /**
+     * The engine of a game in which the monster has to go around a wall
+     * spanning several chunks.
+     */
+    private Engine theEngine;
+
+    /**
+     * The mover under test.
+     */
+    private HierarchicalMonsterMover theMover;
+
+    /**
+     * Set up the game.
+     */
+    @Before
+    public void setUp() {
+        var map = new String[]
+                {"P0000000000000000000",
+                 "WWWWWWWWWWWWWWWWWW00",
+                 "M000000000000000000F"};
+        theEngine = new Engine(new Game(map));
+        theEngine.start();
+        theMover = new HierarchicalMonsterMover(theEngine);
+        theMover.start();
+    }
+
+    @Test
+    public void testMonsterCatchesPlayer() {
+        Monster monster = theEngine.getMonsters().get(0);
+        // 18 steps to the right, 2 up, 17 to the left.
+        final int steps = 37;
+        for (int i = 0; i < steps; i++) {
+            theMover.doTick();
+            assertTrue(theEngine.inPlayingState());
+        }
+        assertEquals(1, monster.getLocation().getX());
+        assertEquals(0, monster.getLocation().getY());
+        theMover.doTick();
+        assertTrue(theEngine.inDiedState());
+    }
+}
@@ -8,8 +8,7 @@ import org.junit.Test;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
-import java.lang.reflect.Field;
-import java.util.Random;
+import java.util.SplittableRandom;
 
 import static org.junit.Assert.*;
 
@@ -47,17 +46,14 @@ public class RandomMonsterMoverTest extends AbstractMonsterControllerTest{
 
     @Test
     public void testGenerateAllRandomDirections() throws Exception {
-        Field randomizerField = AbstractMonsterController.class.getDeclaredField("randomizer");
-        randomizerField.setAccessible(true);
-        Random random = (Random) randomizerField.get(null);
-        random.setSeed(0L);
         /* Seed specially selected to have all 4 directions within the first 4 doTick() */
         pacman.start();
         var controller = new RandomMonsterMover(pacman.getEngine());
+        controller.setRandomizer(new SplittableRandom(1L));
         controller.start();
         var monster = pacman.getEngine().getMonsters().get(0);
         var location = monster.getLocation();
-        /* Right, Left, Up, Down */
+        /* Down, Right, Up, Left */
         for (int i = 0; i < 4; i++) {
             controller.doTick();
         }
@@ -0,0 +1,134 @@
+package jpacman.headless;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import jpacman.TestUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for playing a directory of games in batch.
+ */
+public class BatchRunnerTest {
+
+    /**
+     * Map without monsters, in which three steps to the right
+     * win the game.
+     */
+    private static final String WINNABLE_MAP =
+        "WWWWWW\nWP00FW\nWWWWWW\n";
+
+    /**
+     * Directory containing the maps.
+     */
+    private Path dir;
+
+    /**
+     * Output stream collecting the results.
+     */
+    private ByteArrayOutputStream results;
+
+    /**
+     * The runner under test.
+     */
+    private BatchRunner runner;
+
+    /**
+     * Create an empty map directory and a runner with two threads.
+     * @throws IOException if the directory can't be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("maps");
+        results = new ByteArrayOutputStream();
+        runner = new BatchRunner(new PrintStream(results), 2);
+    }
+
+    /**
+     * @return The result lines, sorted on map name.
+     */
+    private List<String> resultLines() {
+        String[] lines = results.toString().trim().split("\n");
+        Arrays.sort(lines);
+        return Arrays.asList(lines);
+    }
+
+    /**
+     * Every map is played with its own script, or the default one.
+     * @throws IOException if the maps can't be written.
+     */
+    @Test
+    public void testRunDirectory() throws IOException {
+        Files.writeString(dir.resolve("a.map"), WINNABLE_MAP);
+        Files.writeString(dir.resolve("a.actions"), "SRRR\n");
+        Files.writeString(dir.resolve("b.map"), WINNABLE_MAP);
+        runner.setDefaultScript("SR");
+
+        assertEquals(2, runner.runDirectory(dir));
+        runner.shutdown();
+        List<String> lines = resultLines();
+        assertEquals("a.map\tWON\t1\t4", lines.get(0));
+        assertEquals("b.map\tPLAYING\t0\t2", lines.get(1));
+    }
+
+    /**
+     * Invalid maps are reported as crashes, without stopping the batch.
+     * @throws IOException if the maps can't be written.
+     */
+    @Test
+    public void testCrash() throws IOException {
+        if (TestUtils.assertionsEnabled()) {
+            Files.writeString(dir.resolve("bad.map"), "WPPW\n");
+            Files.writeString(dir.resolve("good.map"), WINNABLE_MAP);
+
+            assertEquals(2, runner.runDirectory(dir));
+            runner.shutdown();
+            List<String> lines = resultLines();
+            assertTrue(lines.get(0).startsWith(
+                    "bad.map\tCRASHED\t0\t0\tjava.lang.AssertionError"));
+            assertTrue(lines.get(1).startsWith("good.map\tSTARTING"));
+        }
+    }
+
+    /**
+     * A single game can be played without any files.
+     */
+    @Test
+    public void testPlay() {
+        GameResult result = runner.play("x",
+                WINNABLE_MAP.split("\n"), "SRRRW");
+        assertEquals(GameResult.State.WON, result.getState());
+        assertEquals(1, result.getFoodEaten());
+        assertEquals(5, result.getTicks());
+        assertNull(result.getFailure());
+    }
+
+    /**
+     * Games are seeded by name, so they are played the same way every
+     * time, unless the runner's seed changes.
+     */
+    @Test
+    public void testSeeded() {
+        String[] map = {"M000", "0P00", "000F"};
+        String script = "SWWWWWWWWWWWWWWWWWWWWWWWWWWWWWWWWWWWWWWW";
+        String result = runner.play("m", map, script).toString();
+        for (int i = 0; i < 5; i++) {
+            assertEquals(result, runner.play("m", map, script).toString());
+        }
+        assertEquals(result, runner.play("m", map, script,
+                runner.seedFor("m")).toString());
+        long seed = runner.seedFor("m");
+        assertNotEquals(seed, runner.seedFor("n"));
+        runner.setSeed(1);
+        assertNotEquals(seed, runner.seedFor("m"));
+    }
+}
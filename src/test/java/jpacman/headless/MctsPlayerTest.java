@@ -0,0 +1,101 @@
+package jpacman.headless;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import jpacman.model.Engine;
+import jpacman.model.Game;
+import jpacman.model.SearchState;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for the player choosing its moves by Monte Carlo tree search.
+ */
+public class MctsPlayerTest {
+
+    /**
+     * The player under test, growing two trees of a few hundred playouts.
+     */
+    private MctsPlayer thePlayer;
+
+    /**
+     * Create the player.
+     */
+    @Before
+    public void setUp() {
+        thePlayer = new MctsPlayer(300, 2, 42);
+    }
+
+    /**
+     * Stop the player's threads.
+     */
+    @After
+    public void tearDown() {
+        thePlayer.shutdown();
+    }
+
+    /**
+     * The default map is beaten when the monsters don't move.
+     */
+    @Test
+    public void testBeatsDefaultMap() {
+        Engine engine = new Engine();
+        long ticks = thePlayer.play(engine, null, 1000);
+        assertTrue(engine.inWonState());
+        assertTrue(ticks < 1000);
+    }
+
+    /**
+     * The player doesn't walk into a monster when food is just as close
+     * on the other side.
+     */
+    @Test
+    public void testAvoidsMonster() {
+        Game game = new Game(new String[] {
+            "WWWWWWW",
+            "WMWWWWW",
+            "W0WWWWW",
+            "WMFP0FW",
+            "WWWWWWW"
+        });
+        for (int i = 0; i < 10; i++) {
+            assertEquals(PlayerScript.RIGHT,
+                    thePlayer.chooseAction(new SearchState(game)));
+        }
+    }
+
+    /**
+     * With the same seed and number of threads, the same moves are chosen.
+     */
+    @Test
+    public void testReproducible() {
+        Engine first = new Engine();
+        Engine second = new Engine();
+        MctsPlayer other = new MctsPlayer(300, 2, 42);
+        thePlayer.play(first, null, 20);
+        other.play(second, null, 20);
+        other.shutdown();
+        assertEquals(first.getPlayer().getLocation().getX(),
+                second.getPlayer().getLocation().getX());
+        assertEquals(first.getPlayer().getLocation().getY(),
+                second.getPlayer().getLocation().getY());
+        assertEquals(first.getFoodEaten(), second.getFoodEaten());
+    }
+
+    /**
+     * A player walled in without any legal move waits, rather than
+     * failing to find a move.
+     */
+    @Test
+    public void testBoxedInPlayerWaits() {
+        Game game = new Game(new String[] {"PWF"});
+        assertEquals(PlayerScript.WAIT,
+                thePlayer.chooseAction(new SearchState(game)));
+        Engine engine = new Engine(new Game(new String[] {"PWF"}));
+        assertEquals(5, thePlayer.play(engine, null, 5));
+        assertTrue(engine.inPlayingState());
+        assertEquals(0, engine.getFoodEaten());
+    }
+}
@@ -0,0 +1,164 @@
+package jpacman.headless;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import jpacman.controller.RandomMonsterMover;
+import jpacman.model.Engine;
+import jpacman.model.EventRecorder;
+import jpacman.model.EventReplayer;
+import jpacman.model.Game;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for the headless simulator.
+ */
+public class SimulatorTest {
+
+    /**
+     * Small map with a single monster and a single food element.
+     */
+    private static final String[] MAP = new String[] {
+        "WWWWWWW",
+        "W00000W",
+        "W00M00W",
+        "W0P000W",
+        "W000F0W",
+        "WWWWWWW"
+    };
+
+    /**
+     * The engine to be simulated.
+     */
+    private Engine theEngine;
+
+    /**
+     * Create a fresh engine.
+     */
+    @Before
+    public void setUp() {
+        theEngine = new Engine(new Game(MAP));
+    }
+
+    /**
+     * Walking to the food wins the game, one action per tick.
+     */
+    @Test
+    public void testScriptedWin() {
+        Simulator sim = new Simulator(theEngine, null,
+                new PlayerScript("SRRD"));
+        assertEquals(4, sim.run());
+        assertTrue(sim.finished());
+        assertTrue(theEngine.inWonState());
+        assertEquals(1, theEngine.getFoodEaten());
+    }
+
+    /**
+     * Moves before starting, and after quitting, are ignored.
+     */
+    @Test
+    public void testMovesOutsidePlayingState() {
+        Simulator sim = new Simulator(theEngine, null,
+                new PlayerScript("RSQRR"));
+        sim.run();
+        assertTrue(theEngine.inHaltedState());
+        assertEquals(2, theEngine.getPlayer().getLocation().getX());
+    }
+
+    /**
+     * The exit action ends the simulation, and the
+     * tick limit is respected.
+     */
+    @Test
+    public void testExitAndLimit() {
+        Simulator sim = new Simulator(theEngine, null,
+                new PlayerScript("SWWWEWWW"));
+        assertEquals(2, sim.run(2));
+        assertFalse(sim.finished());
+        assertEquals(5, sim.run());
+        assertTrue(sim.finished());
+    }
+
+    /**
+     * Monsters are moved by the ticks of the simulator.
+     */
+    @Test
+    public void testMonstersMove() {
+        RandomMonsterMover mover = new RandomMonsterMover(theEngine);
+        Simulator sim = new Simulator(theEngine, mover,
+                new PlayerScript("SWWWWWWWWWWWWWWWWWWW"));
+        var monster = theEngine.getMonsters().get(0);
+        var start = monster.getLocation();
+        boolean moved = false;
+        while (!sim.finished()) {
+            sim.step();
+            moved = moved || monster.getLocation() != start;
+        }
+        assertTrue(moved || theEngine.inDiedState());
+    }
+
+    /**
+     * Monsters moved by movers with the same seed make the same moves.
+     */
+    @Test
+    public void testSeededMonsters() {
+        Engine other = new Engine(new Game(MAP));
+        Simulator first = new Simulator(theEngine,
+                new RandomMonsterMover(theEngine, 5),
+                new PlayerScript("SWWWWWWWWWWWWWWWWWWW"));
+        Simulator second = new Simulator(other,
+                new RandomMonsterMover(other, 5),
+                new PlayerScript("SWWWWWWWWWWWWWWWWWWW"));
+        var monster = theEngine.getMonsters().get(0);
+        var otherMonster = other.getMonsters().get(0);
+        while (!first.finished()) {
+            first.step();
+            second.step();
+            assertEquals(monster.getLocation().getX(),
+                    otherMonster.getLocation().getX());
+            assertEquals(monster.getLocation().getY(),
+                    otherMonster.getLocation().getY());
+        }
+    }
+
+    /**
+     * A recorded simulation replays to the same state.
+     * @throws IOException never.
+     */
+    @Test
+    public void testRecordAndReplay() throws IOException {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        EventRecorder recorder = new EventRecorder(log);
+        Simulator sim = new Simulator(theEngine,
+                new RandomMonsterMover(theEngine, 11),
+                new PlayerScript("SRWLUDWWRRDDLLUUWWRD"));
+        sim.record(recorder);
+        sim.run();
+        recorder.close();
+        Engine replayed = new Engine(new Game(MAP));
+        EventReplayer replayer = new EventReplayer(
+                new ByteArrayInputStream(log.toByteArray()));
+        replayer.replay(replayed);
+        assertEquals(theEngine.getState(), replayed.getState());
+        for (int y = 0; y < MAP.length; y++) {
+            for (int x = 0; x < MAP[y].length(); x++) {
+                assertEquals(theEngine.getGuestCode(x, y),
+                        replayed.getGuestCode(x, y));
+            }
+        }
+        assertTrue(replayer.getTick() < sim.getTick());
+    }
+
+    /**
+     * Unknown actions are rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalScript() {
+        new PlayerScript("SRX");
+    }
+}
@@ -0,0 +1,124 @@
+package jpacman.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for the bit sets a board keeps of its guests, which should
+ * always agree with the guests in its cells.
+ */
+public class BitboardsTest extends GameTestCase {
+
+    /**
+     * Check that the bitboards of the given board agree with its cells.
+     * @param board The board to be checked.
+     */
+    private void assertInSync(Board board) {
+        Bitboards bits = board.getBitboards();
+        int w = board.getWidth();
+        for (int y = 0; y < board.getHeight(); y++) {
+            for (int x = 0; x < w; x++) {
+                char code = board.guestCode(x, y);
+                assertEquals(code, bits.typeAt(y * w + x));
+                assertEquals(code != Guest.EMPTY_TYPE,
+                        bits.occupied(y * w + x));
+            }
+        }
+    }
+
+    /**
+     * The bitboards of a fresh board describe the map.
+     */
+    @Test
+    public void testLoaded() {
+        Bitboards bits = theGame.getBoard().getBitboards();
+        assertInSync(theGame.getBoard());
+        assertEquals(2, bits.count(Guest.FOOD_TYPE));
+        assertEquals(2, bits.count(Guest.WALL_TYPE));
+        assertEquals(2, bits.count(Guest.MONSTER_TYPE));
+        assertEquals(1, bits.count(Guest.PLAYER_TYPE));
+        assertTrue(bits.has(Guest.WALL_TYPE, 1));
+        assertTrue(bits.wallOrFood(3));
+        assertFalse(bits.enterable(7));
+        assertTrue(bits.enterable(4));
+    }
+
+    /**
+     * Moves and restarts keep the bitboards in sync.
+     */
+    @Test
+    public void testMovesAndRestart() {
+        theGame.movePlayer(-1, 0);
+        assertInSync(theGame.getBoard());
+        assertEquals(1, theGame.getBoard().getBitboards()
+                .count(Guest.FOOD_TYPE));
+        theGame.moveMonster(theMonster, 1, 0);
+        assertInSync(theGame.getBoard());
+        theGame.undo();
+        assertInSync(theGame.getBoard());
+        theGame.initialize();
+        assertInSync(theGame.getBoard());
+        assertEquals(2, theGame.getBoard().getBitboards()
+                .count(Guest.FOOD_TYPE));
+    }
+
+    /**
+     * Compact boards keep their bitboards in sync too, whether loaded
+     * from strings or copied from a compiled map.
+     */
+    @Test
+    public void testCompactBoards() {
+        Game[] games = {new Game(SIMPLE_MAP, true),
+            new Game(CompiledMap.compile(source()), true)};
+        for (Game game : games) {
+            assertInSync(game.getBoard());
+            game.movePlayer(-1, 0);
+            assertInSync(game.getBoard());
+            game.initialize();
+            assertInSync(game.getBoard());
+        }
+    }
+
+    /**
+     * @return SIMPLE_MAP as a map source.
+     */
+    private MapSource source() {
+        return new MapSource() {
+            public int getWidth() {
+                return SIMPLE_MAP[0].length();
+            }
+            public int getHeight() {
+                return SIMPLE_MAP.length;
+            }
+            public char codeAt(int x, int y) {
+                return SIMPLE_MAP[y].charAt(x);
+            }
+        };
+    }
+
+    /**
+     * Monsters next to a square are found, but not diagonally or across
+     * the borders.
+     */
+    @Test
+    public void testMonsterAdjacent() {
+        Bitboards bits = theGame.getBoard().getBitboards();
+        assertTrue(bits.monsterAdjacent(1, 1));
+        assertTrue(bits.monsterAdjacent(2, 2));
+        assertFalse(bits.monsterAdjacent(0, 0));
+        assertFalse(bits.monsterAdjacent(0, 3));
+        assertFalse(bits.monsterAdjacent(2, 0));
+    }
+
+    /**
+     * A copy doesn't change with the board.
+     */
+    @Test
+    public void testCopy() {
+        Bitboards copy = theGame.getBoard().getBitboards().copy();
+        theGame.movePlayer(-1, 0);
+        assertEquals(2, copy.count(Guest.FOOD_TYPE));
+        assertEquals(Guest.PLAYER_TYPE, copy.typeAt(4));
+    }
+}
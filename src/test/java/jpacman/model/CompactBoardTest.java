@@ -0,0 +1,117 @@
+package jpacman.model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for the compact board, which only keeps codes for walls and
+ * food, and should behave just like the ordinary board.
+ */
+public class CompactBoardTest {
+
+    /**
+     * The width & height of the board to be used.
+     */
+    private final int width = 5, height = 10;
+
+    /**
+     * The board to be used in the tests.
+     */
+    private CompactBoard theBoard;
+
+    /**
+     * Create a simple (empty) board to be used for testing.
+     */
+    @Before
+    public void setUp() {
+        theBoard = new CompactBoard(width, height);
+    }
+
+    /**
+     * An empty square has no guest, and asking for it should not
+     * create a cell.
+     */
+    @Test
+    public void testEmptySquare() {
+        assertNull(theBoard.getGuest(2, 3));
+        assertEquals(Guest.EMPTY_TYPE, theBoard.guestCode(2, 3));
+        assertEquals(0, theBoard.cellsCreated());
+    }
+
+    /**
+     * A wall stored by its code only turns into a proper wall occupying
+     * its cell once it is asked for.
+     */
+    @Test
+    public void testPutCode() {
+        assertTrue(theBoard.putCode(Guest.WALL_TYPE, 0, 0));
+        assertEquals(Guest.WALL_TYPE, theBoard.guestCode(0, 0));
+        assertEquals(0, theBoard.cellsCreated());
+
+        Guest wall = theBoard.getGuest(0, 0);
+        assertTrue(wall instanceof Wall);
+        assertEquals(theBoard.getCell(0, 0), wall.getLocation());
+        assertSame(wall, theBoard.getGuest(0, 0));
+        assertEquals(1, theBoard.cellsCreated());
+        assertTrue(theBoard.consistentBoardCellAssociation());
+    }
+
+    /**
+     * Guests occupying and leaving cells keep the codes up to date.
+     */
+    @Test
+    public void testOccupy() {
+        int x = width - 1;
+        int y = height - 1;
+        Food food = new Food();
+        food.occupy(theBoard.getCell(x, y));
+        assertEquals(food, theBoard.getGuest(x, y));
+        assertEquals(Guest.FOOD_TYPE, theBoard.guestCode(x, y));
+
+        food.deoccupy();
+        assertNull(theBoard.getGuest(x, y));
+        assertEquals(Guest.EMPTY_TYPE, theBoard.guestCode(x, y));
+        assertTrue(theBoard.consistentBoardCellAssociation());
+    }
+
+    /**
+     * The borders are the same as those of an ordinary board.
+     */
+    @Test
+    public void testWithinBorders() {
+        assertTrue(theBoard.withinBorders(0, 0));
+        assertTrue(theBoard.withinBorders(width - 1, height - 1));
+        assertFalse(theBoard.withinBorders(-1, 0));
+        assertFalse(theBoard.withinBorders(width, height - 1));
+        assertFalse(theBoard.withinBorders(0, height));
+    }
+
+    /**
+     * A game played on a compact board shows the same codes
+     * as one played on an ordinary board.
+     */
+    @Test
+    public void testGameOnCompactBoard() {
+        Game plain = new Game(GameTestCase.SIMPLE_MAP);
+        Game compact = new Game(GameTestCase.SIMPLE_MAP, true);
+        assertTrue(compact.getBoard() instanceof CompactBoard);
+
+        plain.movePlayer(1, 0);
+        compact.movePlayer(1, 0);
+        plain.movePlayer(-1, 0);
+        compact.movePlayer(-1, 0);
+        plain.movePlayer(-1, 0);
+        compact.movePlayer(-1, 0);
+
+        for (int x = 0; x < plain.boardWidth(); x++) {
+            for (int y = 0; y < plain.boardHeight(); y++) {
+                assertEquals(plain.getGuestCode(x, y),
+                        compact.getGuestCode(x, y));
+            }
+        }
+        assertEquals(1, compact.getPlayer().getPointsEaten());
+        assertEquals(plain.playerWon(), compact.playerWon());
+    }
+}
@@ -0,0 +1,172 @@
+package jpacman.model;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for compiled maps and their binary file format.
+ */
+public class CompiledMapTest {
+
+    /**
+     * Rows of a small map, with an odd number of squares.
+     */
+    private static final String[] MAP = {
+        "WWWWW", "WPF0W", "W0MFW", "WM00W", "WWWWW"};
+
+    /**
+     * The compiled map file written by a test.
+     */
+    private Path file;
+
+    /**
+     * Create a temporary file to write compiled maps to.
+     * @throws IOException if the file can't be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("world", CompiledMap.SUFFIX);
+    }
+
+    /**
+     * Remove the temporary file.
+     * @throws IOException if the file can't be removed.
+     */
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * @param map Rows of a map.
+     * @return The compiled map.
+     */
+    private CompiledMap compile(String[] map) {
+        return CompiledMap.compile(new MapSource() {
+            public int getWidth() {
+                return map[0].length();
+            }
+            public int getHeight() {
+                return map.length;
+            }
+            public char codeAt(int x, int y) {
+                return map[y].charAt(x);
+            }
+        });
+    }
+
+    /**
+     * Check that the given map contains exactly the rows of MAP.
+     * @param map The map.
+     */
+    private void assertMap(CompiledMap map) {
+        assertEquals(5, map.getWidth());
+        assertEquals(5, map.getHeight());
+        for (int y = 0; y < MAP.length; y++) {
+            for (int x = 0; x < MAP[y].length(); x++) {
+                assertEquals(MAP[y].charAt(x), map.codeAt(x, y));
+            }
+        }
+        assertEquals(1, map.getPlayerX());
+        assertEquals(1, map.getPlayerY());
+        assertEquals(2, map.getFoodCount());
+        assertEquals(2, map.getMonsterCount());
+    }
+
+    /**
+     * Compiling summarizes the map.
+     */
+    @Test
+    public void testCompile() {
+        CompiledMap map = compile(MAP);
+        assertMap(map);
+        assertArrayEquals(new int[] {6, 12, 16}, map.getMovers());
+        assertEquals(Guest.EMPTY_TYPE, map.codeTemplate()[6]);
+        assertEquals(Guest.FOOD_TYPE, map.codeTemplate()[7]);
+    }
+
+    /**
+     * A compiled map survives being written and read.
+     * @throws IOException if the file can't be written or read.
+     */
+    @Test
+    public void testWriteAndRead() throws IOException {
+        compile(MAP).write(file);
+        assertEquals(8 * 4 + 13, Files.size(file));
+        assertMap(CompiledMap.read(file));
+    }
+
+    /**
+     * A second player can't be compiled.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testSecondPlayer() {
+        CompiledMap.compile(new MapSource() {
+            public int getWidth() {
+                return 2;
+            }
+            public int getHeight() {
+                return 1;
+            }
+            public char codeAt(int x, int y) {
+                return Guest.PLAYER_TYPE;
+            }
+        });
+    }
+
+    /**
+     * A header that doesn't match the squares is rejected.
+     * @throws IOException if the file is rejected, as it should be.
+     */
+    @Test(expected = IOException.class)
+    public void testWrongHeader() throws IOException {
+        try (DataOutputStream out =
+                new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeInt(CompiledMap.MAGIC);
+            out.writeInt(CompiledMap.VERSION);
+            out.writeInt(2);
+            out.writeInt(1);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt(1);
+            out.writeInt(0);
+            // player followed by empty square, but food promised.
+            out.writeByte(3);
+        }
+        CompiledMap.read(file);
+    }
+
+    /**
+     * Restarting a game from strings or from a compiled map, on a plain
+     * or a compact board, restores the original board.
+     */
+    @Test
+    public void testRestart() {
+        Game[] games = {
+            new Game(MAP), new Game(compile(MAP), true),
+            new Game(compile(MAP), false)};
+        for (Game game : games) {
+            for (int restart = 0; restart < 2; restart++) {
+                game.movePlayer(1, 0);
+                assertEquals(1, game.getPlayer().getPointsEaten());
+                game.initialize();
+                assertEquals(0, game.getPlayer().getPointsEaten());
+                assertEquals(2, game.getMonsters().size());
+                for (int y = 0; y < MAP.length; y++) {
+                    for (int x = 0; x < MAP[y].length(); x++) {
+                        assertEquals(MAP[y].charAt(x),
+                                game.getGuestCode(x, y));
+                    }
+                }
+            }
+        }
+    }
+}
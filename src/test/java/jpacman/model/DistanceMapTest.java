@@ -0,0 +1,161 @@
+package jpacman.model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for the distances to the player, as used by chasing monsters.
+ */
+public class DistanceMapTest {
+
+    /**
+     * Map with a corridor around a wall, food blocking one route, and a
+     * part that cannot be reached from the player.
+     */
+    private static final String[] MAP = new String[]{
+        "P000W0",
+        "0WW0W0",
+        "0F00WM",
+    };
+
+    /**
+     * The distances to be tested.
+     */
+    private DistanceMap theDistances;
+
+    /**
+     * Compute the distances to the player.
+     */
+    @Before
+    public void setUp() {
+        Game game = new Game(MAP);
+        theDistances = new DistanceMap(game.getBoard());
+        theDistances.computeFrom(0, 0);
+    }
+
+    @Test
+    public void testSourceAndNeighbours() {
+        assertEquals(0, theDistances.getSourceX());
+        assertEquals(0, theDistances.getSourceY());
+        assertEquals(0, theDistances.distance(0, 0));
+        assertEquals(1, theDistances.distance(1, 0));
+        assertEquals(1, theDistances.distance(0, 1));
+    }
+
+    @Test
+    public void testFoodBlocksShortcut() {
+        assertEquals(DistanceMap.UNREACHABLE, theDistances.distance(1, 2));
+        assertFalse(theDistances.passable(1, 2));
+        // around the wall instead of through the food.
+        assertEquals(6, theDistances.distance(2, 2));
+    }
+
+    @Test
+    public void testUnreachable() {
+        assertEquals(DistanceMap.UNREACHABLE, theDistances.distance(4, 0));
+        assertEquals(DistanceMap.UNREACHABLE, theDistances.distance(5, 2));
+        assertEquals(DistanceMap.UNREACHABLE, theDistances.distance(-1, 0));
+    }
+
+    @Test
+    public void testRecompute() {
+        theDistances.computeFrom(3, 2);
+        assertEquals(0, theDistances.distance(3, 2));
+        assertEquals(5, theDistances.distance(0, 0));
+    }
+
+    @Test
+    public void testIncrementalFoodChanges() {
+        Board board = theDistances.getBoard();
+        Food food = (Food) board.getGuest(1, 2);
+        food.deoccupy();
+        theDistances.cellChanged(1, 2);
+        assertEquals(3, theDistances.distance(1, 2));
+        assertEquals(2, theDistances.distance(0, 2));
+        food.occupy(board.getCell(1, 2));
+        theDistances.cellChanged(1, 2);
+        assertEquals(DistanceMap.UNREACHABLE, theDistances.distance(1, 2));
+        assertEquals(6, theDistances.distance(2, 2));
+        assertEquals(1, theDistances.getFullComputations());
+    }
+
+    @Test
+    public void testIncrementalMatchesFullComputation() {
+        final int size = 40;
+        Random random = new Random(1);
+        String[] map = new String[size];
+        for (int y = 0; y < size; y++) {
+            StringBuilder row = new StringBuilder();
+            for (int x = 0; x < size; x++) {
+                int r = random.nextInt(10);
+                char c = r < 2 ? Guest.WALL_TYPE
+                    : r < 4 ? Guest.FOOD_TYPE : Guest.EMPTY_TYPE;
+                row.append(x == 0 && y == 0 ? Guest.PLAYER_TYPE : c);
+            }
+            map[y] = row.toString();
+        }
+        Board board = new Game(map).getBoard();
+        DistanceMap incremental = new DistanceMap(board);
+        incremental.computeFrom(0, 0);
+        for (int step = 0; step < 300; step++) {
+            int x = random.nextInt(size);
+            int y = random.nextInt(size);
+            Guest g = board.getGuest(x, y);
+            if (random.nextBoolean() && incremental.passable(x, y)
+                    && g == null) {
+                incremental.moveSource(x, y);
+            } else if (g instanceof Food) {
+                g.deoccupy();
+                incremental.cellChanged(x, y);
+            } else if (g == null && (x != incremental.getSourceX()
+                    || y != incremental.getSourceY())) {
+                new Food().occupy(board.getCell(x, y));
+                incremental.cellChanged(x, y);
+            }
+            DistanceMap full = new DistanceMap(board);
+            full.computeFrom(incremental.getSourceX(),
+                    incremental.getSourceY());
+            for (int cy = 0; cy < size; cy++) {
+                for (int cx = 0; cx < size; cx++) {
+                    assertEquals("step " + step,
+                            full.distance(cx, cy),
+                            incremental.distance(cx, cy));
+                }
+            }
+        }
+        assertTrue(incremental.getIncrementalUpdates() > 0);
+    }
+
+    @Test
+    public void testOpenBoardSkipsDoomedUpdates() {
+        final int size = 20;
+        final int steps = 16;
+        String[] map = new String[size];
+        for (int y = 0; y < size; y++) {
+            StringBuilder row = new StringBuilder();
+            for (int x = 0; x < size; x++) {
+                row.append(x == 0 && y == 0
+                        ? Guest.PLAYER_TYPE : Guest.EMPTY_TYPE);
+            }
+            map[y] = row.toString();
+        }
+        Board board = new Game(map).getBoard();
+        DistanceMap distances = new DistanceMap(board);
+        distances.computeFrom(2, size / 2);
+        for (int step = 1; step <= steps; step++) {
+            distances.moveSource(2 + step, size / 2);
+            assertEquals(step, distances.distance(2, size / 2));
+            assertEquals(size - 3 - step,
+                    distances.distance(size - 1, size / 2));
+        }
+        // every step affects half the board: attempts back off.
+        assertEquals(0, distances.getIncrementalUpdates());
+        assertTrue(distances.getAbandonedUpdates() > 0);
+        assertTrue(distances.getAbandonedUpdates() <= steps / 2);
+        assertEquals(1 + steps, distances.getFullComputations());
+    }
+}
@@ -335,4 +335,137 @@ public class EngineTest extends GameTestCase {
         assertTrue(theEngine.inHaltedState());
         assertTrue(theEngine.invariant());
     }
+
+    /**
+     * @return The monster of the simple map that isn't theMonster.
+     */
+    private Monster otherMonster() {
+        Monster result = null;
+        for (Monster m : theGame.getMonsters()) {
+            if (m != theMonster) {
+                result = m;
+            }
+        }
+        return result;
+    }
+
+    @Test
+    public void PlayingMoveMonstersSingleNotification() {
+        SetupPlayingState();
+        int[] notifications = {0};
+        theEngine.addObserver((o, arg) -> notifications[0]++);
+        Monster other = otherMonster();
+        Cell otherTarget = other.getLocation().cellAtOffset(0, -1);
+        var monsterLocation = theMonster.getLocation();
+        MonsterMoves moves = new MonsterMoves();
+        moves.add(other, 0, -1);
+        // blocked now that the other monster got there first.
+        moves.add(theMonster, 1, 0);
+        theEngine.moveMonsters(moves);
+        assertEquals(1, notifications[0]);
+        assertEquals(otherTarget, other.getLocation());
+        assertEquals(monsterLocation, theMonster.getLocation());
+        assertTrue(theEngine.inPlayingState());
+        assertTrue(theEngine.invariant());
+    }
+
+    @Test
+    public void PlayingMoveMonstersKillEndsBatch() {
+        SetupPlayingState();
+        Monster other = otherMonster();
+        var otherLocation = other.getLocation();
+        MonsterMoves moves = new MonsterMoves();
+        moves.add(theMonster, 0, -1);
+        moves.add(other, 0, -1);
+        theEngine.moveMonsters(moves);
+        assertTrue(theEngine.inDiedState());
+        assertEquals(otherLocation, other.getLocation());
+        assertTrue(theEngine.invariant());
+    }
+
+    @Test
+    public void HaltedMoveMonstersIgnored() {
+        SetupHaltedState();
+        int[] notifications = {0};
+        theEngine.addObserver((o, arg) -> notifications[0]++);
+        Monster other = otherMonster();
+        var otherLocation = other.getLocation();
+        MonsterMoves moves = new MonsterMoves();
+        moves.add(other, 0, -1);
+        theEngine.moveMonsters(moves);
+        assertEquals(0, notifications[0]);
+        assertEquals(otherLocation, other.getLocation());
+        assertTrue(theEngine.inHaltedState());
+    }
+
+    @Test
+    public void SnapshotMatchesCells() {
+        GameSnapshot before = theEngine.getSnapshot();
+        SetupPlayingState();
+        theEngine.movePlayer(1, 0);
+        GameSnapshot after = theEngine.getSnapshot();
+        assertTrue(after.getVersion() > before.getVersion());
+        assertEquals(theEngine.getState(), after.getState());
+        assertEquals(theEngine.getFoodEaten(), after.getFoodEaten());
+        assertEquals(theEngine.getPlayerLastDx(), after.getPlayerLastDx());
+        int w = theEngine.boardWidth();
+        int h = theEngine.boardHeight();
+        assertEquals(w, after.getWidth());
+        assertEquals(h, after.getHeight());
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                assertEquals(theEngine.getGuestCode(x, y),
+                        after.getGuestCode(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void SnapshotTakenWhenAskedFor() {
+        SetupPlayingState();
+        long version = theEngine.getSnapshot().getVersion();
+        assertSame(theEngine.getSnapshot(), theEngine.getSnapshot());
+        theEngine.setCoalescing(true);
+        theEngine.movePlayer(-1, 0);
+        theEngine.flushChanges();
+        theEngine.movePlayer(1, 0);
+        GameSnapshot after = theEngine.getSnapshot();
+        assertEquals(version + 1, after.getVersion());
+        int w = theEngine.boardWidth();
+        int h = theEngine.boardHeight();
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                assertEquals(theEngine.getGuestCode(x, y),
+                        after.getGuestCode(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void RestartRestoresBoardInPlace() {
+        Board board = theGame.getBoard();
+        int w = theEngine.boardWidth();
+        int h = theEngine.boardHeight();
+        char[] initial = new char[w * h];
+        theEngine.getSnapshot().copyGuestCodes(initial);
+        SetupPlayingState();
+        theEngine.movePlayer(-1, 0);
+        theEngine.movePlayer(1, 0);
+        assertEquals(1, theEngine.getFoodEaten());
+        theEngine.moveMonster(theMonster, 0, -1);
+        assertTrue(theEngine.inDiedState());
+
+        theEngine.start();
+        assertTrue(theEngine.inPlayingState());
+        assertSame(board, theGame.getBoard());
+        assertEquals(0, theEngine.getFoodEaten());
+        assertNull(theMonster.getLocation());
+        GameSnapshot after = theEngine.getSnapshot();
+        for (int y = 0; y < h; y++) {
+            for (int x = 0; x < w; x++) {
+                assertEquals(initial[y * w + x], theEngine.getGuestCode(x, y));
+                assertEquals(initial[y * w + x], after.getGuestCode(x, y));
+            }
+        }
+    }
 }
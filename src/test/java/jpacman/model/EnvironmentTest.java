@@ -0,0 +1,96 @@
+package jpacman.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for games wrapped as learning environments.
+ */
+public class EnvironmentTest {
+
+    /**
+     * A map without monsters, with food on either side of the player.
+     */
+    private static final String[] MAP = new String[] {
+        "WWWWW",
+        "WFPFW",
+        "WWWWW"
+    };
+
+    /**
+     * Observations have one channel per guest type.
+     */
+    @Test
+    public void testObservation() {
+        Environment env = new Environment(MAP, 0);
+        float[] obs = env.observe();
+        int squares = 5 * 3;
+        assertEquals(Environment.CHANNELS * squares, obs.length);
+        assertEquals(Environment.CHANNELS * squares, env.observationSize());
+        int wall = Environment.CHANNEL_TYPES.indexOf(Guest.WALL_TYPE);
+        int food = Environment.CHANNEL_TYPES.indexOf(Guest.FOOD_TYPE);
+        int player = Environment.CHANNEL_TYPES.indexOf(Guest.PLAYER_TYPE);
+        assertEquals(1f, obs[wall * squares], 0);
+        assertEquals(0f, obs[wall * squares + 6], 0);
+        assertEquals(1f, obs[food * squares + 6], 0);
+        assertEquals(1f, obs[food * squares + 8], 0);
+        assertEquals(1f, obs[player * squares + 7], 0);
+        float sum = 0;
+        for (float f : obs) {
+            sum += f;
+        }
+        assertEquals(squares, sum, 0);
+    }
+
+    /**
+     * Eating earns a reward, eating everything ends the episode, and
+     * resetting starts over.
+     */
+    @Test
+    public void testEpisode() {
+        Environment env = new Environment(MAP, 0);
+        assertEquals(0, env.step(Environment.UP));
+        assertEquals(0, env.step(Environment.STAY));
+        assertEquals(1, env.step(Environment.LEFT));
+        assertFalse(env.done());
+        assertEquals(0, env.step(Environment.RIGHT));
+        assertEquals(1, env.step(Environment.RIGHT));
+        assertTrue(env.done());
+        assertEquals(5, env.getSteps());
+        env.reset();
+        assertFalse(env.done());
+        assertEquals(0, env.getSteps());
+        float[] obs = env.observe();
+        int food = Environment.CHANNEL_TYPES.indexOf(Guest.FOOD_TYPE);
+        assertEquals(1f, obs[food * 15 + 6], 0);
+    }
+
+    /**
+     * Moves beyond the borders are ignored, for the player as well as
+     * for monsters.
+     */
+    @Test
+    public void testBorders() {
+        Environment env = new Environment(new String[] {"PFM"}, 0);
+        assertEquals(0, env.step(Environment.UP));
+        for (int i = 0; i < 20 && !env.done(); i++) {
+            env.step(Environment.DOWN);
+        }
+        assertFalse(env.done());
+    }
+
+    /**
+     * The same seed gives the same monster moves.
+     */
+    @Test
+    public void testReproducible() {
+        Environment first = new Environment(GameTestCase.SIMPLE_MAP, 7);
+        Environment second = new Environment(GameTestCase.SIMPLE_MAP, 7);
+        for (int i = 0; i < 50 && !first.done(); i++) {
+            first.step(Environment.STAY);
+            second.step(Environment.STAY);
+            assertArrayEquals(first.observe(), second.observe(), 0);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package jpacman.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Vector;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for recording the calls to an engine and replaying them.
+ */
+public class EventRecorderTest {
+
+    /**
+     * The engine recorded.
+     */
+    private Engine theEngine;
+
+    /**
+     * The log written.
+     */
+    private ByteArrayOutputStream log;
+
+    /**
+     * The recorder.
+     */
+    private EventRecorder recorder;
+
+    /**
+     * Start recording an engine playing the default map.
+     */
+    @Before
+    public void setUp() {
+        theEngine = new Engine();
+        log = new ByteArrayOutputStream();
+        recorder = new EventRecorder(log);
+        theEngine.setRecorder(recorder);
+    }
+
+    /**
+     * Play a session of random moves, with undos and restarts.
+     *
+     * @param ticks Number of ticks played
+     */
+    private void playRandomly(int ticks) {
+        Random random = new Random(1);
+        int[][] directions = {{0, -1}, {0, 1}, {-1, 0}, {1, 0}};
+        MonsterMoves moves = new MonsterMoves();
+        theEngine.start();
+        for (int tick = 0; tick < ticks; tick++) {
+            recorder.setTick(tick);
+            int[] d = directions[random.nextInt(4)];
+            theEngine.movePlayer(d[0], d[1]);
+            Vector<Monster> monsters = theEngine.getMonsters();
+            moves.clear();
+            for (Monster m : monsters) {
+                d = directions[random.nextInt(4)];
+                moves.add(m, d[0], d[1]);
+            }
+            theEngine.moveMonsters(moves);
+            d = directions[random.nextInt(4)];
+            theEngine.moveMonster(monsters.get(0), d[0], d[1]);
+            if (random.nextInt(20) == 0) {
+                theEngine.undo();
+                theEngine.start();
+            }
+            if (theEngine.inGameOverState()) {
+                theEngine.start();
+            }
+        }
+        theEngine.quit();
+        recorder.close();
+        assertNull(recorder.getError());
+    }
+
+    /**
+     * Replaying a session on a fresh engine ends in the same state.
+     * @throws IOException never.
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        playRandomly(500);
+        Engine replayed = new Engine();
+        EventReplayer replayer =
+            new EventReplayer(new ByteArrayInputStream(log.toByteArray()));
+        long records = replayer.replay(replayed);
+        assertTrue(records > 1000);
+        assertEquals(499, replayer.getTick());
+        assertEquals(theEngine.getState(), replayed.getState());
+        assertEquals(theEngine.getGame().stateHash(),
+                replayed.getGame().stateHash());
+        assertEquals(theEngine.getFoodEaten(), replayed.getFoodEaten());
+    }
+
+    /**
+     * The log takes a few bytes per call: a byte for its kind and the
+     * ticks passed, as long as few ticks passed, and a byte per argument.
+     */
+    @Test
+    public void testCompact() {
+        theEngine.start();
+        recorder.flush();
+        int header = log.size() - 1;
+        assertTrue(header < 32);
+        for (int i = 0; i < 100; i++) {
+            theEngine.movePlayer(0, i % 2 == 0 ? 1 : -1);
+        }
+        recorder.flush();
+        assertEquals(header + 1 + 3 * 100, log.size());
+        recorder.setTick(1000);
+        theEngine.moveMonsters(new MonsterMoves());
+        recorder.flush();
+        assertEquals(header + 1 + 3 * 100 + 2 + 1, log.size());
+    }
+
+    /**
+     * A log doesn't replay on an engine in another state.
+     * @throws IOException always.
+     */
+    @Test(expected = IOException.class)
+    public void testWrongStart() throws IOException {
+        playRandomly(10);
+        Engine other = new Engine();
+        other.start();
+        new EventReplayer(new ByteArrayInputStream(log.toByteArray()))
+            .replay(other);
+    }
+
+    /**
+     * A truncated log is detected.
+     * @throws IOException always.
+     */
+    @Test(expected = EOFException.class)
+    public void testTruncated() throws IOException {
+        theEngine.start();
+        theEngine.movePlayer(0, 1);
+        recorder.close();
+        byte[] bytes = log.toByteArray();
+        new EventReplayer(new ByteArrayInputStream(
+                Arrays.copyOf(bytes, bytes.length - 1)))
+            .replay(new Engine());
+    }
+}
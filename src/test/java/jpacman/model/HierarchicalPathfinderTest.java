@@ -0,0 +1,138 @@
+package jpacman.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for finding paths over chunks of the board.
+ */
+public class HierarchicalPathfinderTest {
+
+    /**
+     * Generate a square board with random walls and food.
+     *
+     * @param size Width and height of the board
+     * @param random Source of randomness
+     * @return The board.
+     */
+    private Board randomBoard(int size, Random random) {
+        String[] map = new String[size];
+        for (int y = 0; y < size; y++) {
+            StringBuilder row = new StringBuilder();
+            for (int x = 0; x < size; x++) {
+                int r = random.nextInt(10);
+                char c = r < 2 ? Guest.WALL_TYPE
+                    : r < 3 ? Guest.FOOD_TYPE : Guest.EMPTY_TYPE;
+                row.append(x == 0 && y == 0 ? Guest.PLAYER_TYPE : c);
+            }
+            map[y] = row.toString();
+        }
+        return new Game(map).getBoard();
+    }
+
+    /**
+     * Follow the steps of the pathfinder from one cell to another.
+     *
+     * @param pf The pathfinder
+     * @param fromX Horizontal coordinate of the start
+     * @param fromY Vertical coordinate of the start
+     * @param toX Horizontal coordinate of the target
+     * @param toY Vertical coordinate of the target
+     * @param maxSteps Maximum number of steps to take
+     * @return The number of steps taken to reach the target, or -1.
+     */
+    private int follow(HierarchicalPathfinder pf, int fromX, int fromY,
+            int toX, int toY, int maxSteps) {
+        int w = pf.getBoard().getWidth();
+        int x = fromX;
+        int y = fromY;
+        int steps = 0;
+        while ((x != toX || y != toY) && steps < maxSteps) {
+            int next = pf.nextStep(x, y, toX, toY);
+            if (next == HierarchicalPathfinder.NO_STEP) {
+                return -1;
+            }
+            assertEquals(1, Math.abs(next % w - x) + Math.abs(next / w - y));
+            x = next % w;
+            y = next / w;
+            assertTrue(pf.passable(x, y));
+            steps++;
+        }
+        return x == toX && y == toY ? steps : -1;
+    }
+
+    @Test
+    public void testReachesWhateverIsReachable() {
+        final int size = 30;
+        Random random = new Random(3);
+        Board board = randomBoard(size, random);
+        HierarchicalPathfinder pf = new HierarchicalPathfinder(board, 4);
+        DistanceMap distances = new DistanceMap(board);
+        for (int trial = 0; trial < 200; trial++) {
+            int tx = random.nextInt(size);
+            int ty = random.nextInt(size);
+            int fx = random.nextInt(size);
+            int fy = random.nextInt(size);
+            if (!pf.passable(tx, ty) || !pf.passable(fx, fy)) {
+                continue;
+            }
+            distances.computeFrom(tx, ty);
+            int shortest = distances.distance(fx, fy);
+            int steps = follow(pf, fx, fy, tx, ty, size * size);
+            if (shortest == DistanceMap.UNREACHABLE) {
+                assertEquals(-1, steps);
+                assertEquals(HierarchicalPathfinder.NO_STEP,
+                        pf.nextStep(fx, fy, tx, ty));
+            } else {
+                assertTrue("trial " + trial, steps >= shortest);
+                assertTrue("trial " + trial, steps <= 2 * shortest + 8);
+            }
+        }
+    }
+
+    @Test
+    public void testNoStepAtTarget() {
+        Board board = randomBoard(8, new Random(0));
+        HierarchicalPathfinder pf = new HierarchicalPathfinder(board, 4);
+        assertEquals(HierarchicalPathfinder.NO_STEP, pf.nextStep(0, 0, 0, 0));
+    }
+
+    @Test
+    public void testOnlyChangedChunksRebuilt() {
+        String[] map = new String[]{
+            "P0000000",
+            "00000000",
+            "00000000",
+            "00000000",
+            "00000000",
+            "00000000",
+            "00000000",
+            "0000000F",
+        };
+        Game game = new Game(map);
+        Board board = game.getBoard();
+        HierarchicalPathfinder pf = new HierarchicalPathfinder(board, 4);
+        assertEquals(1, follow(pf, 1, 0, 0, 0, 10));
+        assertEquals(4, pf.getChunkRebuilds());
+
+        // a change that doesn't block anything.
+        pf.cellChanged(1, 1);
+        pf.nextStep(1, 0, 0, 0);
+        assertEquals(4, pf.getChunkRebuilds());
+
+        // food inside the bottom right chunk.
+        new Food().occupy(board.getCell(5, 6));
+        pf.cellChanged(5, 6);
+        pf.nextStep(1, 0, 0, 0);
+        assertEquals(5, pf.getChunkRebuilds());
+
+        // food on the border of the top left chunk.
+        new Food().occupy(board.getCell(3, 1));
+        pf.cellChanged(3, 1);
+        assertEquals(13, follow(pf, 7, 6, 0, 0, 20));
+        assertEquals(7, pf.getChunkRebuilds());
+    }
+}
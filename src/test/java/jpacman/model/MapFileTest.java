@@ -0,0 +1,141 @@
+package jpacman.model;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for reading maps from memory mapped map files.
+ */
+public class MapFileTest {
+
+    /**
+     * Rows of a small map.
+     */
+    private static final String[] MAP = {"WWWWW", "WPF0W", "W0MFW", "WWWWW"};
+
+    /**
+     * The map file written by a test.
+     */
+    private Path file;
+
+    /**
+     * Create a temporary file to write maps to.
+     * @throws IOException if the file can't be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("world", ".map");
+    }
+
+    /**
+     * Remove the temporary file.
+     * @throws IOException if the file can't be removed.
+     */
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Write the given text to the map file, and open it.
+     * @param text Contents of the map file.
+     * @return The opened map.
+     * @throws IOException if the map can't be written or read.
+     */
+    private MapFile open(String text) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.ISO_8859_1));
+        return MapFile.open(file);
+    }
+
+    /**
+     * Check that the given map contains exactly the rows of MAP.
+     * @param map The map read.
+     */
+    private void assertMapRead(MapSource map) {
+        assertEquals(MAP[0].length(), map.getWidth());
+        assertEquals(MAP.length, map.getHeight());
+        for (int y = 0; y < MAP.length; y++) {
+            for (int x = 0; x < MAP[y].length(); x++) {
+                assertEquals(MAP[y].charAt(x), map.codeAt(x, y));
+            }
+        }
+    }
+
+    /**
+     * Rows terminated by newlines.
+     * @throws IOException if the map can't be written or read.
+     */
+    @Test
+    public void testNewlines() throws IOException {
+        assertMapRead(open(String.join("\n", MAP) + "\n"));
+    }
+
+    /**
+     * Rows terminated by carriage returns and newlines, the last
+     * one lacking a terminator.
+     * @throws IOException if the map can't be written or read.
+     */
+    @Test
+    public void testCarriageReturnsWithoutFinalNewline() throws IOException {
+        assertMapRead(open(String.join("\r\n", MAP)));
+    }
+
+    /**
+     * A row of a different length is rejected.
+     * @throws IOException if the map is rejected, as it should be.
+     */
+    @Test(expected = IOException.class)
+    public void testUnequalRows() throws IOException {
+        open("WWWWW\nWPF0W\nW0MF\nWWWWW\n");
+    }
+
+    /**
+     * Rows mixing terminators can't be found from their position,
+     * and are rejected.
+     * @throws IOException if the map is rejected, as it should be.
+     */
+    @Test(expected = IOException.class)
+    public void testMixedTerminators() throws IOException {
+        open("WWWWW\r\nWPF0W\nW0MFW\nWWWWW\n");
+    }
+
+    /**
+     * An empty file contains no map.
+     * @throws IOException if the map is rejected, as it should be.
+     */
+    @Test(expected = IOException.class)
+    public void testEmptyFile() throws IOException {
+        open("");
+    }
+
+    /**
+     * A game loaded from a map file, on a plain or a compact board,
+     * matches the game loaded from strings, also after a restart.
+     * @throws IOException if the map can't be written or read.
+     */
+    @Test
+    public void testGameFromFile() throws IOException {
+        MapFile map = open(String.join("\n", MAP) + "\n");
+        Game expected = new Game(MAP);
+        for (boolean compact : new boolean[] {false, true}) {
+            Game game = new Game(map, compact);
+            game.movePlayer(1, 0);
+            game.initialize();
+            assertEquals(1, game.getMonsters().size());
+            for (int y = 0; y < MAP.length; y++) {
+                for (int x = 0; x < MAP[y].length(); x++) {
+                    assertEquals(expected.getGuestCode(x, y),
+                            game.getGuestCode(x, y));
+                }
+            }
+        }
+    }
+}
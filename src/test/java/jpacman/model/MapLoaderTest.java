@@ -0,0 +1,151 @@
+package jpacman.model;
+
+import java.util.Arrays;
+import java.util.Vector;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for loading maps large enough to be split into bands that
+ * are read in parallel.
+ */
+public class MapLoaderTest {
+
+    /**
+     * Width and height of the generated maps, well above the size of a
+     * single band.
+     */
+    private static final int SIZE = 600;
+
+    /**
+     * Generate a map surrounded by walls, with food on every seventh
+     * square, a monster on every 101st square, and the player at the
+     * given position.
+     *
+     * @param px Column of the player
+     * @param py Row of the player
+     * @return The rows of the map.
+     */
+    private String[] generate(int px, int py) {
+        String[] map = new String[SIZE];
+        char[] row = new char[SIZE];
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                int i = y * SIZE + x;
+                if (x == 0 || y == 0 || x == SIZE - 1 || y == SIZE - 1) {
+                    row[x] = Guest.WALL_TYPE;
+                } else if (x == px && y == py) {
+                    row[x] = Guest.PLAYER_TYPE;
+                } else if (i % 101 == 0) {
+                    row[x] = Guest.MONSTER_TYPE;
+                } else if (i % 7 == 0) {
+                    row[x] = Guest.FOOD_TYPE;
+                } else {
+                    row[x] = Guest.EMPTY_TYPE;
+                }
+            }
+            map[y] = new String(row);
+        }
+        return map;
+    }
+
+    /**
+     * @param map Rows of a map.
+     * @return The map as a map source.
+     */
+    private MapSource source(String[] map) {
+        return new MapSource() {
+            public int getWidth() {
+                return map[0].length();
+            }
+            public int getHeight() {
+                return map.length;
+            }
+            public char codeAt(int x, int y) {
+                return map[y].charAt(x);
+            }
+        };
+    }
+
+    /**
+     * Every square ends up on the board and in its bitboards, the food is
+     * counted exactly, and the monsters are numbered in reading order, on
+     * both kinds of board.
+     */
+    @Test
+    public void testLargeMap() {
+        String[] map = generate(SIZE / 2, SIZE / 3);
+        int food = 0;
+        for (String row : map) {
+            food += row.chars().filter(c -> c == Guest.FOOD_TYPE).count();
+        }
+        for (boolean compact : new boolean[] {false, true}) {
+            Game game = new Game(map, compact);
+            Bitboards bits = game.getBoard().getBitboards();
+            for (int y = 0; y < SIZE; y++) {
+                for (int x = 0; x < SIZE; x++) {
+                    assertEquals(map[y].charAt(x), game.getGuestCode(x, y));
+                    assertEquals(map[y].charAt(x), bits.typeAt(y * SIZE + x));
+                }
+            }
+            assertEquals(food, bits.count(Guest.FOOD_TYPE));
+            game.getPlayer().eat(food * Food.DEFAULT_POINTS - 1);
+            assertFalse(game.playerWon());
+            game.getPlayer().eat(1);
+            assertTrue(game.playerWon());
+
+            Vector<Monster> monsters = game.getMonsters();
+            int previous = -1;
+            for (int m = 0; m < monsters.size(); m++) {
+                Cell cell = monsters.get(m).getLocation();
+                int index = cell.getY() * SIZE + cell.getX();
+                assertTrue(index > previous);
+                assertEquals(m + 1, monsters.get(m).getMoverId());
+                previous = index;
+            }
+        }
+    }
+
+    /**
+     * The loader reports the moving guests of all bands, in reading order.
+     */
+    @Test
+    public void testMoversInReadingOrder() {
+        String[] map = generate(1, SIZE - 2);
+        Board board = new Board(SIZE, SIZE);
+        board.trackChanges(false);
+        MapLoader loader = new MapLoader(source(map), board);
+        loader.invoke();
+        int[] movers = loader.getMovers();
+        int[] sorted = movers.clone();
+        Arrays.sort(sorted);
+        assertArrayEquals(sorted, movers);
+        assertTrue(Arrays.binarySearch(movers, (SIZE - 2) * SIZE + 1) >= 0);
+    }
+
+    /**
+     * A second player in a different band is still caught.
+     */
+    @Test(expected = AssertionError.class)
+    public void testTwoPlayers() {
+        String[] map = generate(SIZE / 2, 1);
+        char[] row = map[SIZE - 2].toCharArray();
+        row[1] = Guest.PLAYER_TYPE;
+        map[SIZE - 2] = new String(row);
+        new Game(map);
+    }
+
+    /**
+     * An unknown code in one of the bands is reported.
+     */
+    @Test(expected = AssertionError.class)
+    public void testUnknownCode() {
+        String[] map = generate(SIZE / 2, 1);
+        char[] row = map[SIZE - 3].toCharArray();
+        row[2] = 'Q';
+        map[SIZE - 3] = new String(row);
+        new Game(map);
+    }
+}
@@ -0,0 +1,83 @@
+package jpacman.model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for games resolving their moves against reusable move
+ * records, making use of the simple map from the GameTestCase.
+ */
+public class MoveRecordTest extends GameTestCase {
+
+    /**
+     * Switch the game to pooled moves.
+     */
+    @Before
+    public void setUp() {
+        theGame.setPooledMoves(true);
+        assertTrue(theGame.pooledMoves());
+    }
+
+    /**
+     * Moving the player to food eats it, and undoing the move
+     * puts food back.
+     */
+    @Test
+    public void testEatFoodAndUndo() {
+        theGame.movePlayer(-1, 0);
+        assertEquals(foodCell, thePlayer.getLocation());
+        assertEquals(1, thePlayer.getPointsEaten());
+        assertNull(theFood.getLocation());
+
+        theGame.undo();
+        assertEquals(playerCell, thePlayer.getLocation());
+        assertEquals(0, thePlayer.getPointsEaten());
+        assertTrue(foodCell.getInhabitant() instanceof Food);
+    }
+
+    /**
+     * Walls can't be entered, and leave the game as it was.
+     */
+    @Test
+    public void testMoveIntoWall() {
+        theGame.movePlayer(0, -1);
+        assertEquals(playerCell, thePlayer.getLocation());
+        assertEquals(0, theGame.getPlayerLastDx());
+        assertEquals(-1, theGame.getPlayerLastDy());
+    }
+
+    /**
+     * Bumping into a monster kills the player; undo revives it.
+     */
+    @Test
+    public void testPlayerDiesAndUndo() {
+        theGame.movePlayer(0, 1);
+        assertTrue(theGame.playerDied());
+        assertEquals(playerCell, thePlayer.getLocation());
+
+        theGame.undo();
+        assertFalse(theGame.playerDied());
+    }
+
+    /**
+     * A monster moving to the player kills it, a monster moving to food
+     * is blocked, and undoing a segment restores all monster moves.
+     */
+    @Test
+    public void testMonsterMovesAndUndo() {
+        theGame.movePlayer(1, 0);
+        theGame.moveMonster(theMonster, 0, -1);
+        assertEquals(playerCell, theMonster.getLocation());
+        theGame.moveMonster(theMonster, -1, 0);
+        assertEquals(playerCell, theMonster.getLocation());
+        theGame.moveMonster(theMonster, 1, 0);
+        assertTrue(theGame.playerDied());
+
+        theGame.undo();
+        assertFalse(theGame.playerDied());
+        assertEquals(monsterCell, theMonster.getLocation());
+        assertEquals(playerCell, thePlayer.getLocation());
+    }
+}
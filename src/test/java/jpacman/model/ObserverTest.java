@@ -1,7 +1,10 @@
 package jpacman.model;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Observable;
@@ -48,13 +51,18 @@ public class ObserverTest extends GameTestCase {
          * The update counter.
          */
         private int nrOfUpdates = 0;
+        /**
+         * The summary passed with the last update.
+         */
+        private ChangeSummary lastSummary;
         /**
          * Make an observation, and update the counter.
          * @param obs The observable (the engine);
-         * @param o remaining info, ignored.
+         * @param o remaining info, the summary of the changes.
          */
         public void update(Observable obs, Object o) {
             nrOfUpdates++;
+            lastSummary = (ChangeSummary) o;
         }
     }
 
@@ -89,4 +97,86 @@ public class ObserverTest extends GameTestCase {
          // todo: test updates for monster moves as well.
 
     }
+
+    /**
+     * Each update carries a summary of what changed since the previous one.
+     */
+    @Test public void testChangeSummaries() {
+        theEngine.start();
+        ChangeSummary s = theObserver.lastSummary;
+        assertTrue(s.allCellsTouched());
+        assertEquals(Engine.State.STARTING, s.getPreviousState());
+        assertEquals(Engine.State.PLAYING, s.getState());
+
+        theEngine.movePlayer(1, 0);
+        s = theObserver.lastSummary;
+        assertFalse(s.allCellsTouched());
+        assertFalse(s.stateChanged());
+        assertEquals(0, s.getScoreDelta());
+        assertEquals(2, s.touchedCount());
+        assertEquals(1, s.touchedX(0));
+        assertEquals(1, s.touchedY(0));
+        assertEquals(2, s.touchedX(1));
+        assertEquals(1, s.touchedY(1));
+    }
+
+    /**
+     * In coalescing mode, the observers are only notified when the changes
+     * are flushed, and only if there are any.
+     */
+    @Test public void testCoalescedUpdates() {
+        theEngine.setCoalescing(true);
+        assertTrue(theEngine.isCoalescing());
+        theEngine.start();
+        theEngine.movePlayer(-1, 0);
+        assertEquals(0, theObserver.nrOfUpdates);
+
+        theEngine.flushChanges();
+        assertEquals(1, theObserver.nrOfUpdates);
+        ChangeSummary s = theObserver.lastSummary;
+        assertTrue(s.allCellsTouched());
+        assertEquals(1, s.getScoreDelta());
+        assertEquals(Engine.State.STARTING, s.getPreviousState());
+        assertEquals(Engine.State.PLAYING, s.getState());
+
+        theEngine.flushChanges();
+        assertEquals(1, theObserver.nrOfUpdates);
+
+        theEngine.movePlayer(0, 1);
+        theEngine.setCoalescing(false);
+        assertEquals(2, theObserver.nrOfUpdates);
+        s = theObserver.lastSummary;
+        assertEquals(1, s.getScoreDelta());
+        assertEquals(Engine.State.WON, s.getState());
+        assertEquals(2, s.touchedCount());
+    }
+
+    /**
+     * The engine passes the same summary with every update, unless an
+     * observer makes a move while being notified.
+     */
+    @Test public void testSummaryReused() {
+        theEngine.start();
+        ChangeSummary first = theObserver.lastSummary;
+        theEngine.movePlayer(1, 0);
+        assertSame(first, theObserver.lastSummary);
+        assertEquals(2, first.touchedCount());
+
+        final ChangeSummary[] nested = new ChangeSummary[1];
+        theEngine.addObserver(new java.util.Observer() {
+            public void update(Observable obs, Object o) {
+                if (nested[0] == null) {
+                    nested[0] = (ChangeSummary) o;
+                    int updates = theObserver.nrOfUpdates;
+                    theEngine.movePlayer(-1, 0);
+                    assertEquals(updates + 1, theObserver.nrOfUpdates);
+                    assertNotSame(nested[0], theObserver.lastSummary);
+                    assertEquals(2, nested[0].touchedCount());
+                    assertEquals(2, nested[0].touchedX(0));
+                }
+            }
+        });
+        theEngine.movePlayer(0, 1);
+        assertSame(first, theObserver.lastSummary);
+    }
 }
@@ -0,0 +1,117 @@
+package jpacman.model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for the lightweight copies of game states, which should
+ * follow the rules of the game.
+ */
+public class SearchStateTest extends GameTestCase {
+
+    /**
+     * A copy of the simple game.
+     */
+    private SearchState state;
+
+    /**
+     * Copy the state of the simple game.
+     */
+    @Before
+    public void copyState() {
+        state = new SearchState(theGame);
+    }
+
+    /**
+     * Check that the state has the same guests as the game.
+     */
+    private void assertSameBoard() {
+        Board board = theGame.getBoard();
+        int w = board.getWidth();
+        for (int y = 0; y < board.getHeight(); y++) {
+            for (int x = 0; x < w; x++) {
+                assertEquals(board.guestCode(x, y),
+                        state.getBitboards().typeAt(y * w + x));
+            }
+        }
+    }
+
+    /**
+     * The copy describes the game.
+     */
+    @Test
+    public void testCopied() {
+        assertSameBoard();
+        assertEquals(4, state.getPlayerIndex());
+        assertEquals(2, state.getMonsterCount());
+        assertEquals(7, state.getMonsterIndex(0));
+        assertEquals(2, state.getFoodLeft());
+        assertFalse(state.gameOver());
+    }
+
+    /**
+     * Moves have the same effect as in the game: walls stop
+     * the player, food is eaten, and monsters can't enter food.
+     */
+    @Test
+    public void testSameRules() {
+        int[][] moves = {{0, -1}, {1, 0}, {-1, 0}, {-1, 0}};
+        for (int[] move : moves) {
+            state.movePlayer(move[0], move[1]);
+            theGame.movePlayer(move[0], move[1]);
+            assertSameBoard();
+        }
+        assertEquals(1, state.getFoodEaten());
+        state.moveMonster(0, -1, 0);
+        theGame.moveMonster(theMonster, -1, 0);
+        assertSameBoard();
+        state.moveMonster(0, 0, 1);
+        theGame.moveMonster(theMonster, 0, 1);
+        assertSameBoard();
+        assertEquals(theGame.playerDied(), state.playerDied());
+    }
+
+    /**
+     * Meeting a monster, either way, kills the player.
+     */
+    @Test
+    public void testDeath() {
+        SearchState other = state.copy();
+        state.movePlayer(0, 1);
+        assertTrue(state.playerDied());
+        assertTrue(state.gameOver());
+        assertFalse(state.playerWon());
+        other.moveMonster(0, 0, -1);
+        assertTrue(other.playerDied());
+    }
+
+    /**
+     * Eating all food wins, and copies are independent.
+     */
+    @Test
+    public void testWinAndCopies() {
+        SearchState start = state.copy();
+        state.movePlayer(-1, 0);
+        state.movePlayer(0, 1);
+        assertTrue(state.playerWon());
+        assertEquals(2, start.getFoodLeft());
+        assertEquals(Guest.PLAYER_TYPE, start.getBitboards().typeAt(4));
+        state.copyFrom(start);
+        assertEquals(2, state.getFoodLeft());
+        assertEquals(0, state.getFoodEaten());
+        assertEquals(4, state.getPlayerIndex());
+        assertFalse(state.gameOver());
+    }
+
+    /**
+     * Offsets beyond the borders give no square.
+     */
+    @Test
+    public void testIndexAtOffset() {
+        assertEquals(5, state.indexAtOffset(4, 1, 0));
+        assertEquals(-1, state.indexAtOffset(5, 1, 0));
+        assertEquals(-1, state.indexAtOffset(1, 0, -1));
+    }
+}
@@ -0,0 +1,94 @@
+package jpacman.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for the solver finding the shortest way to eat all food.
+ */
+public class SolverTest extends GameTestCase {
+
+    /**
+     * The simple map is won by eating the two food elements below each
+     * other, and the game is left as it was.
+     */
+    @Test
+    public void testSimpleMap() {
+        long initial = theGame.stateHash();
+        Solver solver = new Solver(theGame);
+        assertTrue(solver.winnable());
+        assertEquals(2, solver.solve(10));
+        assertEquals("LD", solver.getSolution());
+        assertEquals(initial, theGame.stateHash());
+        assertEquals(playerCell, thePlayer.getLocation());
+        assertEquals(0, thePlayer.getPointsEaten());
+    }
+
+    /**
+     * The map of the fuzzer's first example takes three moves.
+     */
+    @Test
+    public void testSampleMap() {
+        Game game = new Game(new String[] {
+            "WWWWWWW",
+            "W00000W",
+            "W00M00W",
+            "W0P000W",
+            "W000F0W",
+            "WWWWWWW"
+        });
+        Solver solver = new Solver(game, 8);
+        assertEquals(3, solver.solve(20));
+        assertEquals(3, solver.getSolution().length());
+    }
+
+    /**
+     * Monsters are walked around, and the order in which food is eaten is
+     * chosen well: first the near element to the left, then the far ones
+     * to the right.
+     */
+    @Test
+    public void testDetour() {
+        Game game = new Game(new String[] {
+            "WWWWWWWWW",
+            "WF0P0M0FW",
+            "W0000000W",
+            "WWWWWWWWW"
+        });
+        Solver solver = new Solver(game, 10);
+        assertEquals(2 + 6 + 2, solver.solve(30));
+        assertTrue(solver.getExpanded() > 0);
+        assertEquals(Solver.NO_SOLUTION, solver.solve(9));
+        assertEquals("", solver.getSolution());
+    }
+
+    /**
+     * Food walled off or guarded by monsters can't be eaten.
+     */
+    @Test
+    public void testUnwinnable() {
+        Game game = new Game(new String[] {
+            "P0W0",
+            "00WF",
+            "M0W0"
+        });
+        Solver solver = new Solver(game);
+        assertFalse(solver.winnable());
+        assertEquals(Solver.NO_SOLUTION, solver.solve(100));
+        game = new Game(new String[] {
+            "P0MF",
+            "00WM"
+        });
+        assertFalse(new Solver(game).winnable());
+    }
+
+    /**
+     * A game already won needs no moves.
+     */
+    @Test
+    public void testWon() {
+        Game game = new Game(new String[] {"P0M"});
+        assertEquals(0, new Solver(game).solve(0));
+    }
+}
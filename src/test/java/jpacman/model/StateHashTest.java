@@ -0,0 +1,91 @@
+package jpacman.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for the Zobrist hash of game states, which should only depend
+ * on the contents of the board and the player being alive.
+ */
+public class StateHashTest extends GameTestCase {
+
+    /**
+     * Moves change the hash, and undoing them restores it.
+     */
+    @Test
+    public void testUndoRestoresHash() {
+        long initial = theGame.stateHash();
+        theGame.movePlayer(-1, 0);
+        long eaten = theGame.stateHash();
+        assertNotEquals(initial, eaten);
+        theGame.moveMonster(theMonster, 1, 0);
+        assertNotEquals(eaten, theGame.stateHash());
+        theGame.undo();
+        assertEquals(initial, theGame.stateHash());
+    }
+
+    /**
+     * The same state reached along different paths has the same hash.
+     */
+    @Test
+    public void testTransposition() {
+        long initial = theGame.stateHash();
+        theGame.movePlayer(1, 0);
+        theGame.movePlayer(-1, 0);
+        assertEquals(initial, theGame.stateHash());
+    }
+
+    /**
+     * A dead player changes the hash.
+     */
+    @Test
+    public void testDeath() {
+        long initial = theGame.stateHash();
+        theGame.moveMonster(theMonster, 0, -1);
+        assertTrue(theGame.playerDied());
+        assertNotEquals(initial, theGame.stateHash());
+        theGame.undo();
+        assertEquals(initial, theGame.stateHash());
+    }
+
+    /**
+     * The hash doesn't depend on how the board was built or restored.
+     */
+    @Test
+    public void testIndependentOfBoard() {
+        long initial = theGame.stateHash();
+        assertEquals(initial, new Game(SIMPLE_MAP, true).stateHash());
+        theGame.movePlayer(-1, 0);
+        theGame.initialize();
+        assertEquals(initial, theGame.stateHash());
+    }
+
+    /**
+     * Boards loaded in parallel bands get the same hash as boards built
+     * one guest at a time.
+     */
+    @Test
+    public void testParallelLoad() {
+        final int size = 400;
+        String[] map = new String[size];
+        StringBuilder row = new StringBuilder();
+        for (int y = 0; y < size; y++) {
+            row.setLength(0);
+            for (int x = 0; x < size; x++) {
+                row.append("0WFM".charAt((x * 7 + y * 3) % 4));
+            }
+            map[y] = row.toString();
+        }
+        map[1] = "P" + map[1].substring(1);
+        Game game = new Game(map);
+        long expected = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                expected ^= Bitboards.key(map[y].charAt(x), y * size + x);
+            }
+        }
+        assertEquals(expected, game.stateHash());
+        assertEquals(expected, new Game(map, true).stateHash());
+    }
+}
@@ -0,0 +1,126 @@
+package jpacman.model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for the undo journal, both on its own and as used by
+ * a game with the simple map from the GameTestCase.
+ */
+public class UndoJournalTest extends GameTestCase {
+
+    /**
+     * The journal under test.
+     */
+    private UndoJournal journal;
+
+    /**
+     * Create a small journal.
+     */
+    @Before
+    public void setUp() {
+        journal = new UndoJournal(4);
+        assertTrue(journal.isEmpty());
+    }
+
+    /**
+     * Record a monster-like move to the given board index.
+     * @param to Index of the target cell.
+     * @param segmentStart Does the move start a segment?
+     */
+    private void record(int to, boolean segmentStart) {
+        journal.record(1, to - 1, to, Guest.EMPTY_TYPE, 0,
+                true, false, segmentStart);
+    }
+
+    /**
+     * Entries come back with the fields they were recorded with.
+     */
+    @Test
+    public void testRecordFields() {
+        journal.record(0, 3, 4, Guest.FOOD_TYPE, 1, true, false, true);
+        int e = journal.last();
+        assertEquals(0, journal.moverId(e));
+        assertEquals(3, journal.fromIndex(e));
+        assertEquals(4, journal.toIndex(e));
+        assertEquals(Guest.FOOD_TYPE, journal.captured(e));
+        assertEquals(1, journal.foodDelta(e));
+        assertTrue(journal.applied(e));
+        assertFalse(journal.playerDies(e));
+        assertTrue(journal.startsSegment(e));
+        journal.dropLast();
+        assertTrue(journal.isEmpty());
+    }
+
+    /**
+     * A full journal overwrites its oldest entries.
+     */
+    @Test
+    public void testBounded() {
+        for (int i = 1; i <= 10; i++) {
+            record(i, false);
+        }
+        assertEquals(4, journal.size());
+        for (int i = 10; i > 6; i--) {
+            assertEquals(i, journal.toIndex(journal.last()));
+            journal.dropLast();
+        }
+        assertTrue(journal.isEmpty());
+    }
+
+    /**
+     * Undoing a game pops one player move with the monster moves
+     * that followed it.
+     */
+    @Test
+    public void testUndoSegments() {
+        theGame.movePlayer(1, 0);
+        theGame.moveMonster(theMonster, 0, -1);
+        theGame.movePlayer(0, -1);
+        theGame.moveMonster(theMonster, 1, 0);
+        assertEquals(emptyCell.cellAtOffset(0, -1), thePlayer.getLocation());
+        assertEquals(emptyCell, theMonster.getLocation());
+
+        theGame.undo();
+        assertEquals(emptyCell, thePlayer.getLocation());
+        assertEquals(playerCell, theMonster.getLocation());
+
+        theGame.undo();
+        assertEquals(playerCell, thePlayer.getLocation());
+        assertEquals(monsterCell, theMonster.getLocation());
+
+        // nothing left to undo.
+        theGame.undo();
+        assertEquals(playerCell, thePlayer.getLocation());
+    }
+
+    /**
+     * A player move bumping into a wall still opens a segment.
+     */
+    @Test
+    public void testUndoWallBump() {
+        theGame.movePlayer(1, 0);
+        theGame.movePlayer(0, -1);
+        theGame.movePlayer(-1, 0);
+        theGame.undo();
+        assertEquals(emptyCell.cellAtOffset(0, -1), thePlayer.getLocation());
+        theGame.undo();
+        assertEquals(emptyCell, thePlayer.getLocation());
+    }
+
+    /**
+     * With a limited journal, only the most recent moves can be undone.
+     */
+    @Test
+    public void testUndoLimit() {
+        theGame.setUndoLimit(1);
+        assertEquals(1, theGame.getUndoLimit());
+        theGame.movePlayer(1, 0);
+        theGame.movePlayer(0, -1);
+        theGame.undo();
+        theGame.undo();
+        assertEquals(emptyCell, thePlayer.getLocation());
+    }
+}
@@ -0,0 +1,71 @@
+package jpacman.model;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Test cases for stepping several environments at once.
+ */
+public class VectorEnvironmentTest {
+
+    /**
+     * A map without monsters, with food to the left of the player.
+     */
+    private static final String[] MAP = new String[] {
+        "WWWW",
+        "WFPW",
+        "WWWW"
+    };
+
+    /**
+     * Every environment gets its own action, and those that are done are
+     * reset at once.
+     */
+    @Test
+    public void testStep() {
+        VectorEnvironment envs = new VectorEnvironment(MAP, 3, 0);
+        assertEquals(3, envs.size());
+        float[] obs = envs.newObservations();
+        assertEquals(3 * envs.observationSize(), obs.length);
+        envs.reset(obs);
+        float[] initial = Arrays.copyOf(obs, envs.observationSize());
+        float[] rewards = new float[3];
+        boolean[] dones = new boolean[3];
+        int[] actions = {Environment.LEFT, Environment.STAY, Environment.UP};
+        envs.step(actions, obs, rewards, dones);
+        assertArrayEquals(new float[] {1, 0, 0}, rewards, 0);
+        assertTrue(dones[0]);
+        assertFalse(dones[1] || dones[2]);
+        assertFalse(envs.get(0).done());
+        for (int i = 0; i < 3; i++) {
+            assertArrayEquals(initial, Arrays.copyOfRange(obs,
+                    i * envs.observationSize(),
+                    (i + 1) * envs.observationSize()), 0);
+        }
+    }
+
+    /**
+     * The environments move their monsters independently.
+     */
+    @Test
+    public void testIndependentMonsters() {
+        VectorEnvironment envs =
+            new VectorEnvironment(new String[] {"P0WF000M000"}, 2, 3);
+        float[] obs = envs.newObservations();
+        float[] rewards = new float[2];
+        boolean[] dones = new boolean[2];
+        int[] actions = {Environment.STAY, Environment.STAY};
+        boolean differ = false;
+        for (int i = 0; i < 20; i++) {
+            envs.step(actions, obs, rewards, dones);
+            int size = envs.observationSize();
+            differ = differ || !Arrays.equals(
+                    Arrays.copyOfRange(obs, 0, size),
+                    Arrays.copyOfRange(obs, size, 2 * size));
+        }
+        assertTrue(differ);
+    }
+}